@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.benchmark;
+
+import com.wuwenze.poi.convert.ConverterExp;
+import com.wuwenze.poi.pojo.ExcelProperty;
+import com.wuwenze.poi.util.POIUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 宽表(大量转换列)下逐行转换的开销: 每次拆分表达式 vs 预编译查表.
+ *
+ * @author wuwenze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConverterExpBenchmark {
+
+  @Param({"12", "48"})
+  public int columns;
+
+  @Param({"3", "20"})
+  public int itemsPerExp;
+
+  private List<ExcelProperty> mPropertyList;
+  private String[][] mRows;
+
+  @Setup
+  public void setup() {
+    mPropertyList = new ArrayList<ExcelProperty>(columns);
+    for (int i = 0; i < columns; i++) {
+      String exp = SyntheticData.converterExp(itemsPerExp);
+      mPropertyList.add(ExcelProperty.builder()
+          .name("field" + i)
+          .writeConverterExp(exp)
+          .compiledWriteConverterExp(ConverterExp.compile(exp))
+          .build());
+    }
+    mRows = new String[1000][columns];
+    for (int r = 0; r < mRows.length; r++) {
+      for (int c = 0; c < columns; c++) {
+        mRows[r][c] = String.valueOf((r + c) % (itemsPerExp + 1));
+      }
+    }
+  }
+
+  @Benchmark
+  public void splitPerCell(Blackhole blackhole) throws Exception {
+    for (String[] row : mRows) {
+      for (int c = 0; c < columns; c++) {
+        blackhole.consume(
+            POIUtil.convertByExp(row[c], mPropertyList.get(c).getWriteConverterExp()));
+      }
+    }
+  }
+
+  @Benchmark
+  public void compiled(Blackhole blackhole) {
+    for (String[] row : mRows) {
+      for (int c = 0; c < columns; c++) {
+        blackhole.consume(mPropertyList.get(c).getCompiledWriteConverterExp().convert(row[c]));
+      }
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.benchmark;
+
+import com.wuwenze.poi.ExcelKit;
+import com.wuwenze.poi.config.ExcelWriterConfig;
+import com.wuwenze.poi.datasource.ExcelDataSource;
+import com.wuwenze.poi.datasource.ListDataSource;
+import com.wuwenze.poi.pojo.ExcelProperty;
+import com.wuwenze.poi.progress.ExcelProgress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DIRECT 引擎逐行写入单个大 sheet 时, 压缩级别及分块并行压缩对耗时与文件大小的影响.
+ * 文件大小以辅助计数器 outputBytes 输出.
+ *
+ * @author wuwenze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DeflateBenchmark {
+
+  @Param({"100000"})
+  public int rows;
+
+  @Param({"0", "1", "6", "9"})
+  public int compressionLevel;
+
+  @Param({"false", "true"})
+  public boolean parallelDeflate;
+
+  private List<SyntheticRow> mData;
+  private ExcelWriterConfig mWriterConfig;
+
+  @Setup
+  public void setup() {
+    mData = SyntheticRow.list(rows);
+    mWriterConfig = new ExcelWriterConfig();
+    mWriterConfig.setEngine(ExcelWriterConfig.Engine.DIRECT);
+    mWriterConfig.setCompressionLevel(compressionLevel);
+    mWriterConfig.setParallelDeflate(parallelDeflate);
+    mWriterConfig.setParallelism(
+        parallelDeflate ? Math.max(2, Runtime.getRuntime().availableProcessors()) : 1);
+  }
+
+  @Benchmark
+  public void write(OutputSize outputSize) {
+    WriterEngineBenchmark.CountingOutputStream outputStream =
+        new WriterEngineBenchmark.CountingOutputStream();
+    ExcelKit.$Builder(SyntheticRow.class, outputStream)
+        .setWriterConfig(mWriterConfig)
+        .setMaxSheetRecords(rows)
+        .writeXlsx(new StreamingDataSource(mData), new ExcelProgress());
+    outputSize.outputBytes = outputStream.mCount;
+  }
+
+  /**
+   * 最近一次导出的文件大小
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class OutputSize {
+
+    public long outputBytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      outputBytes = 0;
+    }
+  }
+
+  /**
+   * 非 List 数据源, 模拟逐行读取的场景 (不走按 sheet 并行的路径)
+   */
+  static class StreamingDataSource implements ExcelDataSource {
+
+    private final ListDataSource mDelegate;
+
+    StreamingDataSource(List<?> data) {
+      mDelegate = new ListDataSource(data);
+    }
+
+    @Override
+    public boolean next() {
+      return mDelegate.next();
+    }
+
+    @Override
+    public Object getValue(ExcelProperty property) {
+      return mDelegate.getValue(property);
+    }
+
+    @Override
+    public void close() {
+      mDelegate.close();
+    }
+  }
+}
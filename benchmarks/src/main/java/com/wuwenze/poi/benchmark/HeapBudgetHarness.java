@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.benchmark;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * 堆内存预算回归测试: 在限制了 -Xmx 的独立 JVM 中运行 HeapBudgetScenario 的各个场景,
+ * 将峰值堆、GC 次数、临时文件占用及耗时与基线文件比较, 超出容差时以非 0 状态退出.
+ * <p>
+ * 用法 (在 benchmarks 目录下):
+ * <pre>
+ *   java -cp target/benchmarks.jar com.wuwenze.poi.benchmark.HeapBudgetHarness [--update]
+ *       [--baseline heap-budget.properties] [场景名...]
+ * </pre>
+ * --update 以本次结果覆盖基线中的统计值 (保留行数、-Xmx 及容差配置).
+ * 导入场景读取的行数必须与生成的行数相等, 否则视为失败 (不更新基线).
+ *
+ * @author wuwenze
+ */
+public final class HeapBudgetHarness {
+
+  private static final String DEFAULT_BASELINE = "heap-budget.properties";
+  private static final String DEFAULT_XMX = "128m";
+  private static final String[] METRICS = {
+      "peakHeapBytes", "peakLiveHeapBytes", "gcCount", "gcTimeMillis", "peakTempBytes",
+      "outputBytes", "elapsedMillis"};
+  private static final Map<String, String> DEFAULT_ROWS = new LinkedHashMap<String, String>();
+  private static final Map<String, String> DEFAULT_TOLERANCES = new LinkedHashMap<String, String>();
+
+  static {
+    DEFAULT_ROWS.put("export-sxssf", "2000000");
+    DEFAULT_ROWS.put("export-direct", "2000000");
+    // 按文件导入时只读打开压缩包并逐个 sheet 流式解析, 堆占用与行数无关 (超过 100 万行时拆分为多个 sheet)
+    DEFAULT_ROWS.put("import", "2000000");
+    // 相对基线允许增长的比例, 未配置的统计值只输出不比较
+    DEFAULT_TOLERANCES.put("peakHeapBytes", "0.10");
+    DEFAULT_TOLERANCES.put("peakLiveHeapBytes", "0.15");
+    DEFAULT_TOLERANCES.put("gcCount", "0.25");
+    DEFAULT_TOLERANCES.put("peakTempBytes", "0.10");
+    DEFAULT_TOLERANCES.put("outputBytes", "0.02");
+    DEFAULT_TOLERANCES.put("elapsedMillis", "0.50");
+  }
+
+  private HeapBudgetHarness() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    boolean update = false;
+    File baselineFile = new File(DEFAULT_BASELINE);
+    List<String> scenarios = new ArrayList<String>();
+    for (int i = 0; i < args.length; i++) {
+      if ("--update".equals(args[i])) {
+        update = true;
+      } else if ("--baseline".equals(args[i])) {
+        baselineFile = new File(args[++i]);
+      } else {
+        scenarios.add(args[i]);
+      }
+    }
+    if (scenarios.isEmpty()) {
+      scenarios.addAll(Arrays.asList(HeapBudgetScenario.SCENARIOS));
+    }
+
+    Properties baseline = HeapBudgetHarness.load(baselineFile);
+    String xmx = baseline.getProperty("xmx", DEFAULT_XMX);
+    File dataDirectory = new File(System.getProperty("java.io.tmpdir"), "excelkit-benchmarks");
+    boolean failed = false;
+    for (String scenario : scenarios) {
+      String rows = baseline.getProperty(scenario + ".rows", DEFAULT_ROWS.get(scenario));
+      if (null == rows) {
+        throw new IllegalArgumentException("Unknown scenario: " + scenario);
+      }
+      System.out.println("# " + scenario + ": rows=" + rows + ", -Xmx" + xmx);
+      Map<String, String> metrics = HeapBudgetHarness.fork(scenario, rows, xmx, dataDirectory);
+      if (!"OK".equals(metrics.get("status"))) {
+        System.out.println(scenario + " FAILED: status=" + metrics.get("status"));
+        failed = true;
+        continue;
+      }
+      String rowsRead = metrics.get("rowsRead");
+      if (null != rowsRead && !rowsRead.equals(rows)) {
+        System.out.println(scenario + " FAILED: rowsRead=" + rowsRead + ", expected " + rows);
+        failed = true;
+        continue;
+      }
+      for (String metric : METRICS) {
+        if (!metrics.containsKey(metric)) {
+          continue;
+        }
+        String key = scenario + "." + metric;
+        long actual = Long.parseLong(metrics.get(metric));
+        String expected = baseline.getProperty(key);
+        String tolerance = baseline.getProperty("tolerance." + metric,
+            DEFAULT_TOLERANCES.get(metric));
+        String result = "";
+        if (null != expected && null != tolerance) {
+          long limit = (long) (Long.parseLong(expected) * (1 + Double.parseDouble(tolerance)));
+          boolean regressed = actual > limit;
+          failed |= regressed && !update;
+          result = (regressed ? "REGRESSED" : "ok") + " (limit " + limit + ")";
+        }
+        System.out.println(String.format("  %-18s %14d  baseline %14s  %s", metric, actual,
+            null != expected ? expected : "-", result));
+        if (update) {
+          baseline.setProperty(key, String.valueOf(actual));
+        }
+      }
+      if (update) {
+        baseline.setProperty(scenario + ".rows", rows);
+      }
+    }
+    if (update) {
+      baseline.setProperty("xmx", xmx);
+      HeapBudgetHarness.store(baseline, baselineFile);
+      System.out.println("Baseline written to " + baselineFile.getAbsolutePath());
+    }
+    System.exit(failed ? 1 : 0);
+  }
+
+  private static Map<String, String> fork(String scenario, String rows, String xmx,
+      File dataDirectory) throws IOException, InterruptedException {
+    File workDirectory = Files.createTempDir();
+    File tempDirectory = new File(workDirectory, "tmp");
+    if (!tempDirectory.mkdirs()) {
+      throw new IOException("Could not create " + tempDirectory);
+    }
+    try {
+      Process process = new ProcessBuilder(
+          new File(System.getProperty("java.home"), "bin/java").getPath(),
+          "-Xmx" + xmx,
+          "-XX:+UseSerialGC",
+          "-Djava.io.tmpdir=" + tempDirectory.getPath(),
+          "-Dexcelkit.benchmarks.dir=" + dataDirectory.getPath(),
+          "-cp", System.getProperty("java.class.path"),
+          HeapBudgetScenario.class.getName(), scenario, rows, workDirectory.getPath())
+          .redirectErrorStream(true)
+          .start();
+      Map<String, String> metrics = new LinkedHashMap<String, String>();
+      metrics.put("status", "EXIT");
+      BufferedReader reader = new BufferedReader(
+          new InputStreamReader(process.getInputStream(), Charsets.UTF_8));
+      String line;
+      while (null != (line = reader.readLine())) {
+        if (line.startsWith(HeapBudgetScenario.METRIC_PREFIX)) {
+          String[] metric = line.substring(HeapBudgetScenario.METRIC_PREFIX.length()).split("=", 2);
+          metrics.put(metric[0], metric[1]);
+        } else {
+          System.out.println("  | " + line);
+        }
+      }
+      int exitCode = process.waitFor();
+      if (0 != exitCode && "OK".equals(metrics.get("status"))) {
+        metrics.put("status", "EXIT " + exitCode);
+      }
+      return metrics;
+    } finally {
+      HeapBudgetHarness.delete(workDirectory);
+    }
+  }
+
+  private static Properties load(File file) throws IOException {
+    Properties properties = new Properties();
+    if (file.isFile()) {
+      InputStream inputStream = new FileInputStream(file);
+      try {
+        properties.load(inputStream);
+      } finally {
+        inputStream.close();
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * 按 key 排序写出, 便于比较基线的变更
+   */
+  private static void store(Properties properties, File file) throws IOException {
+    StringBuilder content = new StringBuilder(
+        "# ExcelKit heap budget baseline, see HeapBudgetHarness\n");
+    for (String key : new TreeSet<String>(properties.stringPropertyNames())) {
+      content.append(key).append('=').append(properties.getProperty(key)).append('\n');
+    }
+    Files.write(content, file, Charsets.UTF_8);
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (null != children) {
+      for (File child : children) {
+        HeapBudgetHarness.delete(child);
+      }
+    }
+    file.delete();
+  }
+}
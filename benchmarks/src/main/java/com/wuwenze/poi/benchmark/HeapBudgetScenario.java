@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.benchmark;
+
+import com.google.common.base.Throwables;
+import com.wuwenze.poi.ExcelKit;
+import com.wuwenze.poi.config.ExcelWriterConfig;
+import com.wuwenze.poi.datasource.ListDataSource;
+import com.wuwenze.poi.handler.ExcelReadHandler;
+import com.wuwenze.poi.pojo.ExcelErrorField;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 由 HeapBudgetHarness 在独立的 JVM 中运行的单个场景, 结束时以 "@metric 名称=值" 的形式输出统计结果.
+ * <p>
+ * 参数: 场景名 行数 工作目录. 导出的文件写入工作目录, 临时文件使用 java.io.tmpdir (由 harness 指定).
+ *
+ * @author wuwenze
+ */
+public final class HeapBudgetScenario {
+
+  static final String METRIC_PREFIX = "@metric ";
+  static final String[] SCENARIOS = {"export-sxssf", "export-direct", "import"};
+
+  private static final int MAX_SHEET_RECORDS = 1000000;
+  private static final int IMPORT_COLUMNS = 6;
+  private static final long SAMPLE_MILLIS = 10;
+
+  private HeapBudgetScenario() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    String scenario = args[0];
+    int rows = Integer.parseInt(args[1]);
+    File workDirectory = new File(args[2]);
+    File tempDirectory = new File(System.getProperty("java.io.tmpdir"));
+    File importFile = "import".equals(scenario)
+        ? SyntheticWorkbook.get(rows, IMPORT_COLUMNS, SyntheticWorkbook.Cells.STRING) : null;
+
+    System.gc();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      pool.resetPeakUsage();
+    }
+    long gcCount = HeapBudgetScenario.gcCount();
+    long gcTime = HeapBudgetScenario.gcTime();
+    Sampler sampler = new Sampler(tempDirectory);
+    sampler.start();
+    long start = System.nanoTime();
+    String status = "OK";
+    long output = 0;
+    try {
+      if (null == importFile) {
+        File outputFile = new File(workDirectory, scenario + ".xlsx");
+        export(scenario, rows, outputFile);
+        output = outputFile.length();
+      } else {
+        output = read(importFile);
+      }
+    } catch (Throwable e) {
+      // 导入/导出会将 OutOfMemoryError 包装为 ExcelKitRuntimeException
+      status = Throwables.getRootCause(e) instanceof OutOfMemoryError ? "OOM" : "ERROR";
+      if (!"OOM".equals(status)) {
+        e.printStackTrace(System.out);
+      }
+    }
+    long elapsed = (System.nanoTime() - start) / 1000000;
+    sampler.interrupt();
+    sampler.join();
+
+    Map<String, Object> metrics = new LinkedHashMap<String, Object>();
+    metrics.put("status", status);
+    metrics.put("peakHeapBytes", HeapBudgetScenario.peakHeap());
+    metrics.put("peakLiveHeapBytes", sampler.mPeakLiveHeap);
+    metrics.put("gcCount", HeapBudgetScenario.gcCount() - gcCount);
+    metrics.put("gcTimeMillis", HeapBudgetScenario.gcTime() - gcTime);
+    metrics.put("peakTempBytes", sampler.mPeakTempBytes);
+    metrics.put(null == importFile ? "outputBytes" : "rowsRead", output);
+    metrics.put("elapsedMillis", elapsed);
+    for (Map.Entry<String, Object> metric : metrics.entrySet()) {
+      System.out.println(METRIC_PREFIX + metric.getKey() + "=" + metric.getValue());
+    }
+  }
+
+  private static void export(String scenario, int rows, File outputFile) throws IOException {
+    ExcelWriterConfig writerConfig = new ExcelWriterConfig();
+    writerConfig.setEngine("export-direct".equals(scenario)
+        ? ExcelWriterConfig.Engine.DIRECT : ExcelWriterConfig.Engine.SXSSF);
+    ExcelKit.$Builder(SyntheticRow.class,
+        new BufferedOutputStream(new FileOutputStream(outputFile), 64 * 1024))
+        .setWriterConfig(writerConfig)
+        .setMaxSheetRecords(MAX_SHEET_RECORDS)
+        .writeXlsx(new ListDataSource(new SyntheticList(rows)), null);
+  }
+
+  private static long read(File file) {
+    final long[] count = new long[1];
+    ExcelKit.$Import(HashMap.class)
+        .setExcelMapping(SyntheticWorkbook.mapping(IMPORT_COLUMNS))
+        .readXlsx(file, new ExcelReadHandler<Map<String, String>>() {
+          @Override
+          public void onSuccess(int sheetIndex, int rowIndex, Map<String, String> entity) {
+            count[0]++;
+          }
+
+          @Override
+          public void onError(int sheetIndex, int rowIndex, List<ExcelErrorField> errorFields) {
+            throw new IllegalStateException("Row " + rowIndex + ": " + errorFields);
+          }
+        });
+    return count[0];
+  }
+
+  private static long peakHeap() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long gcTime() {
+    long time = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      time += Math.max(0, gc.getCollectionTime());
+    }
+    return time;
+  }
+
+  /**
+   * 按行号生成数据, 不在内存中保留数据集
+   */
+  private static class SyntheticList extends AbstractList<SyntheticRow> {
+
+    private final int mRows;
+    private int mIndex = -1;
+    private SyntheticRow mRow;
+
+    SyntheticList(int rows) {
+      mRows = rows;
+    }
+
+    @Override
+    public SyntheticRow get(int index) {
+      if (index != mIndex) {
+        mRow = SyntheticRow.row(index);
+        mIndex = index;
+      }
+      return mRow;
+    }
+
+    @Override
+    public int size() {
+      return mRows;
+    }
+  }
+
+  /**
+   * 定期采样: 各堆内存池最近一次 GC 后的占用之和 (近似存活对象大小) 及临时目录占用的字节数
+   */
+  private static class Sampler extends Thread {
+
+    private final File mTempDirectory;
+    private volatile long mPeakLiveHeap = 0;
+    private volatile long mPeakTempBytes = 0;
+
+    Sampler(File tempDirectory) {
+      super("heap-budget-sampler");
+      setDaemon(true);
+      mTempDirectory = tempDirectory;
+    }
+
+    @Override
+    public void run() {
+      while (!isInterrupted()) {
+        sample();
+        try {
+          Thread.sleep(SAMPLE_MILLIS);
+        } catch (InterruptedException e) {
+          break;
+        }
+      }
+      sample();
+    }
+
+    private void sample() {
+      long live = 0;
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+        if (null != usage) {
+          live += usage.getUsed();
+        }
+      }
+      mPeakLiveHeap = Math.max(mPeakLiveHeap, live);
+      mPeakTempBytes = Math.max(mPeakTempBytes, Sampler.size(mTempDirectory));
+    }
+
+    private static long size(File file) {
+      File[] children = file.listFiles();
+      if (null == children) {
+        return file.length();
+      }
+      long size = 0;
+      for (File child : children) {
+        size += Sampler.size(child);
+      }
+      return size;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.benchmark;
+
+import com.wuwenze.poi.handler.ExcelReadHandler;
+import com.wuwenze.poi.pojo.ExcelErrorField;
+import com.wuwenze.poi.pojo.ExcelMapping;
+import com.wuwenze.poi.xlsx.ExcelXlsxReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ExcelXlsxReader 导入: 行数 x 列数 x 单元格内容(共享字符串/数值).
+ * 实体为 HashMap, 只衡量解析与逐行处理, 不包含类型转换.
+ * <p>
+ * 完整矩阵耗时较长, 可用 -p 选择参数, 如: -p rows=100000 -p columns=40
+ *
+ * @author wuwenze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ReaderBenchmark {
+
+  @Param({"10000", "100000", "1000000"})
+  public int rows;
+
+  @Param({"6", "40"})
+  public int columns;
+
+  @Param({"STRING", "NUMERIC"})
+  public SyntheticWorkbook.Cells cells;
+
+  private File mFile;
+  private ExcelMapping mMapping;
+
+  @Setup
+  public void setup() throws IOException {
+    mFile = SyntheticWorkbook.get(rows, columns, cells);
+    mMapping = SyntheticWorkbook.mapping(columns);
+  }
+
+  @Benchmark
+  public void read(final Blackhole blackhole) throws IOException {
+    InputStream inputStream = new BufferedInputStream(new FileInputStream(mFile));
+    try {
+      new ExcelXlsxReader(HashMap.class, mMapping, new ExcelReadHandler<Map<String, String>>() {
+        @Override
+        public void onSuccess(int sheetIndex, int rowIndex, Map<String, String> entity) {
+          blackhole.consume(entity);
+        }
+
+        @Override
+        public void onError(int sheetIndex, int rowIndex, List<ExcelErrorField> errorFields) {
+          throw new IllegalStateException("Row " + rowIndex + ": " + errorFields);
+        }
+      }).process(inputStream);
+    } finally {
+      inputStream.close();
+    }
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.benchmark;
+
+/**
+ * 基准测试使用的确定性测试数据
+ *
+ * @author wuwenze
+ */
+public final class SyntheticData {
+
+  private SyntheticData() {
+  }
+
+  /**
+   * @param items 表达式项数
+   * @return 0=选项0,1=选项1,...
+   */
+  public static String converterExp(int items) {
+    StringBuilder exp = new StringBuilder();
+    for (int i = 0; i < items; i++) {
+      if (i > 0) {
+        exp.append(',');
+      }
+      exp.append(i).append("=选项").append(i);
+    }
+    return exp.toString();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.benchmark;
+
+import com.wuwenze.poi.annotation.Excel;
+import com.wuwenze.poi.annotation.ExcelField;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * 基准测试使用的导出实体
+ *
+ * @author wuwenze
+ */
+@Data
+@Excel("基准测试")
+public class SyntheticRow {
+
+  @ExcelField(value = "编号")
+  private Integer id;
+
+  @ExcelField(value = "名称")
+  private String name;
+
+  @ExcelField(value = "性别", writeConverterExp = "0=未知,1=男,2=女")
+  private Integer sex;
+
+  @ExcelField(value = "邮箱")
+  private String email;
+
+  @ExcelField(value = "备注")
+  private String remark;
+
+  @ExcelField(value = "创建时间", dateFormat = "yyyy-MM-dd HH:mm:ss")
+  private Date createAt;
+
+  /**
+   * @param rows 行数
+   * @return 内容只与行号有关的数据集
+   */
+  public static List<SyntheticRow> list(int rows) {
+    List<SyntheticRow> list = new ArrayList<SyntheticRow>(rows);
+    for (int i = 0; i < rows; i++) {
+      list.add(SyntheticRow.row(i));
+    }
+    return list;
+  }
+
+  /**
+   * @param i 行号
+   * @return 第 i 行的数据
+   */
+  public static SyntheticRow row(int i) {
+    SyntheticRow row = new SyntheticRow();
+    row.setId(i);
+    row.setName("用户" + i);
+    row.setSex(i % 3);
+    row.setEmail("user" + i + "@example.com");
+    row.setRemark(i % 7 == 0 ? "需要转义 <&> \"" + i + "\"" : "备注" + i);
+    row.setCreateAt(new Date(1500000000000L + i * 60000L));
+    return row;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.benchmark;
+
+import com.wuwenze.poi.factory.ExcelMappingBuilder;
+import com.wuwenze.poi.pojo.ExcelMapping;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * 生成导入基准测试使用的确定性工作簿, 内容只与行号、列号有关.
+ * <p>
+ * 生成的文件缓存在 java.io.tmpdir/excelkit-benchmarks (可通过 -Dexcelkit.benchmarks.dir 指定) 下,
+ * 多次运行 (及多个 fork) 只生成一次. 每个 sheet 最多 100 万行数据, 超出时拆分为多个 sheet.
+ *
+ * @author wuwenze
+ */
+public final class SyntheticWorkbook {
+
+  /**
+   * 单元格内容
+   */
+  public enum Cells {
+    /**
+     * 字符串 (写入共享字符串表, 每列 1000 个不同的值)
+     */
+    STRING,
+    /**
+     * 数值
+     */
+    NUMERIC
+  }
+
+  private static final int DISTINCT_STRINGS = 1000;
+  private static final int MAX_SHEET_ROWS = 1000000;
+  private static final File DIRECTORY = new File(System.getProperty("excelkit.benchmarks.dir",
+      new File(System.getProperty("java.io.tmpdir"), "excelkit-benchmarks").getPath()));
+
+  private SyntheticWorkbook() {
+  }
+
+  /**
+   * @param columns 列数
+   * @return 属性名 c0..cN, 列名 列0..列N 的映射
+   */
+  public static ExcelMapping mapping(int columns) {
+    ExcelMappingBuilder builder = ExcelMappingBuilder.create("基准测试");
+    for (int c = 0; c < columns; c++) {
+      builder.add("c" + c, "列" + c);
+    }
+    return builder.build();
+  }
+
+  /**
+   * @param rows 数据行数
+   * @param columns 列数
+   * @param cells 单元格内容
+   * @return 工作簿文件, 不存在时生成
+   */
+  public static synchronized File get(int rows, int columns, Cells cells) throws IOException {
+    File file = new File(DIRECTORY, "synthetic-" + rows + "x" + columns + "-"
+        + cells.name().toLowerCase() + ".xlsx");
+    if (file.isFile()) {
+      return file;
+    }
+    if (!DIRECTORY.exists() && !DIRECTORY.mkdirs() && !DIRECTORY.exists()) {
+      throw new IOException("Could not create " + DIRECTORY);
+    }
+    File temp = new File(DIRECTORY, file.getName() + ".tmp");
+    SXSSFWorkbook workbook = new SXSSFWorkbook(new XSSFWorkbook(), 100, true,
+        cells == Cells.STRING);
+    try {
+      Sheet sheet = null;
+      for (int r = 0; r < rows; r++) {
+        if (r % MAX_SHEET_ROWS == 0) {
+          sheet = workbook.createSheet(0 == r ? "基准测试" : "基准测试" + (r / MAX_SHEET_ROWS + 1));
+          Row header = sheet.createRow(0);
+          for (int c = 0; c < columns; c++) {
+            header.createCell(c).setCellValue("列" + c);
+          }
+        }
+        Row row = sheet.createRow(r % MAX_SHEET_ROWS + 1);
+        for (int c = 0; c < columns; c++) {
+          if (cells == Cells.STRING) {
+            row.createCell(c).setCellValue("值" + c + "-" + (r % DISTINCT_STRINGS));
+          } else {
+            row.createCell(c).setCellValue(r * 0.25 + c);
+          }
+        }
+      }
+      OutputStream outputStream = new FileOutputStream(temp);
+      try {
+        workbook.write(outputStream);
+      } finally {
+        outputStream.close();
+      }
+    } finally {
+      workbook.dispose();
+    }
+    if (!temp.renameTo(file)) {
+      throw new IOException("Could not rename " + temp + " to " + file);
+    }
+    return file;
+  }
+}
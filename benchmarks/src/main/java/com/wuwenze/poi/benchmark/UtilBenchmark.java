@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.benchmark;
+
+import com.wuwenze.poi.util.BeanUtil;
+import com.wuwenze.poi.util.DateUtil;
+import com.wuwenze.poi.util.POIUtil;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.beanutils.BeanUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 导入/导出中逐单元格调用的工具方法. 转换表达式见 ConverterExpBenchmark.
+ *
+ * @author wuwenze
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+  private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+  private SyntheticRow mRow;
+  private Date mDate;
+  private String mDateString;
+
+  @Setup
+  public void setup() {
+    mRow = SyntheticRow.list(1).get(0);
+    mDate = mRow.getCreateAt();
+    mDateString = DateUtil.format(DATE_PATTERN, mDate);
+  }
+
+  @Benchmark
+  public int countNullCellAdjacent() {
+    return POIUtil.countNullCell("C12", "B12");
+  }
+
+  @Benchmark
+  public int countNullCellWide() {
+    return POIUtil.countNullCell("AN12", "A12");
+  }
+
+  @Benchmark
+  public Object convertByExp() throws Exception {
+    return POIUtil.convertByExp("1", "0=未知,1=男,2=女");
+  }
+
+  @Benchmark
+  public String dateFormat() {
+    return DateUtil.format(DATE_PATTERN, mDate);
+  }
+
+  @Benchmark
+  public Date dateParse() throws Exception {
+    return DateUtil.parse(DATE_PATTERN, mDateString);
+  }
+
+  @Benchmark
+  public SyntheticRow setComplexPropertyString() throws Exception {
+    BeanUtil.setComplexProperty(mRow, "name", "用户1");
+    return mRow;
+  }
+
+  @Benchmark
+  public SyntheticRow setComplexPropertyInteger() throws Exception {
+    BeanUtil.setComplexProperty(mRow, "sex", "2");
+    return mRow;
+  }
+
+  @Benchmark
+  public String getProperty() throws Exception {
+    return BeanUtils.getProperty(mRow, "email");
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.benchmark;
+
+import com.wuwenze.poi.config.Options;
+import com.wuwenze.poi.factory.ExcelMappingBuilder;
+import com.wuwenze.poi.factory.ExcelMappingFactory;
+import com.wuwenze.poi.pojo.ExcelMapping;
+import com.wuwenze.poi.pojo.ExcelProperty;
+import com.wuwenze.poi.xlsx.ExcelXlsxWriter;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ExcelXlsxWriter#generateXlsxWorkbook (SXSSF) 导出数据及生成导入模板, 包含写出文件.
+ *
+ * @author wuwenze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WriterBenchmark {
+
+  @Param({"10000", "100000"})
+  public int rows;
+
+  /**
+   * 模板中每个下拉列的选项数, 超过 100 项时写入隐藏 sheet
+   */
+  @Param({"10", "1000"})
+  public int optionItems;
+
+  private List<SyntheticRow> mData;
+  private ExcelMapping mMapping;
+  private ExcelMapping mTemplateMapping;
+
+  @Setup
+  public void setup() {
+    mData = SyntheticRow.list(rows);
+    mMapping = ExcelMappingFactory.get(SyntheticRow.class);
+    final String[] values = new String[optionItems];
+    for (int i = 0; i < optionItems; i++) {
+      values[i] = "选项" + i;
+    }
+    Options options = new Options() {
+      @Override
+      public String[] get() {
+        return values;
+      }
+    };
+    ExcelMappingBuilder builder = ExcelMappingBuilder.create("模板");
+    for (int c = 0; c < 12; c++) {
+      builder.add(ExcelProperty.builder()
+          .name("c" + c)
+          .column("列" + c)
+          .required(c % 2 == 0)
+          .comment("第 " + c + " 列的说明")
+          .options(c % 3 == 0 ? options : null)
+          .build());
+    }
+    mTemplateMapping = builder.build();
+  }
+
+  @Benchmark
+  public long export() throws IOException {
+    return write(new ExcelXlsxWriter(mMapping, rows).generateXlsxWorkbook(mData, false));
+  }
+
+  @Benchmark
+  public long template() throws IOException {
+    return write(new ExcelXlsxWriter(mTemplateMapping, rows)
+        .generateXlsxWorkbook(Collections.emptyList(), true));
+  }
+
+  private static long write(SXSSFWorkbook workbook) throws IOException {
+    try {
+      WriterEngineBenchmark.CountingOutputStream outputStream =
+          new WriterEngineBenchmark.CountingOutputStream();
+      workbook.write(outputStream);
+      return outputStream.mCount;
+    } finally {
+      workbook.dispose();
+    }
+  }
+}
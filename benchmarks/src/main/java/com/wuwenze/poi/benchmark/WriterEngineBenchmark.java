@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.benchmark;
+
+import com.wuwenze.poi.ExcelKit;
+import com.wuwenze.poi.config.ExcelWriterConfig;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 单 sheet 导出: SXSSF 与直接写入 SpreadsheetML 的耗时对比.
+ *
+ * @author wuwenze
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WriterEngineBenchmark {
+
+  @Param({"10000", "100000"})
+  public int rows;
+
+  @Param({"SXSSF", "DIRECT"})
+  public ExcelWriterConfig.Engine engine;
+
+  private List<SyntheticRow> mData;
+  private ExcelWriterConfig mWriterConfig;
+
+  @Setup
+  public void setup() {
+    mData = SyntheticRow.list(rows);
+    mWriterConfig = new ExcelWriterConfig();
+    mWriterConfig.setEngine(engine);
+  }
+
+  @Benchmark
+  public long write() {
+    CountingOutputStream outputStream = new CountingOutputStream();
+    ExcelKit.$Builder(SyntheticRow.class, outputStream)
+        .setWriterConfig(mWriterConfig)
+        .setMaxSheetRecords(rows)
+        .writeXlsx(mData, false);
+    return outputStream.mCount;
+  }
+
+  static class CountingOutputStream extends OutputStream {
+
+    long mCount = 0;
+
+    @Override
+    public void write(int b) {
+      mCount++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      mCount += len;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.jfr;
+
+import com.wuwenze.poi.metrics.ExcelTracer;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * ExcelKit 的 JFR 事件, 每个 {@link ExcelTracer.Kind} 对应一个子类. 事件的持续时间即阶段耗时,
+ * 低于阈值的阶段在提交前被丢弃, 不设置字段也不写入缓冲区.
+ *
+ * @author wuwenze
+ */
+@Category("ExcelKit")
+@StackTrace(false)
+public abstract class ExcelEvent extends Event implements ExcelTracer.Span {
+
+  @Label("Mapping Class")
+  @Description("映射的实体类")
+  Class<?> mappingClass;
+
+  @Label("Name")
+  @Description("sheet 名称")
+  String name;
+
+  @Label("Rows")
+  long rows;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+
+  @Override
+  public void end(long rows, long bytes) {
+    end();
+    if (shouldCommit()) {
+      this.rows = rows;
+      this.bytes = bytes;
+      commit();
+    }
+  }
+
+  @Name("com.wuwenze.poi.WorkbookOpen")
+  @Label("Workbook Open")
+  @Description("导入时打开 xlsx 包并加载共享字符串表与样式")
+  @Threshold("10 ms")
+  public static final class WorkbookOpen extends ExcelEvent {
+  }
+
+  @Name("com.wuwenze.poi.SheetRead")
+  @Label("Sheet Read")
+  @Description("导入时解析一个 sheet, 字节数为解压后的大小")
+  @Threshold("10 ms")
+  public static final class SheetRead extends ExcelEvent {
+  }
+
+  @Name("com.wuwenze.poi.SheetWrite")
+  @Label("Sheet Write")
+  @Description("导出时写入一个 sheet, 字节数为写入的临时文件大小")
+  @Threshold("10 ms")
+  public static final class SheetWrite extends ExcelEvent {
+  }
+
+  @Name("com.wuwenze.poi.BatchFlush")
+  @Label("Batch Flush")
+  @Description("SXSSF 导出时将一批行刷写到临时文件")
+  @Threshold("20 ms")
+  public static final class BatchFlush extends ExcelEvent {
+  }
+
+  @Name("com.wuwenze.poi.Export")
+  @Label("Export")
+  @Description("一次数据导出, 字节数为写入输出流的大小")
+  @Threshold("10 ms")
+  public static final class Export extends ExcelEvent {
+  }
+
+  @Name("com.wuwenze.poi.ZipFinish")
+  @Label("Zip Finish")
+  @Description("导出时组装并结束 zip")
+  @Threshold("10 ms")
+  public static final class ZipFinish extends ExcelEvent {
+  }
+
+  @Name("com.wuwenze.poi.Template")
+  @Label("Template")
+  @Description("一次导入模板导出")
+  @Threshold("10 ms")
+  public static final class Template extends ExcelEvent {
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.jfr;
+
+import com.wuwenze.poi.metrics.ExcelTracer;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * 以 JFR 事件实现的 {@link ExcelTracer}, 通过 META-INF/services 自动注册.
+ * 没有进行中的录制或事件被禁用时返回 {@link ExcelTracer.Span#NOOP}.
+ *
+ * @author wuwenze
+ * @see ExcelEvent
+ */
+public class ExcelJfrTracer implements ExcelTracer {
+
+  /**
+   * @throws IllegalStateException 当前 JVM 不支持 JFR (由 ServiceLoader 转为 ServiceConfigurationError)
+   */
+  public ExcelJfrTracer() {
+    if (!FlightRecorder.isAvailable()) {
+      throw new IllegalStateException("Flight Recorder is not available.");
+    }
+    // 提前注册, 使事件在首次发生前就出现在录制的元数据与设置中
+    FlightRecorder.register(ExcelEvent.WorkbookOpen.class);
+    FlightRecorder.register(ExcelEvent.SheetRead.class);
+    FlightRecorder.register(ExcelEvent.SheetWrite.class);
+    FlightRecorder.register(ExcelEvent.BatchFlush.class);
+    FlightRecorder.register(ExcelEvent.Export.class);
+    FlightRecorder.register(ExcelEvent.ZipFinish.class);
+    FlightRecorder.register(ExcelEvent.Template.class);
+  }
+
+  @Override
+  public Span start(Kind kind, Class<?> type, String name) {
+    ExcelEvent event = newEvent(kind);
+    if (!event.isEnabled()) {
+      return Span.NOOP;
+    }
+    event.mappingClass = type;
+    event.name = name;
+    event.begin();
+    return event;
+  }
+
+  private static ExcelEvent newEvent(Kind kind) {
+    switch (kind) {
+      case WORKBOOK_OPEN:
+        return new ExcelEvent.WorkbookOpen();
+      case SHEET_READ:
+        return new ExcelEvent.SheetRead();
+      case SHEET_WRITE:
+        return new ExcelEvent.SheetWrite();
+      case BATCH_FLUSH:
+        return new ExcelEvent.BatchFlush();
+      case EXPORT:
+        return new ExcelEvent.Export();
+      case ZIP_FINISH:
+        return new ExcelEvent.ZipFinish();
+      default:
+        return new ExcelEvent.Template();
+    }
+  }
+}
@@ -0,0 +1,530 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.processor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * 为每个 @Excel 实体生成 ExcelMappingProvider 实现 (实体名_ExcelKitMapping), 并登记到
+ * META-INF/services/com.wuwenze.poi.factory.ExcelMappingProvider.
+ * 同时生成映射索引 META-INF/excelkit/mappings.index 供 ExcelMappingFactory#preload() 使用;
+ * 通过 -Aexcelkit.xmlMappingDir=src/main/resources/excel-mapping 可将 XML 映射一并加入索引.
+ * <p>
+ * 生成的映射与 ExcelMappingFactory 解析注解的结果相同, 选项/转换器/校验器直接通过构造器创建;
+ * 属性读写优先直接访问字段或 getter/setter, 找不到可访问的 getter/setter (如由 lombok 生成且未先于本处理器运行)
+ * 以及嵌套属性(a.b)等无法静态确定的情况仍交给 BeanUtils. 实体没有可访问的无参构造器时只能用于导出.
+ *
+ * @author wuwenze
+ */
+@SupportedAnnotationTypes(ExcelMappingProcessor.EXCEL)
+@SupportedOptions(ExcelMappingProcessor.XML_MAPPING_DIR_OPTION)
+public class ExcelMappingProcessor extends AbstractProcessor {
+
+  static final String EXCEL = "com.wuwenze.poi.annotation.Excel";
+  private static final String EXCEL_FIELD = "com.wuwenze.poi.annotation.ExcelField";
+  private static final String EXCEL_FIELD_VOID = "com.wuwenze.poi.annotation.ExcelField.Void";
+  private static final String PROVIDER = "com.wuwenze.poi.factory.ExcelMappingProvider";
+  static final String XML_MAPPING_DIR_OPTION = "excelkit.xmlMappingDir";
+  private static final String SERVICE_FILE = "META-INF/services/" + PROVIDER;
+  private static final String INDEX_FILE = "META-INF/excelkit/mappings.index";
+  private static final String SUFFIX = "_ExcelKitMapping";
+
+  private Elements mElements;
+  private Types mTypes;
+  private Filer mFiler;
+  private Messager mMessager;
+  private final Set<String> mProviders = new LinkedHashSet<String>();
+  private final Set<String> mIndex = new LinkedHashSet<String>();
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
+    mElements = processingEnv.getElementUtils();
+    mTypes = processingEnv.getTypeUtils();
+    mFiler = processingEnv.getFiler();
+    mMessager = processingEnv.getMessager();
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (roundEnv.processingOver()) {
+      if (!mProviders.isEmpty()) {
+        writeResource(SERVICE_FILE, mProviders);
+      }
+      addXmlMappings();
+      if (!mIndex.isEmpty()) {
+        writeResource(INDEX_FILE, mIndex);
+      }
+      return false;
+    }
+    TypeElement excel = mElements.getTypeElement(EXCEL);
+    if (null == excel) {
+      return false;
+    }
+    for (Element element : roundEnv.getElementsAnnotatedWith(excel)) {
+      if (element.getKind() != ElementKind.CLASS) {
+        continue;
+      }
+      TypeElement type = (TypeElement) element;
+      mIndex.add(mElements.getBinaryName(type).toString());
+      try {
+        if (checkAccessible(type, type)) {
+          generate(type);
+        }
+      } catch (IOException e) {
+        mMessager.printMessage(Diagnostic.Kind.ERROR,
+            "Generate ExcelMappingProvider failed: " + e.getMessage(), type);
+      }
+    }
+    return false;
+  }
+
+  private void generate(TypeElement type) throws IOException {
+    String packageName = mElements.getPackageOf(type).getQualifiedName().toString();
+    String providerName = getFlatName(type) + SUFFIX;
+    String typeName = type.getQualifiedName().toString();
+    List<FieldInfo> fields = new ArrayList<FieldInfo>();
+    for (Element member : type.getEnclosedElements()) {
+      if (member.getKind() == ElementKind.FIELD) {
+        AnnotationMirror excelField = getAnnotation(member, EXCEL_FIELD);
+        if (null != excelField) {
+          fields.add(new FieldInfo((VariableElement) member, getValues(excelField)));
+        }
+      }
+    }
+    if (fields.isEmpty()) {
+      // 与注解解析一致, 运行时报告 "@ExcelField annotations not found."
+      return;
+    }
+    for (FieldInfo field : fields) {
+      if (!checkField(type, field)) {
+        return;
+      }
+    }
+    String mappingName = (String) getValues(getAnnotation(type, EXCEL)).get("value").getValue();
+    boolean instantiable = hasNoArgConstructor(type);
+    if (!instantiable) {
+      mMessager.printMessage(Diagnostic.Kind.WARNING, "[" + typeName
+          + "] has no accessible no-arg constructor, it can only be used for export.", type);
+    }
+
+    String qualifiedProviderName = packageName.isEmpty() ? providerName
+        : packageName + "." + providerName;
+    PrintWriter out = new PrintWriter(
+        mFiler.createSourceFile(qualifiedProviderName, type).openWriter());
+    try {
+      if (!packageName.isEmpty()) {
+        out.println("package " + packageName + ";");
+        out.println();
+      }
+      out.println("/**");
+      out.println(" * Generated by " + getClass().getName() + ", do not edit.");
+      out.println(" */");
+      out.println("public final class " + providerName + " implements " + PROVIDER + " {");
+      out.println();
+      out.println("  @Override");
+      out.println("  public Class<?> getType() {");
+      out.println("    return " + typeName + ".class;");
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public com.wuwenze.poi.pojo.ExcelMapping createExcelMapping() {");
+      out.println("    java.util.List<com.wuwenze.poi.pojo.ExcelProperty> propertyList =");
+      out.println("        new java.util.ArrayList<com.wuwenze.poi.pojo.ExcelProperty>();");
+      for (FieldInfo field : fields) {
+        writeProperty(out, field);
+      }
+      out.println("    return new com.wuwenze.poi.pojo.ExcelMapping(" + literal(mappingName)
+          + ", propertyList);");
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public Object newInstance() {");
+      if (instantiable) {
+        out.println("    return new " + typeName + "();");
+      } else {
+        out.println("    throw new com.wuwenze.poi.exception.ExcelKitRuntimeException("
+            + literal("[" + typeName + "] has no accessible no-arg constructor.") + ");");
+      }
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public Object getValue(Object bean, String name) throws Exception {");
+      out.println("    " + typeName + " entity = (" + typeName + ") bean;");
+      for (FieldInfo field : fields) {
+        if (null != field.mReader) {
+          out.println("    if (" + literal(field.mName) + ".equals(name)) {");
+          out.println("      return entity." + field.mReader + ";");
+          out.println("    }");
+        }
+      }
+      out.println("    return org.apache.commons.beanutils.BeanUtils.getProperty(bean, name);");
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public void setValue(Object bean, String name, Object value) throws Exception {");
+      out.println("    " + typeName + " entity = (" + typeName + ") bean;");
+      for (FieldInfo field : fields) {
+        if (null != field.mWriter) {
+          out.println("    if (" + literal(field.mName) + ".equals(name)) {");
+          out.println("      entity." + String.format(field.mWriter,
+              "(" + field.mBoxedType + ") com.wuwenze.poi.util.BeanUtil.convert(value, "
+                  + field.mRawType + ".class)") + ";");
+          out.println("      return;");
+          out.println("    }");
+        }
+      }
+      out.println("    com.wuwenze.poi.util.BeanUtil.setComplexProperty(bean, name, value);");
+      out.println("  }");
+      out.println("}");
+    } finally {
+      out.close();
+    }
+    mProviders.add(qualifiedProviderName);
+  }
+
+  private void writeProperty(PrintWriter out, FieldInfo field) {
+    Map<String, AnnotationValue> values = field.mValues;
+    out.println("    propertyList.add(com.wuwenze.poi.pojo.ExcelProperty.builder()");
+    out.println("        .name(" + literal(field.mName) + ")");
+    out.println("        .required(" + values.get("required").getValue() + ")");
+    out.println("        .column(" + literal(field.mColumn) + ")");
+    out.println("        .comment(" + literal(stringValue(values, "comment")) + ")");
+    out.println("        .maxLength(" + values.get("maxLength").getValue() + ")");
+    out.println("        .width((short) " + values.get("width").getValue() + ")");
+    out.println("        .dateFormat(" + literal(stringValue(values, "dateFormat")) + ")");
+    out.println("        .options(" + newInstance(values, "options") + ")");
+    out.println("        .writeConverterExp(" + literal(stringValue(values, "writeConverterExp"))
+        + ")");
+    out.println("        .compiledWriteConverterExp(com.wuwenze.poi.convert.ConverterExp.compile("
+        + literal(stringValue(values, "writeConverterExp")) + "))");
+    out.println("        .writeConverter(" + newInstance(values, "writeConverter") + ")");
+    out.println("        .readConverterExp(" + literal(stringValue(values, "readConverterExp"))
+        + ")");
+    out.println("        .compiledReadConverterExp(com.wuwenze.poi.convert.ConverterExp.compile("
+        + literal(stringValue(values, "readConverterExp")) + "))");
+    out.println("        .readConverter(" + newInstance(values, "readConverter") + ")");
+    out.println("        .regularExp(" + literal(stringValue(values, "regularExp")) + ")");
+    out.println("        .regularExpMessage(" + literal(stringValue(values, "regularExpMessage"))
+        + ")");
+    out.println("        .validator(" + newInstance(values, "validator") + ")");
+    out.println("        .build());");
+  }
+
+  /**
+   * 校验转换表达式及选项/转换器/校验器类, 并确定属性的读写方式
+   */
+  private boolean checkField(TypeElement type, FieldInfo field) {
+    boolean valid = true;
+    for (String exp : new String[]{"writeConverterExp", "readConverterExp"}) {
+      String value = stringValue(field.mValues, exp);
+      if (!value.isEmpty() && !isValidConverterExp(value)) {
+        mMessager.printMessage(Diagnostic.Kind.ERROR,
+            exp + " error, Reference:[\"1=男,2=女\" or \"男=1,女=2\"].", field.mField);
+        valid = false;
+      }
+    }
+    for (String clazz : new String[]{"options", "writeConverter", "readConverter", "validator"}) {
+      TypeMirror value = (TypeMirror) field.mValues.get(clazz).getValue();
+      TypeElement element = (TypeElement) mTypes.asElement(value);
+      if (!element.getQualifiedName().contentEquals(EXCEL_FIELD_VOID)) {
+        valid &= checkAccessible(element, field.mField);
+      }
+    }
+    TypeMirror fieldType = field.mField.asType();
+    String fieldName = field.mField.getSimpleName().toString();
+    if (!fieldName.equals(field.mName) || fieldType.getKind() == TypeKind.TYPEVAR) {
+      return valid;
+    }
+    TypeMirror rawType = mTypes.erasure(fieldType);
+    field.mRawType = rawType.toString();
+    field.mBoxedType = rawType.getKind().isPrimitive()
+        ? mTypes.boxedClass(mTypes.getPrimitiveType(rawType.getKind())).getQualifiedName()
+        .toString() : field.mRawType;
+    if (!field.mField.getModifiers().contains(Modifier.PRIVATE)) {
+      field.mReader = fieldName;
+      field.mWriter = fieldName + " = %s";
+    } else if (!(rawType.getKind() == TypeKind.BOOLEAN && fieldName.startsWith("is"))) {
+      String capitalized = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+      ExecutableElement reader = null;
+      if (rawType.getKind() == TypeKind.BOOLEAN) {
+        reader = findMethod(type, "is" + capitalized, null);
+      }
+      if (null == reader) {
+        reader = findMethod(type, "get" + capitalized, null);
+      }
+      if (null != reader) {
+        field.mReader = reader.getSimpleName() + "()";
+      }
+      if (null != findMethod(type, "set" + capitalized, rawType)) {
+        field.mWriter = "set" + capitalized + "(%s)";
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * 查找 type (含父类) 中生成的类可以调用的实例方法
+   *
+   * @param parameterType 为 null 时查找有返回值的无参方法, 否则查找参数类型(擦除后)相同的单参数方法
+   */
+  private ExecutableElement findMethod(TypeElement type, String name, TypeMirror parameterType) {
+    for (ExecutableElement method : ElementFilter.methodsIn(mElements.getAllMembers(type))) {
+      if (!method.getSimpleName().contentEquals(name)
+          || method.getModifiers().contains(Modifier.STATIC) || !isAccessible(method, type)) {
+        continue;
+      }
+      List<? extends VariableElement> parameters = method.getParameters();
+      if (null == parameterType ? parameters.isEmpty()
+          && method.getReturnType().getKind() != TypeKind.VOID
+          : parameters.size() == 1 && mTypes.isSameType(
+              mTypes.erasure(parameters.get(0).asType()), parameterType)) {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  private boolean hasNoArgConstructor(TypeElement type) {
+    for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+      if (constructor.getParameters().isEmpty() && isAccessible(constructor, type)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 生成的类与实体在同一个包中
+   */
+  private boolean isAccessible(Element member, TypeElement type) {
+    Set<Modifier> modifiers = member.getModifiers();
+    return modifiers.contains(Modifier.PUBLIC) || (!modifiers.contains(Modifier.PRIVATE)
+        && mElements.getPackageOf(member).equals(mElements.getPackageOf(type)));
+  }
+
+  /**
+   * 生成的类需要通过无参构造器创建 type 的实例
+   *
+   * @param type 实体或选项/转换器/校验器类
+   * @param target 出错时标记的位置
+   */
+  private boolean checkAccessible(TypeElement type, Element target) {
+    boolean accessible = !type.getModifiers().contains(Modifier.ABSTRACT);
+    String packageName = mElements.getPackageOf(type).getQualifiedName().toString();
+    String targetPackageName = mElements.getPackageOf(target).getQualifiedName().toString();
+    for (Element element = type; element instanceof TypeElement;
+        element = element.getEnclosingElement()) {
+      Set<Modifier> modifiers = element.getModifiers();
+      if (modifiers.contains(Modifier.PRIVATE)
+          || (!modifiers.contains(Modifier.PUBLIC) && !packageName.equals(targetPackageName))
+          || (element.getEnclosingElement() instanceof TypeElement
+          && !modifiers.contains(Modifier.STATIC))) {
+        accessible = false;
+      }
+    }
+    if (!accessible) {
+      mMessager.printMessage(Diagnostic.Kind.ERROR, "[" + type.getQualifiedName()
+          + "] must be an accessible, non-abstract top-level or static nested class.", target);
+    }
+    return accessible;
+  }
+
+  /**
+   * XML 映射文件名即实体类名 (excel-mapping/com.example.User.xml)
+   */
+  private void addXmlMappings() {
+    String directory = processingEnv.getOptions().get(XML_MAPPING_DIR_OPTION);
+    if (null == directory) {
+      return;
+    }
+    File[] files = new File(directory).listFiles();
+    if (null == files) {
+      mMessager.printMessage(Diagnostic.Kind.WARNING,
+          XML_MAPPING_DIR_OPTION + " [" + directory + "] is not a directory.");
+      return;
+    }
+    Arrays.sort(files);
+    for (File file : files) {
+      if (file.isFile() && file.getName().endsWith(".xml")) {
+        mIndex.add(file.getName().substring(0, file.getName().length() - ".xml".length()));
+      }
+    }
+  }
+
+  private void writeResource(String name, Set<String> lines) {
+    Set<String> entries = new LinkedHashSet<String>();
+    try {
+      // 增量编译时保留上次生成的条目
+      FileObject existing = mFiler.getResource(StandardLocation.CLASS_OUTPUT, "", name);
+      BufferedReader reader = new BufferedReader(
+          new InputStreamReader(existing.openInputStream(), "UTF-8"));
+      try {
+        String line;
+        while (null != (line = reader.readLine())) {
+          if (!line.trim().isEmpty()) {
+            entries.add(line.trim());
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (IOException e) {
+      // 首次编译, 文件不存在
+    }
+    entries.addAll(lines);
+    try {
+      FileObject file = mFiler.createResource(StandardLocation.CLASS_OUTPUT, "", name);
+      Writer writer = file.openWriter();
+      try {
+        for (String entry : entries) {
+          writer.write(entry);
+          writer.write('\n');
+        }
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      mMessager.printMessage(Diagnostic.Kind.ERROR,
+          "Write " + name + " failed: " + e.getMessage());
+    }
+  }
+
+  private AnnotationMirror getAnnotation(Element element, String annotationName) {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName()
+          .contentEquals(annotationName)) {
+        return mirror;
+      }
+    }
+    return null;
+  }
+
+  private Map<String, AnnotationValue> getValues(AnnotationMirror mirror) {
+    Map<String, AnnotationValue> values = new java.util.HashMap<String, AnnotationValue>();
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+        : mElements.getElementValuesWithDefaults(mirror).entrySet()) {
+      values.put(entry.getKey().getSimpleName().toString(), entry.getValue());
+    }
+    return values;
+  }
+
+  private String newInstance(Map<String, AnnotationValue> values, String name) {
+    TypeElement element = (TypeElement) mTypes
+        .asElement((TypeMirror) values.get(name).getValue());
+    return element.getQualifiedName().contentEquals(EXCEL_FIELD_VOID) ? "null"
+        : "new " + element.getQualifiedName() + "()";
+  }
+
+  private String literal(String value) {
+    return mElements.getConstantExpression(value);
+  }
+
+  private static String stringValue(Map<String, AnnotationValue> values, String name) {
+    return (String) values.get(name).getValue();
+  }
+
+  /**
+   * 与 ConverterExp#compile 的校验规则一致
+   */
+  private static boolean isValidConverterExp(String expression) {
+    for (String item : expression.split(",")) {
+      if (item.split("=").length < 2) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String getFlatName(TypeElement type) {
+    StringBuilder name = new StringBuilder(type.getSimpleName());
+    for (Element element = type.getEnclosingElement(); !(element instanceof PackageElement);
+        element = element.getEnclosingElement()) {
+      name.insert(0, element.getSimpleName() + "_");
+    }
+    return name.toString();
+  }
+
+  private class FieldInfo {
+
+    private final VariableElement mField;
+    private final Map<String, AnnotationValue> mValues;
+    private final String mName;
+    private final String mColumn;
+    private String mRawType;
+    private String mBoxedType;
+    /**
+     * 读取属性的表达式, 为 null 时使用 BeanUtils
+     */
+    private String mReader;
+    /**
+     * 设置属性的表达式模板(%s 为值), 为 null 时使用 BeanUtils
+     */
+    private String mWriter;
+
+    FieldInfo(VariableElement field, Map<String, AnnotationValue> values) {
+      mField = field;
+      mValues = values;
+      String fieldName = field.getSimpleName().toString();
+      String name = stringValue(values, "name");
+      String column = stringValue(values, "value");
+      mName = name.isEmpty() ? fieldName : name;
+      mColumn = column.isEmpty() ? fieldName : column;
+    }
+  }
+}
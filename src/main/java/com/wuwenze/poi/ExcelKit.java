@@ -15,23 +15,49 @@
 
 package com.wuwenze.poi;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.wuwenze.poi.cache.ExcelTemplateCache;
+import com.wuwenze.poi.config.ExcelErrorPolicy;
+import com.wuwenze.poi.config.ExcelWriterConfig;
+import com.wuwenze.poi.datasource.ExcelDataSource;
+import com.wuwenze.poi.datasource.ListDataSource;
+import com.wuwenze.poi.exception.ExcelKitCancelledException;
 import com.wuwenze.poi.exception.ExcelKitRuntimeException;
 import com.wuwenze.poi.factory.ExcelMappingFactory;
 import com.wuwenze.poi.handler.ExcelReadHandler;
+import com.wuwenze.poi.pojo.ExcelErrorSummary;
 import com.wuwenze.poi.pojo.ExcelMapping;
 import com.wuwenze.poi.util.Const;
+import com.wuwenze.poi.metrics.ExcelMetricsListener;
+import com.wuwenze.poi.metrics.ExcelTracer;
+import com.wuwenze.poi.metrics.ExcelTracing;
+import com.wuwenze.poi.metrics.ExcelWriteMetrics;
+import com.wuwenze.poi.progress.ExcelProgress;
 import com.wuwenze.poi.util.POIUtil;
+import com.wuwenze.poi.xlsx.ExcelXlsxDirectWriter;
+import com.wuwenze.poi.xlsx.ExcelXlsxErrorWorkbook;
 import com.wuwenze.poi.xlsx.ExcelXlsxReader;
+import com.wuwenze.poi.xlsx.ExcelXlsxStyleRegistry;
 import com.wuwenze.poi.xlsx.ExcelXlsxWriter;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
 import java.net.URLEncoder;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author wuwenze
@@ -40,9 +66,22 @@ import java.util.Map;
 public class ExcelKit {
 
   private Class<?> mClass = null;
+  private HttpServletRequest mRequest = null;
   private HttpServletResponse mResponse = null;
   private OutputStream mOutputStream = null;
   private Integer mMaxSheetRecords = 50000;
+  private ExcelWriterConfig mWriterConfig = new ExcelWriterConfig();
+  private ExcelMapping mExcelMapping = null;
+  private ExcelTemplateCache mTemplateCache = ExcelTemplateCache.getDefault();
+  private ExcelMetricsListener mMetricsListener = ExcelMetricsListener.NOOP;
+  private ExcelProgress mProgress = null;
+  private ExcelErrorPolicy mErrorPolicy = null;
+  private ExcelErrorSummary mErrorSummary = null;
+  private OutputStream mErrorOutputStream = null;
+  private boolean mErrorWorkbookAllRows = false;
+  private ExcelXlsxErrorWorkbook mErrorWorkbook = null;
+  private boolean mDryRun = false;
+  private String mValidatedChecksum = null;
   private String mCurrentOptionMode = ExcelKit.MODE_EXPORT;
   private final static String MODE_EXPORT = "$MODE_EXPORT$";
   private final static String MODE_BUILD = "$MODE_BUILD$";
@@ -60,21 +99,104 @@ public class ExcelKit {
     return new ExcelKit(clazz, response);
   }
 
+  /**
+   * 使用此构造器来执行浏览器导出, 导出模板时支持 If-None-Match.
+   * 每次请求都会重新生成文件, 不支持 Range 断点续传, 需要时请使用 ExcelExportJobManager 的下载句柄
+   *
+   * @param clazz 导出实体对象
+   * @param request 原生 request 对象, 用于读取 If-None-Match 请求头
+   * @param response 原生 response 对象, 用于响应浏览器下载
+   * @return ExcelKit obj.
+   * @see ExcelKit#downXlsx(List, boolean)
+   */
+  public static ExcelKit $Export(Class<?> clazz, HttpServletRequest request,
+      HttpServletResponse response) {
+    ExcelKit excelKit = new ExcelKit(clazz, response);
+    excelKit.mRequest = request;
+    return excelKit;
+  }
+
   public void downXlsx(List<?> data, boolean isTemplate) {
     if (!mCurrentOptionMode.equals(ExcelKit.MODE_EXPORT)) {
       throw new ExcelKitRuntimeException(
           "请使用com.wuwenze.poi.ExcelKit.$Export(Class<?> clazz, HttpServletResponse response)构造器初始化参数.");
     }
     try {
-      ExcelMapping excelMapping = ExcelMappingFactory.get(mClass);
-      ExcelXlsxWriter excelXlsxWriter = new ExcelXlsxWriter(excelMapping, mMaxSheetRecords);
-      SXSSFWorkbook workbook = excelXlsxWriter.generateXlsxWorkbook(data, isTemplate);
-      String fileName = isTemplate ? (excelMapping.getName() + "-导入模板.xlsx") : (excelMapping.getName() + "-导出结果.xlsx");
-      POIUtil.download(workbook, mResponse, URLEncoder.encode(fileName, Const.ENCODING));
+      downloadXlsx(Collections.<Class<?>, List<?>>singletonMap(mClass, data), isTemplate);
+    } catch (ExcelKitCancelledException e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new ExcelKitRuntimeException("downXlsx error", e);
+    }
+  }
+
+  /**
+   * 将多个实体的数据导出到同一个文件中并响应浏览器下载, 文件名取第一个实体的配置
+   *
+   * @param dataList 实体 =&gt; 数据集
+   * @param isTemplate 是否是导出模板
+   */
+  public void downXlsx(Map<Class<?>, List<?>> dataList, boolean isTemplate) {
+    if (!mCurrentOptionMode.equals(ExcelKit.MODE_EXPORT) || null == mResponse) {
+      throw new ExcelKitRuntimeException(
+          "请使用com.wuwenze.poi.ExcelKit.$Export(HttpServletResponse response)构造器初始化参数.");
+    }
+    try {
+      downloadXlsx(dataList, isTemplate);
+    } catch (ExcelKitCancelledException e) {
+      throw e;
     } catch (Throwable e) {
       throw new ExcelKitRuntimeException("downXlsx error", e);
     }
   }
+
+  /**
+   * 响应浏览器下载. 开启 spillToTempFile 时先将文件完整写入临时文件(写入结束即释放 workbook),
+   * 再将临时文件传输给客户端, 避免慢速客户端长时间占用 workbook 及其临时文件.
+   * 不含数据的模板从模板缓存中读取, 并支持 ETag/If-None-Match.
+   */
+  private void downloadXlsx(Map<Class<?>, List<?>> dataList, boolean isTemplate)
+      throws IOException {
+    String fileName = getFileName(dataList, isTemplate);
+    String encodedFileName = URLEncoder.encode(fileName, Const.ENCODING);
+    String templateKey = getTemplateKey(dataList, isTemplate);
+    if (null != templateKey) {
+      String eTag = "\"" + templateKey + "\"";
+      if (POIUtil.notModified(eTag, mRequest, mResponse)) {
+        return;
+      }
+      POIUtil.download(getTemplate(templateKey, dataList), eTag, mResponse, encodedFileName);
+      return;
+    }
+    Map<Class<?>, ExcelDataSource> dataSources = ExcelKit.toDataSources(dataList);
+    if (!mWriterConfig.isSpillToTempFile()) {
+      mResponse.setContentType(Const.XLSX_CONTENT_TYPE);
+      mResponse.setHeader(Const.XLSX_HEADER_KEY,
+          String.format(Const.XLSX_HEADER_VALUE_TEMPLATE, encodedFileName));
+      OutputStream outputStream = mResponse.getOutputStream();
+      try {
+        writeXlsx(dataSources, isTemplate, mProgress, outputStream);
+        outputStream.flush();
+      } finally {
+        outputStream.close();
+      }
+      return;
+    }
+    File tempFile = POIUtil.createTempFile(mWriterConfig.getTempDirectory());
+    try {
+      OutputStream outputStream = new FileOutputStream(tempFile);
+      try {
+        writeXlsx(dataSources, isTemplate, mProgress, outputStream);
+      } finally {
+        outputStream.close();
+      }
+      // 每次请求重新生成的文件没有稳定的 ETag, 总是完整返回, 避免客户端拼接不同次生成的区间
+      POIUtil.download(tempFile, null, mResponse, encodedFileName);
+    } finally {
+      tempFile.delete();
+    }
+  }
+
   public static ExcelKit $Export(HttpServletResponse response) {
     return new ExcelKit(response);
   }
@@ -89,26 +211,183 @@ public class ExcelKit {
               "请使用com.wuwenze.poi.ExcelKit.$Export(Class<?> clazz, HttpServletResponse response)构造器初始化参数.");
     }
     try {
-      SXSSFWorkbook workbook = POIUtil.newSXSSFWorkbook();
-      String fileName = "";
-    for(Map.Entry<Class<?>,List<?>> entry : dataList.entrySet()) {
-      mClass = entry.getKey();
-      List<?>  data = entry.getValue();
-      ExcelMapping excelMapping = ExcelMappingFactory.get(mClass);
-      ExcelXlsxWriter excelXlsxWriter = new ExcelXlsxWriter(excelMapping, mMaxSheetRecords);
-      excelXlsxWriter.generateXlsxWorkbook(workbook,data, isTemplate);
-      if(fileName.equals("") ||fileName.length()==0) { //默认取第一个
-        fileName = isTemplate ? (excelMapping.getName() + "-导入模板.xlsx") : (excelMapping.getName() + "-导出结果.xlsx");
-      }
-    }
       ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-      workbook.write(outputStream);
+      String templateKey = getTemplateKey(dataList, isTemplate);
+      if (null != templateKey) {
+        outputStream.write(getTemplate(templateKey, dataList));
+        return outputStream;
+      }
+      writeXlsx(ExcelKit.toDataSources(dataList), isTemplate, mProgress, outputStream);
       return outputStream;
+    } catch (ExcelKitCancelledException e) {
+      throw e;
     } catch (Throwable e) {
       throw new ExcelKitRuntimeException("downXlsx error", e);
     }
   }
 
+  /**
+   * 按 ExcelWriterConfig#engine 将多个实体的数据写入同一个文件, 写入结束后关闭所有数据源
+   */
+  private void writeXlsx(Map<Class<?>, ExcelDataSource> dataSources, boolean isTemplate,
+      ExcelProgress progress, OutputStream outputStream) throws IOException {
+    if (null != progress) {
+      outputStream = new ProgressOutputStream(outputStream, progress);
+    }
+    if (mMetricsListener == ExcelMetricsListener.NOOP && !ExcelTracing.isEnabled()) {
+      generateXlsx(dataSources, isTemplate, progress, outputStream);
+      return;
+    }
+    // 行数与 sheet 数由进度统计, 调用方传入的进度可能已被使用过, 只计算本次的增量
+    ExcelProgress counter = null != progress ? progress : new ExcelProgress();
+    long rows = counter.getRows();
+    int sheets = counter.getSheets();
+    CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+    long start = System.nanoTime();
+    ExcelTracer.Span span = ExcelTracing.start(
+        isTemplate ? ExcelTracer.Kind.TEMPLATE : ExcelTracer.Kind.EXPORT, getType(dataSources),
+        null);
+    try {
+      generateXlsx(dataSources, isTemplate, counter, countingOutputStream);
+    } finally {
+      span.end(counter.getRows() - rows, countingOutputStream.getCount());
+      if (mMetricsListener != ExcelMetricsListener.NOOP) {
+        onWrite(dataSources, isTemplate, counter, rows, sheets, countingOutputStream, start);
+      }
+    }
+  }
+
+  private void onWrite(Map<Class<?>, ExcelDataSource> dataSources, boolean isTemplate,
+      ExcelProgress counter, long rows, int sheets, CountingOutputStream countingOutputStream,
+      long start) {
+    ExcelWriteMetrics metrics = new ExcelWriteMetrics();
+    metrics.setType(getType(dataSources));
+    metrics.setTemplate(isTemplate);
+    metrics.setRows(counter.getRows() - rows);
+    metrics.setSheets(counter.getSheets() - sheets);
+    metrics.setSheetRollovers(Math.max(0, metrics.getSheets() - dataSources.size()));
+    metrics.setBytesWritten(countingOutputStream.getCount());
+    metrics.setTotalNanos(System.nanoTime() - start);
+    mMetricsListener.onWrite(metrics);
+  }
+
+  private void generateXlsx(Map<Class<?>, ExcelDataSource> dataSources, boolean isTemplate,
+      ExcelProgress progress, OutputStream outputStream) throws IOException {
+    try {
+      if (mWriterConfig.getEngine() == ExcelWriterConfig.Engine.DIRECT && !isTemplate) {
+        int parallelism = mWriterConfig.getParallelism();
+        ExecutorService executor = parallelism > 1 ? getExecutor() : null;
+        ExcelXlsxDirectWriter directWriter = new ExcelXlsxDirectWriter(outputStream,
+            mWriterConfig.getCompressionLevel(),
+            mWriterConfig.isParallelDeflate() ? executor : null, parallelism);
+        for (Map.Entry<Class<?>, ExcelDataSource> entry : dataSources.entrySet()) {
+          ExcelMapping excelMapping = getExcelMapping(entry.getKey());
+          ExcelXlsxWriter excelXlsxWriter = new ExcelXlsxWriter(excelMapping, mMaxSheetRecords)
+              .setType(entry.getKey());
+          if (null != executor && entry.getValue() instanceof ListDataSource) {
+            excelXlsxWriter.generateXlsx(directWriter,
+                ((ListDataSource) entry.getValue()).getData(), executor, parallelism, progress);
+          } else {
+            excelXlsxWriter.generateXlsx(directWriter, entry.getValue(), progress);
+          }
+        }
+        ExcelTracer.Span span = ExcelTracing.start(ExcelTracer.Kind.ZIP_FINISH,
+            getType(dataSources), null);
+        long bytes = ExcelKit.getCount(outputStream);
+        try {
+          directWriter.finish();
+        } finally {
+          span.end(0, ExcelKit.getCount(outputStream) - bytes);
+        }
+        return;
+      }
+      SXSSFWorkbook workbook = POIUtil.newSXSSFWorkbook(mWriterConfig);
+      try {
+        ExcelXlsxStyleRegistry styleRegistry = new ExcelXlsxStyleRegistry(workbook);
+        for (Map.Entry<Class<?>, ExcelDataSource> entry : dataSources.entrySet()) {
+          ExcelMapping excelMapping = getExcelMapping(entry.getKey());
+          new ExcelXlsxWriter(excelMapping, mMaxSheetRecords, styleRegistry,
+              mWriterConfig.isOptionsLookupSheet())
+              .setType(entry.getKey())
+              .generateXlsxWorkbook(workbook, entry.getValue(), isTemplate, progress);
+        }
+        ExcelTracer.Span span = ExcelTracing.start(ExcelTracer.Kind.ZIP_FINISH,
+            getType(dataSources), null);
+        long bytes = ExcelKit.getCount(outputStream);
+        try {
+          workbook.write(outputStream);
+        } finally {
+          span.end(0, ExcelKit.getCount(outputStream) - bytes);
+        }
+      } finally {
+        workbook.dispose();
+      }
+    } finally {
+      for (ExcelDataSource dataSource : dataSources.values()) {
+        dataSource.close();
+      }
+    }
+  }
+
+  /**
+   * @return ExcelWriterConfig 中的线程池, 未设置时使用共享线程池
+   */
+  private ExecutorService getExecutor() {
+    ExecutorService executor = mWriterConfig.getExecutor();
+    return null != executor ? executor : SharedExecutorHolder.EXECUTOR;
+  }
+
+  /**
+   * 并行导出共享的线程池, 首次使用时创建: 线程数不超过 CPU 核数, 空闲线程 60 秒后回收
+   */
+  private static class SharedExecutorHolder {
+
+    private static final ExecutorService EXECUTOR = newSharedExecutor();
+
+    private static ExecutorService newSharedExecutor() {
+      int threads = Runtime.getRuntime().availableProcessors();
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+          60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactoryBuilder().setNameFormat("excelkit-sheet-%d").setDaemon(true).build());
+      executor.allowCoreThreadTimeOut(true);
+      return executor;
+    }
+  }
+
+  /**
+   * @return 第一个实体, 用于统计与追踪
+   */
+  private static Class<?> getType(Map<Class<?>, ?> dataSources) {
+    return dataSources.isEmpty() ? null : dataSources.keySet().iterator().next();
+  }
+
+  /**
+   * @return 已写入的字节数, 输出流未计数时为 0
+   */
+  private static long getCount(OutputStream outputStream) {
+    return outputStream instanceof CountingOutputStream
+        ? ((CountingOutputStream) outputStream).getCount() : 0;
+  }
+
+  private static Map<Class<?>, ExcelDataSource> toDataSources(Map<Class<?>, List<?>> dataList) {
+    Map<Class<?>, ExcelDataSource> dataSources = Maps.newLinkedHashMap();
+    for (Map.Entry<Class<?>, List<?>> entry : dataList.entrySet()) {
+      dataSources.put(entry.getKey(), new ListDataSource(entry.getValue()));
+    }
+    return dataSources;
+  }
+
+  /**
+   * 文件名取第一个实体的配置
+   */
+  private String getFileName(Map<Class<?>, ?> dataSources, boolean isTemplate) {
+    if (dataSources.isEmpty()) {
+      return isTemplate ? "导入模板.xlsx" : "导出结果.xlsx";
+    }
+    ExcelMapping excelMapping = getExcelMapping(dataSources.keySet().iterator().next());
+    return isTemplate ? (excelMapping.getName() + "-导入模板.xlsx") : (excelMapping.getName() + "-导出结果.xlsx");
+  }
+
 
   /**
    * 使用此构造器来执行构建文件流.
@@ -127,11 +406,36 @@ public class ExcelKit {
       throw new ExcelKitRuntimeException(
           "请使用com.wuwenze.poi.ExcelKit.$Builder(Class<?> clazz, OutputStream outputStream)构造器初始化参数.");
     }
-    ExcelMapping excelMapping = ExcelMappingFactory.get(mClass);
-    ExcelXlsxWriter excelXlsxWriter = new ExcelXlsxWriter(excelMapping,
-        mMaxSheetRecords);
-    SXSSFWorkbook workbook = excelXlsxWriter.generateXlsxWorkbook(data, isTemplate);
-    POIUtil.write(workbook, mOutputStream);
+    writeXlsx(new ListDataSource(data), isTemplate, mProgress);
+  }
+
+  /**
+   * 从数据源逐行写入输出流, 写入结束后关闭数据源与输出流
+   *
+   * @param dataSource 数据源
+   * @param progress 进度, 为 null 时使用 {@link #setProgress(ExcelProgress)} 设置的进度
+   * @throws com.wuwenze.poi.exception.ExcelKitCancelledException 导出被取消
+   */
+  public void writeXlsx(ExcelDataSource dataSource, ExcelProgress progress) {
+    if (!mCurrentOptionMode.equals(ExcelKit.MODE_BUILD)) {
+      throw new ExcelKitRuntimeException(
+          "请使用com.wuwenze.poi.ExcelKit.$Builder(Class<?> clazz, OutputStream outputStream)构造器初始化参数.");
+    }
+    writeXlsx(dataSource, false, null != progress ? progress : mProgress);
+  }
+
+  private void writeXlsx(ExcelDataSource dataSource, boolean isTemplate, ExcelProgress progress) {
+    try {
+      try {
+        writeXlsx(Collections.<Class<?>, ExcelDataSource>singletonMap(mClass, dataSource),
+            isTemplate, progress, mOutputStream);
+        mOutputStream.flush();
+      } finally {
+        mOutputStream.close();
+      }
+    } catch (IOException e) {
+      throw new ExcelKitRuntimeException("writeXlsx error", e);
+    }
   }
 
   /**
@@ -156,8 +460,18 @@ public class ExcelKit {
   public void readXlsx(File excelFile, Integer sheetIndex,
       ExcelReadHandler<?> excelReadHandler) {
     try {
-      InputStream inputStream = new FileInputStream(excelFile);
-      readXlsx(inputStream, sheetIndex, excelReadHandler);
+      ExcelXlsxReader excelXlsxReader = newExcelXlsxReader(excelReadHandler);
+      try {
+        if (sheetIndex >= 0) {
+          excelXlsxReader.process(excelFile, sheetIndex);
+          return;
+        }
+        excelXlsxReader.process(excelFile);
+      } finally {
+        finishErrorWorkbook();
+      }
+    } catch (ExcelKitCancelledException e) {
+      throw e;
     } catch (Throwable e) {
       throw new ExcelKitRuntimeException("readXlsx error", e);
     }
@@ -169,18 +483,94 @@ public class ExcelKit {
 
   public void readXlsx(InputStream inputStream, Integer sheetIndex,
       ExcelReadHandler<?> excelReadHandler) {
+    ExcelXlsxReader excelXlsxReader = newExcelXlsxReader(excelReadHandler);
+    try {
+      if (sheetIndex >= 0) {
+        excelXlsxReader.process(inputStream, sheetIndex);
+        return;
+      }
+      excelXlsxReader.process(inputStream);
+    } finally {
+      finishErrorWorkbook();
+    }
+  }
+
+  /**
+   * 仅校验(dry-run): 匹配表头并执行全部校验与类型转换, 但不创建实体也不回调 ExcelReadHandler.
+   * 未设置错误策略时使用默认策略(不限制失败行数), 可与 setErrorWorkbook 一起使用.
+   *
+   * @return 错误汇总; 没有失败的行时 getValidatedChecksum() 为内容校验和, 可传给之后导入的
+   * {@link #setValidatedChecksum(String)} 以跳过重复校验
+   */
+  public ExcelErrorSummary validateXlsx(File excelFile) {
+    return validateXlsx(excelFile, -1);
+  }
+
+  /**
+   * @see #validateXlsx(File)
+   */
+  public ExcelErrorSummary validateXlsx(File excelFile, Integer sheetIndex) {
+    mDryRun = true;
+    try {
+      readXlsx(excelFile, sheetIndex, null);
+      return mErrorSummary;
+    } finally {
+      mDryRun = false;
+    }
+  }
+
+  /**
+   * @see #validateXlsx(File)
+   */
+  public ExcelErrorSummary validateXlsx(InputStream inputStream) {
+    return validateXlsx(inputStream, -1);
+  }
+
+  /**
+   * @see #validateXlsx(File)
+   */
+  public ExcelErrorSummary validateXlsx(InputStream inputStream, Integer sheetIndex) {
+    mDryRun = true;
+    try {
+      readXlsx(inputStream, sheetIndex, null);
+      return mErrorSummary;
+    } finally {
+      mDryRun = false;
+    }
+  }
+
+  private ExcelXlsxReader newExcelXlsxReader(ExcelReadHandler<?> excelReadHandler) {
     if (!mCurrentOptionMode.equals(ExcelKit.MODE_IMPORT)) {
       throw new ExcelKitRuntimeException(
           "请使用com.wuwenze.poi.ExcelKit.$Import(Class<?> clazz)构造器初始化参数.");
     }
-    ExcelMapping excelMapping = ExcelMappingFactory.get(mClass);
-    ExcelXlsxReader excelXlsxReader = new ExcelXlsxReader(mClass, excelMapping,
-        excelReadHandler);
-    if (sheetIndex >= 0) {
-      excelXlsxReader.process(inputStream, sheetIndex);
+    ExcelMapping excelMapping = getExcelMapping(mClass);
+    ExcelXlsxReader excelXlsxReader = new ExcelXlsxReader(mClass, excelMapping, excelReadHandler)
+        .setMetricsListener(mMetricsListener).setProgress(mProgress)
+        .setErrorPolicy(null == mErrorPolicy && mDryRun ? new ExcelErrorPolicy() : mErrorPolicy)
+        .setDryRun(mDryRun).setValidatedChecksum(mValidatedChecksum);
+    mErrorSummary = excelXlsxReader.getErrorSummary();
+    if (null != mErrorOutputStream) {
+      mErrorWorkbook = new ExcelXlsxErrorWorkbook(mErrorOutputStream, mErrorWorkbookAllRows);
+      excelXlsxReader.setErrorWorkbook(mErrorWorkbook);
+    }
+    return excelXlsxReader;
+  }
+
+  /**
+   * 导入结束(或停止)后写完错误工作簿, 此时已写入的行仍然有效
+   */
+  private void finishErrorWorkbook() {
+    if (null == mErrorWorkbook) {
       return;
     }
-    excelXlsxReader.process(inputStream);
+    try {
+      mErrorWorkbook.finish();
+    } catch (IOException e) {
+      throw new ExcelKitRuntimeException("Failed to write the error workbook.", e);
+    } finally {
+      mErrorWorkbook = null;
+    }
   }
 
   public ExcelKit setMaxSheetRecords(Integer mMaxSheetRecords) {
@@ -188,6 +578,185 @@ public class ExcelKit {
     return this;
   }
 
+  /**
+   * 设置导出写入配置(内存行数、临时文件压缩及目录、共享字符串表)
+   *
+   * @param writerConfig 写入配置
+   * @return ExcelKit obj.
+   * @see ExcelWriterConfig
+   */
+  public ExcelKit setWriterConfig(ExcelWriterConfig writerConfig) {
+    this.mWriterConfig = writerConfig;
+    return this;
+  }
+
+  /**
+   * 使用指定的映射代替实体类的注解/XML 配置, 导入与导出均生效
+   *
+   * @param excelMapping 映射配置, 见 ExcelMappingBuilder
+   * @return ExcelKit obj.
+   * @see com.wuwenze.poi.factory.ExcelMappingBuilder
+   */
+  public ExcelKit setExcelMapping(ExcelMapping excelMapping) {
+    this.mExcelMapping = excelMapping;
+    return this;
+  }
+
+  /**
+   * 只导入/导出实体的部分列, 并按指定顺序排列
+   *
+   * @param names 属性名
+   * @return ExcelKit obj.
+   * @see ExcelMappingFactory#view(Class, String...)
+   */
+  public ExcelKit setColumns(String... names) {
+    return setExcelMapping(ExcelMappingFactory.view(mClass, names));
+  }
+
+  private ExcelMapping getExcelMapping(Class<?> clazz) {
+    return null != mExcelMapping && clazz == mClass ? mExcelMapping
+        : ExcelMappingFactory.get(clazz);
+  }
+
+  /**
+   * 设置导入模板缓存, 默认使用全局缓存
+   *
+   * @param templateCache 模板缓存, 为 null 时每次重新生成模板
+   * @return ExcelKit obj.
+   * @see ExcelTemplateCache#getDefault()
+   */
+  public ExcelKit setTemplateCache(ExcelTemplateCache templateCache) {
+    this.mTemplateCache = templateCache;
+    return this;
+  }
+
+  /**
+   * 设置导入/导出统计, 默认不统计
+   *
+   * @param metricsListener 统计回调, 为 null 时不统计
+   * @return ExcelKit obj.
+   * @see com.wuwenze.poi.metrics.ExcelMetricsAggregator
+   */
+  public ExcelKit setMetricsListener(ExcelMetricsListener metricsListener) {
+    this.mMetricsListener = null != metricsListener ? metricsListener : ExcelMetricsListener.NOOP;
+    return this;
+  }
+
+  /**
+   * 设置导入/导出进度, 可在其他线程中读取进度或通过 ExcelProgress#cancel() 取消.
+   * 取消后在处理下一行前停止, 释放 OPCPackage、SXSSF 临时文件及输出流, 并抛出 ExcelKitCancelledException.
+   *
+   * @param progress 进度, 为 null 时不统计
+   * @return ExcelKit obj.
+   * @see ExcelProgress
+   */
+  public ExcelKit setProgress(ExcelProgress progress) {
+    this.mProgress = progress;
+    return this;
+  }
+
+  /**
+   * 设置导入的错误策略: 失败行达到阈值时停止并抛出 ExcelKitErrorThresholdException,
+   * 错误汇总可在导入结束(或停止)后通过 {@link #getErrorSummary()} 获取
+   *
+   * @param errorPolicy 错误策略, 为 null 时不汇总错误
+   * @return ExcelKit obj.
+   * @see ExcelErrorPolicy
+   */
+  public ExcelKit setErrorPolicy(ExcelErrorPolicy errorPolicy) {
+    this.mErrorPolicy = errorPolicy;
+    return this;
+  }
+
+  /**
+   * 导入的同时生成错误工作簿: 保留原表头与单元格的值, 校验失败的单元格标红, 并在最后一列写入错误信息.
+   * 逐行写入输出流, 内存占用与错误行数无关; 修正后可直接重新导入. 输出流在导入结束后不会关闭.
+   *
+   * @param outputStream 错误工作簿的输出流, 为 null 时不生成
+   * @param allRows true: 写入所有行; false: 只写入失败的行
+   * @return ExcelKit obj.
+   * @see ExcelXlsxErrorWorkbook
+   */
+  public ExcelKit setErrorWorkbook(OutputStream outputStream, boolean allRows) {
+    this.mErrorOutputStream = outputStream;
+    this.mErrorWorkbookAllRows = allRows;
+    return this;
+  }
+
+  /**
+   * 设置之前仅校验时得到的内容校验和: 文件内容与导入规则都没有改变时跳过 必填/长度/下拉选项/正则 校验,
+   * 类型转换与自定义 Validator 仍然执行; 不一致时照常校验.
+   * 校验和以服务端密钥计算, 客户端无法伪造; 多实例部署时需设置相同的密钥 (ExcelXlsxReader#setChecksumKey)
+   *
+   * @param validatedChecksum {@link ExcelErrorSummary#getValidatedChecksum()}, 为 null 时照常校验
+   * @return ExcelKit obj.
+   * @see #validateXlsx(File)
+   */
+  public ExcelKit setValidatedChecksum(String validatedChecksum) {
+    this.mValidatedChecksum = validatedChecksum;
+    return this;
+  }
+
+  /**
+   * @return 最近一次导入的错误汇总, 未设置错误策略时为 null
+   */
+  public ExcelErrorSummary getErrorSummary() {
+    return mErrorSummary;
+  }
+
+  /**
+   * @return 可缓存时返回模板的 key: 导出模板、启用了缓存且没有数据; 否则返回 null
+   */
+  private String getTemplateKey(Map<Class<?>, List<?>> dataList, boolean isTemplate) {
+    if (!isTemplate || null == mTemplateCache) {
+      return null;
+    }
+    List<ExcelMapping> mappings = Lists.newArrayListWithCapacity(dataList.size());
+    for (Map.Entry<Class<?>, List<?>> entry : dataList.entrySet()) {
+      if (null != entry.getValue() && !entry.getValue().isEmpty()) {
+        return null;
+      }
+      mappings.add(getExcelMapping(entry.getKey()));
+    }
+    return ExcelTemplateCache.computeKey(mappings, mMaxSheetRecords, mWriterConfig);
+  }
+
+  private byte[] getTemplate(String templateKey, final Map<Class<?>, List<?>> dataList) {
+    return mTemplateCache.get(templateKey, new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeXlsx(ExcelKit.toDataSources(dataList), true, null, outputStream);
+        return outputStream.toByteArray();
+      }
+    });
+  }
+
+  /**
+   * 将写入输出流的字节数计入进度
+   */
+  private static class ProgressOutputStream extends FilterOutputStream {
+
+    private final ExcelProgress mProgress;
+
+    ProgressOutputStream(OutputStream out, ExcelProgress progress) {
+      super(out);
+      mProgress = progress;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      mProgress.onBytes(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      mProgress.onBytes(len);
+    }
+  }
+
   protected ExcelKit(Class<?> clazz) {
     this(clazz, null, null);
     mCurrentOptionMode = ExcelKit.MODE_IMPORT;
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.cache;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.wuwenze.poi.config.ExcelWriterConfig;
+import com.wuwenze.poi.config.Options;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.pojo.ExcelMapping;
+import com.wuwenze.poi.pojo.ExcelProperty;
+import com.wuwenze.poi.util.Const;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 导入模板缓存: 模板只与映射配置、下拉选项的值及 maxSheetRecords 有关,
+ * 以这些输入的摘要作为 key (同时作为 HTTP ETag) 缓存生成好的文件内容, 按总字节数 LRU 淘汰.
+ * <p>
+ * 每次计算 key 时都会重新调用 Options#get(), 选项数据变化后 key 随之变化, 旧模板不再命中并逐渐被淘汰.
+ *
+ * @author wuwenze
+ */
+public class ExcelTemplateCache {
+
+  /**
+   * 模板格式变化时递增, 使旧的 key (及客户端缓存的 ETag) 失效
+   */
+  private static final int TEMPLATE_FORMAT_VERSION = 1;
+  private static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+  private static final Charset UTF_8 = Charset.forName(Const.ENCODING);
+  private static final ExcelTemplateCache mDefault = new ExcelTemplateCache(DEFAULT_MAX_BYTES);
+
+  private final Cache<String, byte[]> mCache;
+
+  /**
+   * @param maxBytes 缓存的模板总字节数上限
+   */
+  public ExcelTemplateCache(long maxBytes) {
+    mCache = CacheBuilder.newBuilder()
+        .maximumWeight(maxBytes)
+        .weigher(new Weigher<String, byte[]>() {
+          @Override
+          public int weigh(String key, byte[] value) {
+            return value.length;
+          }
+        })
+        .build();
+  }
+
+  /**
+   * @return 默认的全局缓存 (16MB)
+   */
+  public static ExcelTemplateCache getDefault() {
+    return mDefault;
+  }
+
+  /**
+   * 计算模板的 key, 会调用各列的 Options#get()
+   *
+   * @param mappings 模板包含的映射配置, 按 sheet 顺序
+   * @param maxSheetRecords 数据有效性覆盖的行数
+   * @param writerConfig 写入配置, 其中共享字符串表及下拉选项的写入方式影响文件内容
+   * @return 十六进制摘要
+   */
+  public static String computeKey(List<ExcelMapping> mappings, int maxSheetRecords,
+      ExcelWriterConfig writerConfig) {
+    Hasher hasher = Hashing.sha1().newHasher()
+        .putInt(TEMPLATE_FORMAT_VERSION)
+        .putInt(maxSheetRecords)
+        .putBoolean(writerConfig.isUseSharedStringsTable())
+        .putBoolean(writerConfig.isOptionsLookupSheet())
+        .putInt(mappings.size());
+    for (ExcelMapping mapping : mappings) {
+      ExcelTemplateCache.putString(hasher, mapping.getName());
+      List<ExcelProperty> propertyList = mapping.getPropertyList();
+      hasher.putInt(propertyList.size());
+      for (ExcelProperty property : propertyList) {
+        ExcelTemplateCache.putString(hasher, property.getName());
+        ExcelTemplateCache.putString(hasher, property.getColumn());
+        ExcelTemplateCache.putString(hasher, String.valueOf(property.getRequired()));
+        ExcelTemplateCache.putString(hasher, String.valueOf(property.getWidth()));
+        ExcelTemplateCache.putString(hasher, property.getComment());
+        Options options = property.getOptions();
+        String[] values = null != options ? options.get() : null;
+        hasher.putInt(null != values ? values.length : -1);
+        if (null != values) {
+          for (String value : values) {
+            ExcelTemplateCache.putString(hasher, value);
+          }
+        }
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * 获取模板, 未命中时调用 loader 生成; 同一个 key 并发请求时只生成一次
+   *
+   * @param key computeKey() 的结果
+   * @param loader 生成模板文件内容
+   * @return 模板文件内容, 调用方不得修改
+   */
+  public byte[] get(String key, Callable<byte[]> loader) {
+    try {
+      return mCache.get(key, loader);
+    } catch (ExecutionException e) {
+      throw new ExcelKitRuntimeException("Template generation failed.", e.getCause());
+    } catch (UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * 清空缓存
+   */
+  public void invalidateAll() {
+    mCache.invalidateAll();
+  }
+
+  /**
+   * @return 当前缓存的模板数
+   */
+  public long size() {
+    return mCache.size();
+  }
+
+  private static void putString(Hasher hasher, String value) {
+    if (null == value) {
+      hasher.putInt(-1);
+      return;
+    }
+    hasher.putInt(value.length()).putString(value, UTF_8);
+  }
+}
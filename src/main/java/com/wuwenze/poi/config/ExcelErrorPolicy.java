@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.config;
+
+import com.wuwenze.poi.handler.ExcelReadExceptionHandler;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 导入时的错误处理策略: 失败行(校验错误或抛出异常)达到阈值时停止解析并抛出
+ * ExcelKitErrorThresholdException, 同时将错误汇总到 ExcelErrorSummary.
+ *
+ * @author wuwenze
+ * @see com.wuwenze.poi.pojo.ExcelErrorSummary
+ */
+@Data
+@ToString
+@NoArgsConstructor
+public class ExcelErrorPolicy {
+
+  /**
+   * 允许的最大失败行数, 超出后停止; -1 为不限制
+   */
+  private int maxErrors = -1;
+
+  /**
+   * 滑动窗口的行数, 0 为不按比例停止
+   */
+  private int windowSize = 0;
+
+  /**
+   * 最近 windowSize 行中失败行的最大比例(0 ~ 1), 超出后停止; 读满一个窗口后才开始判断
+   */
+  private double maxErrorRate = 1.0;
+
+  /**
+   * ExcelErrorSummary 中最多保存的错误单元格数, 超出后只计数
+   */
+  private int maxStoredErrors = 1000;
+
+  /**
+   * 行处理异常的回调, 为 null 时打印异常堆栈
+   */
+  private ExcelReadExceptionHandler exceptionHandler = null;
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.config;
+
+import com.wuwenze.poi.metrics.ExcelMetricsListener;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 异步导出任务配置
+ *
+ * @author wuwenze
+ */
+@Data
+@ToString
+@NoArgsConstructor
+public class ExcelExportJobConfig {
+
+  /**
+   * 导出文件的存放目录, 每个 ExcelExportJobManager 在其中创建独立的子目录, 可由多个管理器共用
+   */
+  private File storeDirectory = new File(System.getProperty("java.io.tmpdir"), "excelkit-export");
+
+  /**
+   * 同时执行的导出任务数
+   */
+  private int maxConcurrentJobs = 2;
+
+  /**
+   * 排队等待的任务数, 超出后拒绝提交 (ExcelKitJobRejectedException)
+   */
+  private int maxQueuedJobs = 16;
+
+  /**
+   * 任务结束后保留的时间(毫秒), 过期后删除导出文件
+   */
+  private long retentionMillis = TimeUnit.MINUTES.toMillis(30);
+
+  /**
+   * 单个sheet最大记录数
+   */
+  private int maxSheetRecords = 50000;
+
+  private ExcelWriterConfig writerConfig = new ExcelWriterConfig();
+
+  /**
+   * 导出统计, 默认不统计
+   */
+  private ExcelMetricsListener metricsListener = ExcelMetricsListener.NOOP;
+}
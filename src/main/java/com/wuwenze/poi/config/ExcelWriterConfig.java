@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.config;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 导出时的写入配置
+ *
+ * @author wuwenze
+ */
+@Data
+@ToString
+@NoArgsConstructor
+public class ExcelWriterConfig {
+
+  public enum Engine {
+    /**
+     * 基于 POI SXSSF, 支持导出模板(批注、下拉选项)
+     */
+    SXSSF,
+    /**
+     * 直接生成 SpreadsheetML, 不创建行/单元格对象且不产生临时文件; 导出模板时自动使用 SXSSF
+     */
+    DIRECT
+  }
+
+  /**
+   * 写入引擎
+   */
+  private Engine engine = Engine.SXSSF;
+
+  /**
+   * 内存中保留的行数, 超出后刷写到临时文件
+   */
+  private int rowAccessWindowSize = 100;
+
+  /**
+   * 是否使用 gzip 压缩临时文件 (以 CPU 换磁盘)
+   */
+  private boolean compressTempFiles = false;
+
+  /**
+   * 临时文件目录, 为 null 时使用 java.io.tmpdir
+   */
+  private File tempDirectory = null;
+
+  /**
+   * 是否使用共享字符串表 (重复字符串较多时可减小文件体积, 但会占用内存)
+   */
+  private boolean useSharedStringsTable = false;
+
+  /**
+   * 浏览器下载时先完整写入临时文件再传输 (响应带有 Content-Length),
+   * 生成结束后立即释放 workbook, 不受客户端下载速度影响
+   */
+  private boolean spillToTempFile = false;
+
+  /**
+   * 并行生成 sheet 的线程数, 仅在 DIRECT 引擎且数据为 List 时生效, 1 为单线程.
+   * 每个 sheet 在独立线程中渲染并压缩到内存, 再按顺序写入文件, 输出与单线程相同.
+   */
+  private int parallelism = 1;
+
+  /**
+   * 压缩级别, 仅在 DIRECT 引擎下生效: -1 为默认, 1(最快) ~ 9(最小), 0 为仅存储不压缩
+   * (文件较大, 适合在内网中传输或由其他程序直接读取的场景)
+   */
+  private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+  /**
+   * 是否将逐行写入的 sheet 按块并行压缩 (使用 parallelism 个线程), 仅在 DIRECT 引擎且 parallelism 大于 1
+   * 时生效, 否则忽略. 需要 Java 7 及以上, 在 Java 6 上退回单线程压缩.
+   * 适用于数据源不是 List 而无法按 sheet 并行的大 sheet; 输出是确定的, 但与单线程压缩的字节不同.
+   */
+  private boolean parallelDeflate = false;
+
+  /**
+   * 并行生成 sheet 及并行压缩使用的线程池, 导出结束后不会关闭.
+   * 为 null 时使用全局共享的线程池 (线程数不超过 CPU 核数, 空闲线程 60 秒后回收);
+   * 每次导出同时提交的任务数仍由 parallelism 限制.
+   */
+  private ExecutorService executor = null;
+
+  /**
+   * 导出模板时将下拉选项写入隐藏 sheet 并通过名称引用, 相同的选项数据只写一次.
+   * 关闭时选项直接写入数据有效性, 超出其长度限制(100 项或 255 个字符)的选项仍会使用隐藏 sheet.
+   */
+  private boolean optionsLookupSheet = false;
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.convert;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.util.ValidatorUtil;
+import java.util.Map;
+
+/**
+ * 预编译的转换表达式 (如: 1=男,2=女), 在加载 ExcelMapping 时解析一次, 读写时直接查表.
+ *
+ * @author wuwenze
+ */
+public final class ConverterExp {
+
+  private final String mExpression;
+  private final ImmutableMap<String, String> mForwardMap;
+
+  private ConverterExp(String expression, ImmutableMap<String, String> forwardMap) {
+    mExpression = expression;
+    mForwardMap = forwardMap;
+  }
+
+  /**
+   * 编译转换表达式, 重复的键以第一次出现的为准.
+   *
+   * @param expression 转换表达式, 如: 1=男,2=女
+   * @return 编译结果, 表达式为空时返回 null
+   * @throws ExcelKitRuntimeException 表达式不规范
+   */
+  public static ConverterExp compile(String expression) {
+    if (ValidatorUtil.isEmpty(expression)) {
+      return null;
+    }
+    Map<String, String> forwardMap = Maps.newLinkedHashMap();
+    for (String item : expression.split(",")) {
+      String[] itemArray = item.split("=");
+      if (itemArray.length < 2) {
+        throw new ExcelKitRuntimeException(
+            "Converter Expression error, Reference:[\"1=男,2=女\" or \"男=1,女=2\"].");
+      }
+      if (!forwardMap.containsKey(itemArray[0])) {
+        forwardMap.put(itemArray[0], itemArray[1]);
+      }
+    }
+    return new ConverterExp(expression, ImmutableMap.copyOf(forwardMap));
+  }
+
+  /**
+   * 按表达式转换, 未配置的值原样返回
+   *
+   * @param value 当前单元格的值
+   * @return 转换后的值
+   */
+  public Object convert(Object value) {
+    if (null == value) {
+      return null;
+    }
+    String convertedValue = mForwardMap.get(String.valueOf(value));
+    return null != convertedValue ? convertedValue : value;
+  }
+
+  public String getExpression() {
+    return mExpression;
+  }
+
+  @Override
+  public String toString() {
+    return mExpression;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.datasource;
+
+import com.wuwenze.poi.pojo.ExcelProperty;
+import java.io.Closeable;
+
+/**
+ * 导出数据源, 以游标方式逐行读取数据, 无需一次性将全部数据加载到内存.
+ * <p>
+ * 用法: while (dataSource.next()) { dataSource.getValue(property); }
+ *
+ * @author wuwenze
+ */
+public interface ExcelDataSource extends Closeable {
+
+  /**
+   * 移动到下一行
+   *
+   * @return 是否还有数据
+   */
+  boolean next();
+
+  /**
+   * 获取当前行指定属性的值
+   *
+   * @param property 属性配置
+   * @return 属性值, 可为 null
+   */
+  Object getValue(ExcelProperty property);
+
+  /**
+   * 释放数据源占用的资源, 导出结束(包括失败和取消)时调用, 重复调用应无副作用
+   */
+  @Override
+  void close();
+}
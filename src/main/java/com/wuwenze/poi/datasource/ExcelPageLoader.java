@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.datasource;
+
+import java.util.List;
+
+/**
+ * 分页加载导出数据, 供 PrefetchingDataSource 在后台线程中调用
+ *
+ * @author wuwenze
+ */
+public interface ExcelPageLoader {
+
+  /**
+   * 加载一页数据
+   *
+   * @param pageNo 页码, 从 0 开始
+   * @param pageSize 每页行数
+   * @return 当前页的数据, 为空或不足 pageSize 行时视为最后一页
+   * @throws Exception 加载失败, 异常会在导出线程中抛出
+   */
+  List<?> load(int pageNo, int pageSize) throws Exception;
+}
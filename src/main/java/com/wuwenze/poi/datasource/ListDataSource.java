@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.datasource;
+
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.factory.ExcelMappingFactory;
+import com.wuwenze.poi.factory.ExcelMappingProvider;
+import com.wuwenze.poi.pojo.ExcelProperty;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.beanutils.BeanUtils;
+
+/**
+ * 基于 List 的数据源, 通过 BeanUtils 读取实体属性
+ *
+ * @author wuwenze
+ */
+public class ListDataSource implements ExcelDataSource {
+
+  private final List<?> mData;
+  private int mIndex = -1;
+  private Class<?> mProviderClass = null;
+  private ExcelMappingProvider mProvider = null;
+
+  public ListDataSource(List<?> data) {
+    mData = null != data ? data : Collections.emptyList();
+  }
+
+  @Override
+  public boolean next() {
+    if (mIndex + 1 >= mData.size()) {
+      return false;
+    }
+    mIndex++;
+    return true;
+  }
+
+  @Override
+  public Object getValue(ExcelProperty property) {
+    Object bean = mData.get(mIndex);
+    try {
+      if (null != bean && bean.getClass() != mProviderClass) {
+        mProviderClass = bean.getClass();
+        mProvider = ExcelMappingFactory.getProvider(mProviderClass);
+      }
+      return null != mProvider ? mProvider.getValue(bean, property.getName())
+          : BeanUtils.getProperty(bean, property.getName());
+    } catch (Throwable e) {
+      throw new ExcelKitRuntimeException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+
+  public int size() {
+    return mData.size();
+  }
+
+  public List<?> getData() {
+    return mData;
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.datasource;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.pojo.ExcelProperty;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预取数据源: 在后台线程中加载后续页, 导出线程写入当前页的同时数据库/远程服务可以继续查询.
+ * <p>
+ * 最多缓存 pagesInFlight 页已加载但未写入的数据, 内存占用有上限. 加载失败时异常在导出线程的 next() 中抛出;
+ * 导出结束(包括失败和取消)时 close() 中断后台加载.
+ *
+ * @author wuwenze
+ */
+public class PrefetchingDataSource implements ExcelDataSource {
+
+  private static final Page END = new Page(Collections.emptyList(), null);
+
+  private final ExcelPageLoader mPageLoader;
+  private final int mPageSize;
+  private final BlockingQueue<Page> mPages;
+  private final ExecutorService mOwnedExecutor;
+  private final Future<?> mLoadFuture;
+  private ListDataSource mCurrentPage = new ListDataSource(null);
+  private boolean mFinished = false;
+  private volatile boolean mClosed = false;
+
+  /**
+   * 使用独立的后台线程加载
+   *
+   * @param pageLoader 分页加载器
+   * @param pageSize 每页行数
+   * @param pagesInFlight 最多预取的页数, 至少为 1
+   */
+  public PrefetchingDataSource(ExcelPageLoader pageLoader, int pageSize, int pagesInFlight) {
+    this(pageLoader, pageSize, pagesInFlight, null);
+  }
+
+  /**
+   * @param pageLoader 分页加载器
+   * @param pageSize 每页行数
+   * @param pagesInFlight 最多预取的页数, 至少为 1
+   * @param executor 执行加载的线程池, 为 null 时使用独立的后台线程
+   */
+  public PrefetchingDataSource(ExcelPageLoader pageLoader, int pageSize, int pagesInFlight,
+      ExecutorService executor) {
+    if (pageSize <= 0 || pagesInFlight <= 0) {
+      throw new ExcelKitRuntimeException(
+          "pageSize and pagesInFlight must be positive: " + pageSize + ", " + pagesInFlight);
+    }
+    mPageLoader = pageLoader;
+    mPageSize = pageSize;
+    mPages = new ArrayBlockingQueue<Page>(pagesInFlight);
+    mOwnedExecutor = null == executor ? Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("excelkit-prefetch-%d").setDaemon(true).build())
+        : null;
+    mLoadFuture = (null != executor ? executor : mOwnedExecutor).submit(new Runnable() {
+      @Override
+      public void run() {
+        loadPages();
+      }
+    });
+  }
+
+  @Override
+  public boolean next() {
+    while (!mCurrentPage.next()) {
+      if (mFinished || mClosed) {
+        return false;
+      }
+      Page page;
+      try {
+        page = mPages.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ExcelKitRuntimeException("Interrupted while waiting for the next page.", e);
+      }
+      if (null != page.mError) {
+        mFinished = true;
+        throw new ExcelKitRuntimeException("Load page failed.", page.mError);
+      }
+      if (page == END) {
+        mFinished = true;
+        return false;
+      }
+      mCurrentPage = new ListDataSource(page.mData);
+    }
+    return true;
+  }
+
+  @Override
+  public Object getValue(ExcelProperty property) {
+    return mCurrentPage.getValue(property);
+  }
+
+  @Override
+  public void close() {
+    if (mClosed) {
+      return;
+    }
+    mClosed = true;
+    mLoadFuture.cancel(true);
+    mPages.clear();
+    mCurrentPage = new ListDataSource(null);
+    if (null != mOwnedExecutor) {
+      mOwnedExecutor.shutdownNow();
+    }
+  }
+
+  private void loadPages() {
+    try {
+      for (int pageNo = 0; !mClosed; pageNo++) {
+        List<?> data = mPageLoader.load(pageNo, mPageSize);
+        if (null != data && !data.isEmpty() && !put(new Page(data, null))) {
+          return;
+        }
+        if (null == data || data.size() < mPageSize) {
+          put(END);
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      // close() 取消了加载
+    } catch (Throwable e) {
+      try {
+        put(new Page(null, e));
+      } catch (InterruptedException ignored) {
+        // close() 取消了加载
+      }
+    }
+  }
+
+  /**
+   * 队列已满时等待导出线程消费; 加载器吞掉了中断时也能在 close() 后退出
+   *
+   * @return 是否已放入队列
+   */
+  private boolean put(Page page) throws InterruptedException {
+    while (!mClosed) {
+      if (mPages.offer(page, 100, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static class Page {
+
+    private final List<?> mData;
+    private final Throwable mError;
+
+    Page(List<?> data, Throwable error) {
+      mData = data;
+      mError = error;
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.datasource;
+
+import com.google.common.collect.Maps;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.pojo.ExcelProperty;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 直接从 JDBC ResultSet 逐行读取的数据源, 不创建实体对象.
+ * <p>
+ * 列按标签(别名)与 ExcelProperty#name 匹配, 忽略大小写及下划线 (create_at =&gt; createAt).
+ * 日期时间类型转换为 java.util.Date (支持 dateFormat), 文本大字段读取为 String,
+ * 其余类型保持 JDBC 驱动返回的对象, 转换器照常生效.
+ * <p>
+ * 流式读取依赖驱动: MySQL 需使用 Integer.MIN_VALUE 作为 fetchSize, PostgreSQL 需关闭自动提交.
+ *
+ * @author wuwenze
+ */
+public class ResultSetDataSource implements ExcelDataSource {
+
+  private final ResultSet mResultSet;
+  private final Statement mStatement;
+  private final Map<String, Integer> mColumnIndexes = Maps.newHashMap();
+  private final int[] mColumnTypes;
+  private final Map<ExcelProperty, Integer> mPropertyColumns =
+      new IdentityHashMap<ExcelProperty, Integer>();
+  private boolean mClosed = false;
+
+  /**
+   * @param resultSet 结果集, 由数据源关闭
+   * @param fetchSize 每次从数据库获取的行数, 小于等于 0 时使用驱动的默认值
+   */
+  public ResultSetDataSource(ResultSet resultSet, int fetchSize) {
+    this(resultSet, null, fetchSize);
+  }
+
+  private ResultSetDataSource(ResultSet resultSet, Statement statement, int fetchSize) {
+    mResultSet = resultSet;
+    mStatement = statement;
+    try {
+      if (fetchSize > 0 || fetchSize == Integer.MIN_VALUE) {
+        resultSet.setFetchSize(fetchSize);
+      }
+      ResultSetMetaData metaData = resultSet.getMetaData();
+      int columnCount = metaData.getColumnCount();
+      mColumnTypes = new int[columnCount + 1];
+      for (int column = 1; column <= columnCount; column++) {
+        mColumnTypes[column] = metaData.getColumnType(column);
+        String key = ResultSetDataSource.normalize(metaData.getColumnLabel(column));
+        if (!mColumnIndexes.containsKey(key)) {
+          mColumnIndexes.put(key, column);
+        }
+      }
+    } catch (SQLException e) {
+      mClosed = true;
+      ResultSetDataSource.closeQuietly(resultSet);
+      ResultSetDataSource.closeQuietly(statement);
+      throw new ExcelKitRuntimeException("Read ResultSet metadata failed.", e);
+    }
+  }
+
+  /**
+   * 执行查询并创建数据源, 使用只进只读的游标; 数据源关闭时同时关闭 Statement (不关闭 Connection)
+   *
+   * @param connection 数据库连接
+   * @param sql 查询语句
+   * @param fetchSize 每次从数据库获取的行数, 小于等于 0 时使用驱动的默认值
+   * @param parameters 查询参数
+   * @return 数据源
+   */
+  public static ResultSetDataSource query(Connection connection, String sql, int fetchSize,
+      Object... parameters) {
+    PreparedStatement statement = null;
+    try {
+      statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+          ResultSet.CONCUR_READ_ONLY);
+      if (fetchSize > 0 || fetchSize == Integer.MIN_VALUE) {
+        statement.setFetchSize(fetchSize);
+      }
+      for (int i = 0; i < parameters.length; i++) {
+        statement.setObject(i + 1, parameters[i]);
+      }
+      return new ResultSetDataSource(statement.executeQuery(), statement, fetchSize);
+    } catch (SQLException e) {
+      ResultSetDataSource.closeQuietly(statement);
+      throw new ExcelKitRuntimeException("Execute query failed: " + sql, e);
+    }
+  }
+
+  @Override
+  public boolean next() {
+    try {
+      return mResultSet.next();
+    } catch (SQLException e) {
+      throw new ExcelKitRuntimeException("Read ResultSet failed.", e);
+    }
+  }
+
+  @Override
+  public Object getValue(ExcelProperty property) {
+    int column = getColumn(property);
+    try {
+      switch (mColumnTypes[column]) {
+        case Types.DATE:
+        case Types.TIME:
+        case Types.TIMESTAMP:
+          Date date = mResultSet.getTimestamp(column);
+          return null != date ? new Date(date.getTime()) : null;
+        case Types.CLOB:
+        case Types.NCLOB:
+        case Types.LONGVARCHAR:
+        case Types.LONGNVARCHAR:
+          return mResultSet.getString(column);
+        default:
+          return mResultSet.getObject(column);
+      }
+    } catch (SQLException e) {
+      throw new ExcelKitRuntimeException("Read column [" + property.getName() + "] failed.", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (mClosed) {
+      return;
+    }
+    mClosed = true;
+    SQLException failure = null;
+    try {
+      mResultSet.close();
+    } catch (SQLException e) {
+      failure = e;
+    }
+    if (null != mStatement) {
+      try {
+        mStatement.close();
+      } catch (SQLException e) {
+        failure = null != failure ? failure : e;
+      }
+    }
+    if (null != failure) {
+      throw new ExcelKitRuntimeException("Close ResultSet failed.", failure);
+    }
+  }
+
+  private int getColumn(ExcelProperty property) {
+    Integer column = mPropertyColumns.get(property);
+    if (null == column) {
+      column = mColumnIndexes.get(ResultSetDataSource.normalize(property.getName()));
+      if (null == column) {
+        throw new ExcelKitRuntimeException(
+            "No column in ResultSet matches property [" + property.getName() + "].");
+      }
+      int type = mColumnTypes[column];
+      if (type == Types.BLOB || type == Types.BINARY || type == Types.VARBINARY
+          || type == Types.LONGVARBINARY) {
+        throw new ExcelKitRuntimeException(
+            "Binary column for property [" + property.getName() + "] can not be exported.");
+      }
+      mPropertyColumns.put(property, column);
+    }
+    return column;
+  }
+
+  private static String normalize(String name) {
+    return name.replace("_", "").toLowerCase(Locale.ENGLISH);
+  }
+
+  private static void closeQuietly(ResultSet resultSet) {
+    if (null != resultSet) {
+      try {
+        resultSet.close();
+      } catch (SQLException ignored) {
+        // 已有异常正在抛出, 关闭失败不应覆盖原始异常
+      }
+    }
+  }
+
+  private static void closeQuietly(Statement statement) {
+    if (null != statement) {
+      try {
+        statement.close();
+      } catch (SQLException ignored) {
+        // 已有异常正在抛出, 关闭失败不应覆盖原始异常
+      }
+    }
+  }
+}
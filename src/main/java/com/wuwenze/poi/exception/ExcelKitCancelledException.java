@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.exception;
+
+/**
+ * 导入导出被 ExcelProgress#cancel() 取消, 或导入的失败行达到阈值 (ExcelKitErrorThresholdException)
+ *
+ * @author wuwenze
+ */
+public class ExcelKitCancelledException extends ExcelKitRuntimeException {
+
+  private static final long serialVersionUID = -4125880367293561745L;
+
+  public ExcelKitCancelledException(String message) {
+    super(message);
+  }
+}
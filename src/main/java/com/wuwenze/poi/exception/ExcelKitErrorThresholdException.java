@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.exception;
+
+import com.wuwenze.poi.pojo.ExcelErrorSummary;
+
+/**
+ * 导入的失败行达到 ExcelErrorPolicy 的阈值, 已停止解析
+ *
+ * @author wuwenze
+ */
+public class ExcelKitErrorThresholdException extends ExcelKitCancelledException {
+
+  private static final long serialVersionUID = 2318034650470123907L;
+
+  private final transient ExcelErrorSummary mSummary;
+
+  public ExcelKitErrorThresholdException(String message, ExcelErrorSummary summary) {
+    super(message);
+    mSummary = summary;
+  }
+
+  /**
+   * @return 停止时的错误汇总
+   */
+  public ExcelErrorSummary getSummary() {
+    return mSummary;
+  }
+}
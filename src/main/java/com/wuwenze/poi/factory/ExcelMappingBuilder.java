@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.factory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.wuwenze.poi.convert.ConverterExp;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.pojo.ExcelMapping;
+import com.wuwenze.poi.pojo.ExcelProperty;
+import com.wuwenze.poi.util.ValidatorUtil;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 以代码方式构建 ExcelMapping, 无需注解或 XML 配置文件.
+ * <p>
+ * 用法: ExcelMappingBuilder.create("用户信息").add("username", "用户名")
+ * .add(ExcelProperty.builder().name("sex").column("性别").writeConverterExp("0=男,1=女").build())
+ * .build();
+ *
+ * @author wuwenze
+ */
+public class ExcelMappingBuilder {
+
+  private final String mName;
+  private final List<ExcelProperty> mPropertyList = Lists.newArrayList();
+
+  private ExcelMappingBuilder(String name) {
+    mName = name;
+  }
+
+  /**
+   * @param name 映射名称(sheet 名称及文件名)
+   * @return ExcelMappingBuilder obj.
+   */
+  public static ExcelMappingBuilder create(String name) {
+    return new ExcelMappingBuilder(name);
+  }
+
+  /**
+   * 添加一列
+   *
+   * @param name 实体属性名
+   * @param column 列名
+   * @return ExcelMappingBuilder obj.
+   */
+  public ExcelMappingBuilder add(String name, String column) {
+    return add(ExcelProperty.builder().name(name).column(column).build());
+  }
+
+  /**
+   * 添加一列, 未编译的转换表达式在 build() 时编译
+   *
+   * @param property 列配置
+   * @return ExcelMappingBuilder obj.
+   */
+  public ExcelMappingBuilder add(ExcelProperty property) {
+    mPropertyList.add(property);
+    return this;
+  }
+
+  /**
+   * @return 映射配置
+   * @throws ExcelKitRuntimeException 名称为空、没有列、属性名重复或转换表达式有误
+   */
+  public ExcelMapping build() {
+    if (ValidatorUtil.isEmpty(mName)) {
+      throw new ExcelKitRuntimeException("ExcelMapping name is empty.");
+    }
+    if (mPropertyList.isEmpty()) {
+      throw new ExcelKitRuntimeException("[" + mName + "] no property added.");
+    }
+    Set<String> names = Sets.newHashSet();
+    for (ExcelProperty property : mPropertyList) {
+      if (ValidatorUtil.isEmpty(property.getName()) || !names.add(property.getName())) {
+        throw new ExcelKitRuntimeException(
+            "[" + mName + "] property name is empty or duplicated: " + property.getName());
+      }
+      if (ValidatorUtil.isEmpty(property.getColumn())) {
+        property.setColumn(property.getName());
+      }
+      if (null == property.getCompiledWriteConverterExp()) {
+        property.setCompiledWriteConverterExp(
+            ConverterExp.compile(property.getWriteConverterExp()));
+      }
+      if (null == property.getCompiledReadConverterExp()) {
+        property.setCompiledReadConverterExp(ConverterExp.compile(property.getReadConverterExp()));
+      }
+    }
+    return new ExcelMapping(mName, Lists.newArrayList(mPropertyList));
+  }
+}
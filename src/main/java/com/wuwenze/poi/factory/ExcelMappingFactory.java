@@ -15,25 +15,49 @@
 
 package com.wuwenze.poi.factory;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Resources;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.wuwenze.poi.annotation.Excel;
 import com.wuwenze.poi.annotation.ExcelField;
+import com.wuwenze.poi.convert.ConverterExp;
 import com.wuwenze.poi.exception.ExcelKitAnnotationAnalyzeException;
 import com.wuwenze.poi.exception.ExcelKitConfigAnalyzeFailureException;
 import com.wuwenze.poi.exception.ExcelKitConfigFileNotFoundException;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
 import com.wuwenze.poi.exception.ExcelKitXmlAnalyzeException;
 import com.wuwenze.poi.pojo.ExcelMapping;
 import com.wuwenze.poi.pojo.ExcelProperty;
 import com.wuwenze.poi.util.BeanUtil;
-import com.wuwenze.poi.util.PathUtil;
+import com.wuwenze.poi.util.Const;
 import com.wuwenze.poi.util.ValidatorUtil;
-import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.dom4j.Attribute;
@@ -47,15 +71,51 @@ import org.dom4j.io.SAXReader;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class ExcelMappingFactory {
 
-  private final static LoadingCache<Class<?>, ExcelMapping> mExcelMappingLoadingCache =
+  private static volatile ExcelMappingRegistry mRegistry =
+      new ExcelMappingRegistry(ExcelMappingRegistry.DEFAULT_MAX_COLUMNS);
+  /**
+   * 投影映射, 以基础映射对象(按引用)区分, 基础映射被淘汰后随之释放
+   */
+  private final static LoadingCache<ExcelMapping, Cache<List<String>, ExcelMapping>> mViewCache =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .build(new CacheLoader<ExcelMapping, Cache<List<String>, ExcelMapping>>() {
+            @Override
+            public Cache<List<String>, ExcelMapping> load(ExcelMapping key) {
+              return CacheBuilder.newBuilder().maximumSize(100).build();
+            }
+          });
+  /**
+   * 类加载器 =&gt; (实体类名 =&gt; 生成的映射类名), 只保存类名, 不阻止类加载器被回收
+   */
+  private final static LoadingCache<ClassLoader, Map<String, String>> mProviderNames =
       CacheBuilder.newBuilder()
-          .maximumSize(100)
-          .build(new CacheLoader<Class<?>, ExcelMapping>() {
+          .weakKeys()
+          .build(new CacheLoader<ClassLoader, Map<String, String>>() {
             @Override
-            public ExcelMapping load(Class<?> key) {
-              return ExcelMappingFactory.loadExcelMappingByClass(key);
+            public Map<String, String> load(ClassLoader key) {
+              return ExcelMappingFactory.loadProviderNames(key);
             }
           });
+  /**
+   * 实体 =&gt; 生成的映射, 映射对象引用实体的类加载器, 因此以软引用保存, 被回收后按类名重新创建
+   */
+  private final static LoadingCache<Class<?>, Optional<ExcelMappingProvider>> mProviders =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .softValues()
+          .build(new CacheLoader<Class<?>, Optional<ExcelMappingProvider>>() {
+            @Override
+            public Optional<ExcelMappingProvider> load(Class<?> key) throws Exception {
+              return ExcelMappingFactory.loadProvider(key);
+            }
+          });
+  /**
+   * 由 ExcelMappingReloader 加载的 XML 映射内容, 优先于 classpath 中的映射文件,
+   * 缓存的映射被淘汰后据此重新解析 (不会退回 classpath 中的旧版本)
+   */
+  private final static Map<Class<?>, byte[]> mReloadedConfigs =
+      new MapMaker().weakKeys().makeMap();
   private final static List<String> mClazzFields = Lists
       .newArrayList("options", "writeConverter", "readConverter", "validator");
   private final static List<String> mRequeridAttrs = Lists.newArrayList("name");
@@ -67,28 +127,237 @@ public class ExcelMappingFactory {
    * @return ExcelMapping映射对象
    */
   public static ExcelMapping get(Class<?> clazz) {
+    return ExcelMappingFactory.mRegistry.get(clazz);
+  }
+
+  /**
+   * @return 当前使用的映射缓存, 可用于查看统计信息或按类/类加载器失效
+   */
+  public static ExcelMappingRegistry getRegistry() {
+    return ExcelMappingFactory.mRegistry;
+  }
+
+  /**
+   * 替换映射缓存 (如调整容量), 应在应用启动时调用, 已缓存的映射不会迁移
+   *
+   * @param registry 映射缓存
+   */
+  public static void setRegistry(ExcelMappingRegistry registry) {
+    ExcelMappingFactory.mRegistry = registry;
+  }
+
+  /**
+   * 获取指定实体映射的投影: 只包含指定的列并按指定的顺序排列.
+   * 投影按 (实体, 列) 缓存, 与基础映射共享列配置(包括已编译的转换表达式及转换器实例).
+   *
+   * @param clazz 实体
+   * @param names 属性名
+   * @return ExcelMapping映射对象
+   */
+  public static ExcelMapping view(Class<?> clazz, String... names) {
+    final ExcelMapping excelMapping = ExcelMappingFactory.get(clazz);
+    final List<String> nameList = Lists.newArrayList(names);
     try {
-      return ExcelMappingFactory.mExcelMappingLoadingCache.get(clazz);
-    } catch (Exception e) {
-      throw new ExcelKitConfigAnalyzeFailureException(e);
+      return ExcelMappingFactory.mViewCache.getUnchecked(excelMapping)
+          .get(nameList, new Callable<ExcelMapping>() {
+            @Override
+            public ExcelMapping call() {
+              return ExcelMappingFactory.project(excelMapping, nameList);
+            }
+          });
+    } catch (ExecutionException e) {
+      throw new ExcelKitRuntimeException(e.getCause());
+    } catch (UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * 从已有映射中选取指定的列 (不缓存)
+   *
+   * @param excelMapping 基础映射
+   * @param names 属性名
+   * @return ExcelMapping映射对象
+   */
+  public static ExcelMapping project(ExcelMapping excelMapping, List<String> names) {
+    Map<String, ExcelProperty> properties = Maps.newHashMap();
+    for (ExcelProperty property : excelMapping.getPropertyList()) {
+      properties.put(property.getName(), property);
+    }
+    List<ExcelProperty> propertyList = Lists.newArrayListWithCapacity(names.size());
+    for (String name : names) {
+      ExcelProperty property = properties.get(name);
+      if (null == property) {
+        throw new ExcelKitRuntimeException(
+            "[" + excelMapping.getName() + "] property not found: " + name);
+      }
+      propertyList.add(property);
+    }
+    if (propertyList.isEmpty()) {
+      throw new ExcelKitRuntimeException("[" + excelMapping.getName() + "] no property selected.");
+    }
+    return new ExcelMapping(excelMapping.getName(), propertyList);
+  }
+
+  /**
+   * @param clazz 实体
+   * @return 编译期生成的映射, 不存在时返回 null
+   */
+  public static ExcelMappingProvider getProvider(Class<?> clazz) {
+    try {
+      return ExcelMappingFactory.mProviders.getUnchecked(clazz).orNull();
+    } catch (UncheckedExecutionException e) {
+      throw new ExcelKitRuntimeException(
+          "Load ExcelMappingProvider of [" + clazz.getName() + "] failed.", e.getCause());
+    }
+  }
+
+  /**
+   * 并行解析索引 (classpath*:META-INF/excelkit/mappings.index, 由 ExcelKit-processor 生成,
+   * 每行一个实体类名) 中的所有映射, 供应用启动时调用, 避免首次导入/导出时在请求中解析.
+   *
+   * @return 已加载的映射数
+   * @throws ExcelKitConfigAnalyzeFailureException 存在无法加载的映射, 其余映射仍已加载
+   */
+  public static int preload() {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    return ExcelMappingFactory.preload(
+        null != classLoader ? classLoader : ExcelMappingFactory.class.getClassLoader());
+  }
+
+  /**
+   * @param classLoader 读取索引及加载实体类的类加载器
+   * @return 已加载的映射数
+   * @see #preload()
+   */
+  public static int preload(ClassLoader classLoader) {
+    List<Class<?>> classes = Lists.newArrayList();
+    List<String> failures = Lists.newArrayList();
+    for (String className : ExcelMappingFactory.readIndex(classLoader)) {
+      try {
+        classes.add(Class.forName(className, false, classLoader));
+      } catch (ClassNotFoundException e) {
+        failures.add("[" + className + "] class not found.");
+      }
+    }
+    int loaded = ExcelMappingFactory.preload(classes);
+    if (!failures.isEmpty()) {
+      throw new ExcelKitConfigAnalyzeFailureException("Preload failed: " + failures);
     }
+    return loaded;
   }
 
-  private static ExcelMapping loadExcelMappingByClass(Class<?> clazz) {
+  /**
+   * 并行解析指定实体的映射
+   *
+   * @param classes 实体
+   * @return 已加载的映射数
+   */
+  public static int preload(Collection<Class<?>> classes) {
+    if (classes.isEmpty()) {
+      return 0;
+    }
+    int threads = Math.min(classes.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("excelkit-preload-%d").setDaemon(true).build());
+    try {
+      Map<Class<?>, Future<ExcelMapping>> futures = Maps.newLinkedHashMap();
+      for (final Class<?> clazz : classes) {
+        futures.put(clazz, executor.submit(new Callable<ExcelMapping>() {
+          @Override
+          public ExcelMapping call() {
+            return ExcelMappingFactory.get(clazz);
+          }
+        }));
+      }
+      int loaded = 0;
+      List<String> failures = Lists.newArrayList();
+      for (Map.Entry<Class<?>, Future<ExcelMapping>> entry : futures.entrySet()) {
+        try {
+          entry.getValue().get();
+          loaded++;
+        } catch (ExecutionException e) {
+          failures.add("[" + entry.getKey().getName() + "] " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new ExcelKitRuntimeException("Preload interrupted.", e);
+        }
+      }
+      if (!failures.isEmpty()) {
+        throw new ExcelKitConfigAnalyzeFailureException("Preload failed: " + failures);
+      }
+      return loaded;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Set<String> readIndex(ClassLoader classLoader) {
+    Set<String> classNames = Sets.newLinkedHashSet();
+    try {
+      Enumeration<URL> indexes = classLoader.getResources(Const.MAPPING_INDEX_LOCATION);
+      while (indexes.hasMoreElements()) {
+        URL index = indexes.nextElement();
+        for (String line : Resources.readLines(index, Charsets.UTF_8)) {
+          line = line.trim();
+          if (!line.isEmpty() && !line.startsWith("#")) {
+            classNames.add(line);
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new ExcelKitRuntimeException("Read " + Const.MAPPING_INDEX_LOCATION + " failed.", e);
+    }
+    return classNames;
+  }
+
+  private static ClassLoader getClassLoader(Class<?> clazz) {
+    return null != clazz.getClassLoader() ? clazz.getClassLoader()
+        : ExcelMappingFactory.class.getClassLoader();
+  }
+
+  /**
+   * 通过 ServiceLoader 查找类加载器(含父加载器)中登记的生成映射, 每个类加载器只查找一次
+   */
+  private static Map<String, String> loadProviderNames(ClassLoader classLoader) {
+    Map<String, String> providerNames = Maps.newHashMap();
+    for (ExcelMappingProvider provider : ServiceLoader.load(ExcelMappingProvider.class,
+        classLoader)) {
+      providerNames.put(provider.getType().getName(), provider.getClass().getName());
+    }
+    return providerNames;
+  }
+
+  private static Optional<ExcelMappingProvider> loadProvider(Class<?> clazz) throws Exception {
+    ClassLoader classLoader = ExcelMappingFactory.getClassLoader(clazz);
+    String providerName = ExcelMappingFactory.mProviderNames.getUnchecked(classLoader)
+        .get(clazz.getName());
+    if (null == providerName) {
+      return Optional.absent();
+    }
+    ExcelMappingProvider provider = (ExcelMappingProvider) Class
+        .forName(providerName, true, classLoader).newInstance();
+    return provider.getType() == clazz ? Optional.of(provider)
+        : Optional.<ExcelMappingProvider>absent();
+  }
+
+  static ExcelMapping loadExcelMappingByClass(Class<?> clazz) {
     // 1. 从配置文件加载 (classpath:excel-mapping/className.xml)
     ExcelMapping excelMapping = null;
     boolean xmlConfigFileNotFound = false;
     String loadExcelMappingFailedMessage = null;
     try {
-      excelMapping = ExcelMappingFactory.loadExcelMappingByXml(clazz.getName());
+      excelMapping = ExcelMappingFactory.loadExcelMappingByXml(clazz);
     } catch (Exception e) {
       xmlConfigFileNotFound = e instanceof ExcelKitConfigFileNotFoundException;
       loadExcelMappingFailedMessage = e.getMessage();
     }
-    // 2. 从注解加载配置信息 (当配置文件未找到时)
+    // 2. 从注解加载配置信息 (当配置文件未找到时), 优先使用编译期生成的映射
     if (null == excelMapping && xmlConfigFileNotFound) {
       try {
-        excelMapping = ExcelMappingFactory.loadExcelMappingByAnnotation(clazz);
+        ExcelMappingProvider provider = ExcelMappingFactory.getProvider(clazz);
+        excelMapping = null != provider ? provider.createExcelMapping()
+            : ExcelMappingFactory.loadExcelMappingByAnnotation(clazz);
       } catch (Exception e) {
         loadExcelMappingFailedMessage = e.getMessage();
       }
@@ -127,9 +396,13 @@ public class ExcelMappingFactory {
             .dateFormat(excelField.dateFormat())
             .options(excelField.options() != emptyClazz ? excelField.options().newInstance() : null)
             .writeConverterExp(excelField.writeConverterExp())
+            .compiledWriteConverterExp(ExcelMappingFactory
+                .compileConverterExp(clazz, field, excelField.writeConverterExp()))
             .writeConverter(excelField.writeConverter() != emptyClazz ? excelField.writeConverter()
                 .newInstance() : null)
             .readConverterExp(excelField.readConverterExp())
+            .compiledReadConverterExp(ExcelMappingFactory
+                .compileConverterExp(clazz, field, excelField.readConverterExp()))
             .readConverter(
                 excelField.readConverter() != emptyClazz ? excelField.readConverter().newInstance()
                     : null)
@@ -149,17 +422,51 @@ public class ExcelMappingFactory {
     return excelMapping;
   }
 
-  private static ExcelMapping loadExcelMappingByXml(String clazzName) throws Exception {
-    ExcelMapping excelMapping = new ExcelMapping();
-    File config = PathUtil
-        .getFileByClasspath(String.format("excel-mapping/%s.xml", clazzName));
-    String configFile = "classpath:excel-mapping/" + config.getName();
-    if (!config.exists()) {
+  private static ExcelMapping loadExcelMappingByXml(Class<?> clazz) throws Exception {
+    byte[] reloadedConfig = ExcelMappingFactory.mReloadedConfigs.get(clazz);
+    if (null != reloadedConfig) {
+      return ExcelMappingFactory.loadExcelMappingByXml(reloadedConfig,
+          "reloaded:" + clazz.getName() + ".xml");
+    }
+    String resource = Const.XML_MAPPING_DIRECTORY + clazz.getName() + ".xml";
+    String configFile = "classpath:" + resource;
+    URL config = ExcelMappingFactory.getClassLoader(clazz).getResource(resource);
+    if (null == config) {
       throw new ExcelKitConfigFileNotFoundException(
           "[" + configFile + "] not found.");
     }
-    SAXReader reader = new SAXReader();
-    Document document = reader.read(config);
+    return ExcelMappingFactory.loadExcelMappingByXml(config, configFile);
+  }
+
+  /**
+   * 记录热加载的映射内容, 并替换缓存的映射
+   */
+  static void putReloadedConfig(Class<?> clazz, byte[] config, ExcelMapping excelMapping) {
+    ExcelMappingFactory.mReloadedConfigs.put(clazz, config);
+    ExcelMappingFactory.mRegistry.put(clazz, excelMapping);
+  }
+
+  /**
+   * 移除热加载的映射内容, 下次使用时按 classpath 重新加载
+   */
+  static void removeReloadedConfig(Class<?> clazz) {
+    ExcelMappingFactory.mReloadedConfigs.remove(clazz);
+    ExcelMappingFactory.mRegistry.invalidate(clazz);
+  }
+
+  static ExcelMapping loadExcelMappingByXml(byte[] config, String configFile) throws Exception {
+    return ExcelMappingFactory.loadExcelMappingByXml(
+        new SAXReader().read(new ByteArrayInputStream(config)), configFile);
+  }
+
+  private static ExcelMapping loadExcelMappingByXml(URL config, String configFile)
+      throws Exception {
+    return ExcelMappingFactory.loadExcelMappingByXml(new SAXReader().read(config), configFile);
+  }
+
+  private static ExcelMapping loadExcelMappingByXml(Document document, String configFile)
+      throws Exception {
+    ExcelMapping excelMapping = new ExcelMapping();
     Element rootElement = document.getRootElement();
     if (!"excel-mapping".equals(rootElement.getName())) {
       throw new ExcelKitXmlAnalyzeException(
@@ -190,6 +497,11 @@ public class ExcelMappingFactory {
               ExcelMappingFactory.validAndGetPropertyValue(configFile, name, value));
         }
         if (null != excelMappingProperty) {
+          // 表达式已在 validAndGetPropertyValue 中校验过
+          excelMappingProperty.setCompiledWriteConverterExp(
+              ConverterExp.compile(excelMappingProperty.getWriteConverterExp()));
+          excelMappingProperty.setCompiledReadConverterExp(
+              ConverterExp.compile(excelMappingProperty.getReadConverterExp()));
           propertyList.add(excelMappingProperty);
         }
       }
@@ -230,13 +542,22 @@ public class ExcelMappingFactory {
       }
     }
     if ("writeConverterExp".equals(name) || "readConverterExp".equals(name)) {
-      for (String item : value.split(",")) {
-        if (!item.contains("=")) {
-          throw new ExcelKitXmlAnalyzeException(messageTemplate
-              + "Converter Expression error, Reference:[\"1=男,2=女\" or \"男=1,女=2\"].");
-        }
+      try {
+        ConverterExp.compile(value);
+      } catch (ExcelKitRuntimeException e) {
+        throw new ExcelKitXmlAnalyzeException(messageTemplate + e.getMessage());
       }
     }
     return value;
   }
+
+  private static ConverterExp compileConverterExp(Class<?> clazz, Field field,
+      String converterExp) {
+    try {
+      return ConverterExp.compile(converterExp);
+    } catch (ExcelKitRuntimeException e) {
+      throw new ExcelKitAnnotationAnalyzeException(
+          "[" + clazz.getName() + "." + field.getName() + "] Analyze failed: " + e.getMessage());
+    }
+  }
 }
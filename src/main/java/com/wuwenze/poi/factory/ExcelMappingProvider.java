@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.factory;
+
+import com.wuwenze.poi.pojo.ExcelMapping;
+
+/**
+ * 编译期生成的映射 (见 ExcelKit-processor 模块), 通过 ServiceLoader 加载
+ * (META-INF/services/com.wuwenze.poi.factory.ExcelMappingProvider).
+ * <p>
+ * 存在时 ExcelMappingFactory 用它代替注解反射解析, 导出读取属性与导入创建/填充实体也不再经过反射.
+ * XML 配置文件的优先级仍然高于它.
+ *
+ * @author wuwenze
+ */
+public interface ExcelMappingProvider {
+
+  /**
+   * @return 对应的实体类
+   */
+  Class<?> getType();
+
+  /**
+   * @return 与注解解析结果相同的映射配置, 每次调用返回新的对象
+   */
+  ExcelMapping createExcelMapping();
+
+  /**
+   * @return 新的实体对象 (导入)
+   */
+  Object newInstance();
+
+  /**
+   * 读取实体属性 (导出)
+   *
+   * @param bean 实体
+   * @param name 属性名
+   * @return 属性值, 可为 null
+   */
+  Object getValue(Object bean, String name) throws Exception;
+
+  /**
+   * 按 BeanUtils 的类型转换规则设置实体属性 (导入)
+   *
+   * @param bean 实体
+   * @param name 属性名
+   * @param value 单元格的值(或读取转换器的结果)
+   */
+  void setValue(Object bean, String name, Object value) throws Exception;
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.factory;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.wuwenze.poi.exception.ExcelKitConfigAnalyzeFailureException;
+import com.wuwenze.poi.pojo.ExcelMapping;
+import java.util.Iterator;
+
+/**
+ * 实体映射缓存: 以实体类的弱引用为 key, 按映射的总列数限制容量并 LRU 淘汰.
+ * <p>
+ * 映射中的下拉选项、转换器等引用实体所在类加载器的类, 因此映射以软引用保存: 类加载器不再使用后,
+ * 映射最迟在内存不足时被回收, 实体类随之可被卸载. 热部署的应用仍应在卸载时调用
+ * {@link #invalidate(ClassLoader)} (如 ServletContextListener#contextDestroyed) 立即释放相关映射.
+ *
+ * @author wuwenze
+ */
+public class ExcelMappingRegistry {
+
+  /**
+   * 默认最多缓存的总列数
+   */
+  public static final long DEFAULT_MAX_COLUMNS = 20000;
+
+  private final LoadingCache<Class<?>, ExcelMapping> mCache;
+
+  /**
+   * @param maxColumns 缓存的映射总列数上限 (每个映射至少按 1 列计)
+   */
+  public ExcelMappingRegistry(long maxColumns) {
+    mCache = CacheBuilder.newBuilder()
+        .weakKeys()
+        .softValues()
+        .maximumWeight(maxColumns)
+        .weigher(new Weigher<Class<?>, ExcelMapping>() {
+          @Override
+          public int weigh(Class<?> key, ExcelMapping value) {
+            return Math.max(1, value.getPropertyList().size());
+          }
+        })
+        .recordStats()
+        .build(new CacheLoader<Class<?>, ExcelMapping>() {
+          @Override
+          public ExcelMapping load(Class<?> key) {
+            return ExcelMappingFactory.loadExcelMappingByClass(key);
+          }
+        });
+  }
+
+  /**
+   * @param clazz 实体
+   * @return 缓存的映射, 未命中时解析并缓存
+   */
+  public ExcelMapping get(Class<?> clazz) {
+    try {
+      return mCache.getUnchecked(clazz);
+    } catch (UncheckedExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), ExcelKitConfigAnalyzeFailureException.class);
+      throw new ExcelKitConfigAnalyzeFailureException(e.getCause());
+    }
+  }
+
+  /**
+   * @param clazz 实体
+   * @return 已缓存的映射, 未缓存时返回 null (不触发解析)
+   */
+  public ExcelMapping getIfPresent(Class<?> clazz) {
+    return mCache.getIfPresent(clazz);
+  }
+
+  /**
+   * 替换指定实体的映射, 已取得旧映射的调用方继续使用旧映射
+   *
+   * @param clazz 实体
+   * @param excelMapping 映射
+   */
+  public void put(Class<?> clazz, ExcelMapping excelMapping) {
+    mCache.put(clazz, excelMapping);
+  }
+
+  /**
+   * 移除指定实体的映射, 下次使用时重新解析
+   *
+   * @param clazz 实体
+   */
+  public void invalidate(Class<?> clazz) {
+    mCache.invalidate(clazz);
+  }
+
+  /**
+   * 移除由指定类加载器 (或其子加载器) 加载的所有实体的映射
+   *
+   * @param classLoader 类加载器
+   * @return 移除的映射数
+   */
+  public int invalidate(ClassLoader classLoader) {
+    int removed = 0;
+    Iterator<Class<?>> iterator = mCache.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      if (ExcelMappingRegistry.isLoadedBy(iterator.next(), classLoader)) {
+        iterator.remove();
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * 清空缓存
+   */
+  public void invalidateAll() {
+    mCache.invalidateAll();
+  }
+
+  /**
+   * @return 当前缓存的映射数
+   */
+  public long size() {
+    return mCache.size();
+  }
+
+  /**
+   * 命中/未命中次数, 解析耗时 (totalLoadTime, 纳秒) 及淘汰次数 (含 key/映射被回收), 自创建起累计
+   *
+   * @return 统计信息快照
+   */
+  public CacheStats stats() {
+    return mCache.stats();
+  }
+
+  private static boolean isLoadedBy(Class<?> clazz, ClassLoader classLoader) {
+    for (ClassLoader loader = clazz.getClassLoader(); null != loader;
+        loader = loader.getParent()) {
+      if (loader == classLoader) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
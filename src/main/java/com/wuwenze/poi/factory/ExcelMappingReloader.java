@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.factory;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.pojo.ExcelMapping;
+import java.io.File;
+import java.io.FileFilter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * XML 映射热加载: 由后台线程定期检查映射目录 (文件名即实体类名, 如 com.example.User.xml),
+ * 只重新解析修改时间或大小发生变化的文件, 解析成功后替换 ExcelMappingFactory 中缓存的映射.
+ * <p>
+ * 请求线程不做任何文件检查; 已开始的导入/导出继续使用开始时取得的映射.
+ * 解析失败时保留原映射, 并在下次检查时重试, 失败原因可通过 {@link #getFailures()} 查看.
+ * 文件被删除时移除缓存的映射, 下次使用时按 classpath 重新加载.
+ * 已重新加载的映射被缓存淘汰后, 按最近一次加载成功的内容重新解析, 不会退回 classpath 中的旧版本.
+ * <p>
+ * 目录应与 classpath 中的 excel-mapping 目录一致 (如 WEB-INF/classes/excel-mapping),
+ * 否则未被修改过的映射仍从 classpath 加载.
+ *
+ * @author wuwenze
+ */
+public class ExcelMappingReloader {
+
+  private static final String XML_SUFFIX = ".xml";
+
+  private final File mDirectory;
+  private final ClassLoader mClassLoader;
+  private final ScheduledExecutorService mWatcher;
+  private final Map<String, long[]> mStamps = Maps.newHashMap();
+  private final ConcurrentMap<String, String> mFailures = new ConcurrentHashMap<String, String>();
+  private volatile long mReloadCount = 0;
+
+  /**
+   * @param directory 映射目录
+   * @param classLoader 加载实体类的类加载器
+   * @param periodMillis 检查间隔
+   */
+  public ExcelMappingReloader(File directory, ClassLoader classLoader, long periodMillis) {
+    if (!directory.isDirectory()) {
+      throw new ExcelKitRuntimeException("[" + directory + "] is not a directory.");
+    }
+    mDirectory = directory;
+    mClassLoader = classLoader;
+    // 启动时只记录当前状态, 不解析未修改的文件
+    for (File file : listXmlFiles()) {
+      mStamps.put(file.getName(), ExcelMappingReloader.stamp(file));
+    }
+    mWatcher = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("excelkit-mapping-reloader").setDaemon(true)
+            .build());
+    mWatcher.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          scan();
+          mFailures.remove(mDirectory.getPath());
+        } catch (RuntimeException e) {
+          // 抛出异常会终止定时任务, 记录后在下次检查时重试
+          mFailures.put(mDirectory.getPath(), String.valueOf(e));
+        }
+      }
+    }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * @return 最近一次解析失败的文件及原因, 成功重新加载后移除; 检查目录失败时 key 为目录路径
+   */
+  public Map<String, String> getFailures() {
+    return ImmutableMap.copyOf(mFailures);
+  }
+
+  /**
+   * @return 已成功重新加载的次数
+   */
+  public long getReloadCount() {
+    return mReloadCount;
+  }
+
+  /**
+   * 停止检查
+   */
+  public void shutdown() {
+    mWatcher.shutdownNow();
+  }
+
+  synchronized void scan() {
+    Map<String, long[]> removed = Maps.newHashMap(mStamps);
+    for (File file : listXmlFiles()) {
+      String fileName = file.getName();
+      removed.remove(fileName);
+      long[] stamp = ExcelMappingReloader.stamp(file);
+      if (Arrays.equals(mStamps.get(fileName), stamp)) {
+        continue;
+      }
+      if (reload(file)) {
+        mStamps.put(fileName, stamp);
+      }
+    }
+    for (String fileName : removed.keySet()) {
+      mStamps.remove(fileName);
+      mFailures.remove(fileName);
+      Class<?> clazz = findClass(fileName);
+      if (null != clazz) {
+        ExcelMappingFactory.removeReloadedConfig(clazz);
+      }
+    }
+  }
+
+  private boolean reload(File file) {
+    String fileName = file.getName();
+    Class<?> clazz = findClass(fileName);
+    if (null == clazz) {
+      mFailures.put(fileName, "class not found.");
+      return false;
+    }
+    try {
+      byte[] config = Files.toByteArray(file);
+      ExcelMapping excelMapping = ExcelMappingFactory.loadExcelMappingByXml(config, file.getPath());
+      ExcelMappingFactory.putReloadedConfig(clazz, config, excelMapping);
+      mFailures.remove(fileName);
+      mReloadCount++;
+      return true;
+    } catch (Exception e) {
+      mFailures.put(fileName, String.valueOf(e.getMessage()));
+      return false;
+    }
+  }
+
+  private Class<?> findClass(String fileName) {
+    String className = fileName.substring(0, fileName.length() - XML_SUFFIX.length());
+    try {
+      return Class.forName(className, false, mClassLoader);
+    } catch (ClassNotFoundException e) {
+      return null;
+    } catch (LinkageError e) {
+      return null;
+    }
+  }
+
+  private File[] listXmlFiles() {
+    File[] files = mDirectory.listFiles(new FileFilter() {
+      @Override
+      public boolean accept(File file) {
+        return file.isFile() && file.getName().endsWith(XML_SUFFIX);
+      }
+    });
+    return null != files ? files : new File[0];
+  }
+
+  /**
+   * @return [修改时间, 文件长度], 分别比较, 避免不同的修改组合出相同的值
+   */
+  private static long[] stamp(File file) {
+    return new long[]{file.lastModified(), file.length()};
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.handler;
+
+/**
+ * 导入时处理某一行(校验、填充实体或 ExcelReadHandler 回调)抛出的异常.
+ * 未设置时打印异常堆栈并继续解析; 在此抛出的异常会终止导入.
+ *
+ * @author wuwenze
+ * @see com.wuwenze.poi.config.ExcelErrorPolicy#setExceptionHandler(ExcelReadExceptionHandler)
+ */
+public interface ExcelReadExceptionHandler {
+
+  void onException(int sheetIndex, int rowIndex, Exception e);
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.job;
+
+import com.wuwenze.poi.util.Const;
+import com.wuwenze.poi.util.POIUtil;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 已完成导出任务的下载句柄, 在 {@link #close()} 之前导出文件不会被清理.
+ *
+ * @author wuwenze
+ */
+public class ExcelExportDownload implements Closeable {
+
+  private final ExcelExportJob mJob;
+  private final File mFile;
+  private boolean mClosed = false;
+
+  ExcelExportDownload(ExcelExportJob job) {
+    mJob = job;
+    mFile = job.getFile();
+  }
+
+  public String getFileName() {
+    return mJob.getFileName();
+  }
+
+  public long getLength() {
+    return mFile.length();
+  }
+
+  /**
+   * @return 导出文件的输入流, 由调用方关闭
+   */
+  public InputStream openStream() throws IOException {
+    return new FileInputStream(mFile);
+  }
+
+  /**
+   * 响应浏览器下载, 支持 Content-Length 与 Range 请求
+   *
+   * @param request 原生 request 对象, 为 null 时不支持 Range
+   * @param response 原生 response 对象
+   */
+  public void download(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    POIUtil.download(mFile, request, response, URLEncoder.encode(getFileName(), Const.ENCODING));
+  }
+
+  @Override
+  public synchronized void close() {
+    if (!mClosed) {
+      mClosed = true;
+      mJob.releaseDownload();
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.job;
+
+import com.wuwenze.poi.progress.ExcelProgress;
+import java.io.File;
+
+/**
+ * 异步导出任务的状态, 可跨线程读取
+ *
+ * @author wuwenze
+ */
+public class ExcelExportJob {
+
+  public enum Status {
+    QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+    public boolean isFinished() {
+      return this == COMPLETED || this == FAILED || this == CANCELLED;
+    }
+  }
+
+  private final String mId;
+  private final Class<?> mMappingClass;
+  private final ExcelProgress mProgress = new ExcelProgress();
+  private final long mCreatedAt = System.currentTimeMillis();
+  private volatile Status mStatus = Status.QUEUED;
+  private volatile long mFinishedAt = 0;
+  private volatile File mFile = null;
+  private volatile String mFileName = null;
+  private volatile Throwable mError = null;
+  private int mActiveDownloads = 0;
+
+  ExcelExportJob(String id, Class<?> mappingClass) {
+    mId = id;
+    mMappingClass = mappingClass;
+  }
+
+  public String getId() {
+    return mId;
+  }
+
+  public Class<?> getMappingClass() {
+    return mMappingClass;
+  }
+
+  public Status getStatus() {
+    return mStatus;
+  }
+
+  /**
+   * @return 进度 (已写入行数, 当前 sheet)
+   */
+  public ExcelProgress getProgress() {
+    return mProgress;
+  }
+
+  public long getCreatedAt() {
+    return mCreatedAt;
+  }
+
+  /**
+   * @return 结束时间, 未结束时为 0
+   */
+  public long getFinishedAt() {
+    return mFinishedAt;
+  }
+
+  /**
+   * @return 导出文件名, 仅 COMPLETED 状态有值
+   */
+  public String getFileName() {
+    return mFileName;
+  }
+
+  /**
+   * @return 失败原因, 仅 FAILED 状态有值
+   */
+  public Throwable getError() {
+    return mError;
+  }
+
+  File getFile() {
+    return mFile;
+  }
+
+  synchronized boolean start() {
+    if (mStatus != Status.QUEUED) {
+      return false;
+    }
+    mStatus = Status.RUNNING;
+    return true;
+  }
+
+  synchronized boolean cancelIfQueued() {
+    if (mStatus != Status.QUEUED) {
+      return false;
+    }
+    finish(Status.CANCELLED, null);
+    return true;
+  }
+
+  synchronized void complete(File file, String fileName) {
+    mFile = file;
+    mFileName = fileName;
+    finish(Status.COMPLETED, null);
+  }
+
+  synchronized void finish(Status status, Throwable error) {
+    if (mStatus.isFinished()) {
+      return;
+    }
+    mError = error;
+    mFinishedAt = System.currentTimeMillis();
+    mStatus = status;
+  }
+
+  synchronized boolean acquireDownload() {
+    if (mStatus != Status.COMPLETED || null == mFile) {
+      return false;
+    }
+    mActiveDownloads++;
+    return true;
+  }
+
+  synchronized void releaseDownload() {
+    mActiveDownloads--;
+  }
+
+  /**
+   * 过期且没有正在进行的下载时, 从存储中移除
+   */
+  synchronized boolean evictIfExpired(long expiredBefore) {
+    if (!mStatus.isFinished() || mFinishedAt > expiredBefore || mActiveDownloads > 0) {
+      return false;
+    }
+    if (null != mFile) {
+      mFile.delete();
+      mFile = null;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "ExcelExportJob(id=" + mId + ", mappingClass=" + mMappingClass.getName()
+        + ", status=" + mStatus + ", rows=" + mProgress.getRows() + ")";
+  }
+}
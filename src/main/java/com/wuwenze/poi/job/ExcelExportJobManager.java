@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.job;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.wuwenze.poi.ExcelKit;
+import com.wuwenze.poi.config.ExcelExportJobConfig;
+import com.wuwenze.poi.datasource.ExcelDataSource;
+import com.wuwenze.poi.datasource.ListDataSource;
+import com.wuwenze.poi.exception.ExcelKitCancelledException;
+import com.wuwenze.poi.exception.ExcelKitJobRejectedException;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.factory.ExcelMappingFactory;
+import com.wuwenze.poi.pojo.ExcelMapping;
+import com.wuwenze.poi.util.Const;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 异步导出任务管理器: 提交后立即返回任务 id, 在有界线程池中生成文件并写入本地目录,
+ * 通过任务 id 查询进度、取消任务或获取下载句柄. 结束的任务在保留期过后自动清理.
+ * <p>
+ * 同时执行的任务数和排队任务数均有上限, 超出后拒绝提交, 以保证导出占用的堆内存可预期.
+ * 每个管理器在存储目录下使用独立的子目录, 只清理自己生成的文件, 多个管理器(或多个 JVM)可共用同一存储目录.
+ *
+ * @author wuwenze
+ */
+public class ExcelExportJobManager {
+
+  private static final String PART_SUFFIX = ".part";
+  /**
+   * 任务文件名: &lt;任务 id&gt;.xlsx 或 &lt;任务 id&gt;.xlsx.part
+   */
+  private static final Pattern JOB_FILE_PATTERN = Pattern.compile(
+      "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}"
+          + Pattern.quote(Const.XLSX_SUFFIX) + "(" + Pattern.quote(PART_SUFFIX) + ")?");
+
+  private final ExcelExportJobConfig mConfig;
+  private final File mStoreDirectory;
+  private final ThreadPoolExecutor mExecutor;
+  private final ScheduledExecutorService mEvictor;
+  private final ConcurrentMap<String, ExcelExportJob> mJobs =
+      new ConcurrentHashMap<String, ExcelExportJob>();
+  private final ConcurrentMap<String, JobTask> mTasks = new ConcurrentHashMap<String, JobTask>();
+
+  public ExcelExportJobManager() {
+    this(new ExcelExportJobConfig());
+  }
+
+  public ExcelExportJobManager(ExcelExportJobConfig config) {
+    mConfig = config;
+    mStoreDirectory = new File(config.getStoreDirectory(), UUID.randomUUID().toString());
+    if (!mStoreDirectory.mkdirs()) {
+      throw new ExcelKitRuntimeException("Could not create store directory " + mStoreDirectory);
+    }
+    mExecutor = new ThreadPoolExecutor(config.getMaxConcurrentJobs(),
+        config.getMaxConcurrentJobs(), 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(Math.max(1, config.getMaxQueuedJobs())),
+        new ThreadFactoryBuilder().setNameFormat("excelkit-export-%d").setDaemon(true).build());
+    mEvictor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("excelkit-export-evictor").setDaemon(true)
+            .build());
+    long evictPeriod = Math.max(1000L, Math.min(config.getRetentionMillis(), 60000L));
+    mEvictor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        evictExpired();
+      }
+    }, evictPeriod, evictPeriod, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * 提交导出任务
+   *
+   * @param clazz 导出实体对象
+   * @param data 数据集
+   * @return 任务 id
+   * @throws ExcelKitJobRejectedException 任务队列已满
+   */
+  public String submit(Class<?> clazz, List<?> data) {
+    return submit(clazz, new ListDataSource(data));
+  }
+
+  /**
+   * 提交导出任务, 数据源在任务结束(包括失败、取消和被拒绝)时关闭
+   *
+   * @param clazz 导出实体对象
+   * @param dataSource 数据源
+   * @return 任务 id
+   * @throws ExcelKitJobRejectedException 任务队列已满
+   */
+  public String submit(Class<?> clazz, ExcelDataSource dataSource) {
+    ExcelExportJob job = new ExcelExportJob(UUID.randomUUID().toString(), clazz);
+    JobTask task = new JobTask(job, dataSource);
+    mJobs.put(job.getId(), job);
+    mTasks.put(job.getId(), task);
+    try {
+      task.mFuture = mExecutor.submit(task);
+    } catch (RejectedExecutionException e) {
+      mJobs.remove(job.getId());
+      mTasks.remove(job.getId());
+      dataSource.close();
+      throw new ExcelKitJobRejectedException("Export queue is full, running="
+          + mExecutor.getActiveCount() + ", queued=" + mExecutor.getQueue().size() + ".", e);
+    }
+    return job.getId();
+  }
+
+  /**
+   * @param jobId 任务 id
+   * @return 任务, 不存在或已被清理时返回 null
+   */
+  public ExcelExportJob getJob(String jobId) {
+    return mJobs.get(jobId);
+  }
+
+  /**
+   * 取消任务: 排队中的任务直接移出队列, 执行中的任务在写入下一行前中止.
+   *
+   * @param jobId 任务 id
+   * @return 任务是否存在且尚未结束
+   */
+  public boolean cancel(String jobId) {
+    ExcelExportJob job = mJobs.get(jobId);
+    if (null == job || job.getStatus().isFinished()) {
+      return false;
+    }
+    job.getProgress().cancel();
+    JobTask task = mTasks.get(jobId);
+    if (null != task && job.cancelIfQueued()) {
+      // 未开始执行, run() 不会再处理该任务, 在此释放数据源并移出队列
+      task.finish(ExcelExportJob.Status.CANCELLED, null);
+      if (null != task.mFuture) {
+        task.mFuture.cancel(false);
+        mExecutor.purge();
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 获取已完成任务的下载句柄, 使用完毕后必须关闭
+   *
+   * @param jobId 任务 id
+   * @return 下载句柄
+   * @throws ExcelKitRuntimeException 任务不存在或未完成
+   */
+  public ExcelExportDownload openDownload(String jobId) {
+    ExcelExportJob job = mJobs.get(jobId);
+    if (null == job || !job.acquireDownload()) {
+      throw new ExcelKitRuntimeException("Export job [" + jobId + "] is not available for download"
+          + (null != job ? ", status=" + job.getStatus() : "") + ".");
+    }
+    return new ExcelExportDownload(job);
+  }
+
+  /**
+   * 清理超过保留期的任务及其文件, 以及本管理器子目录中不属于任何任务的过期任务文件
+   *
+   * @return 清理的任务数
+   */
+  public int evictExpired() {
+    long expiredBefore = System.currentTimeMillis() - mConfig.getRetentionMillis();
+    int evicted = 0;
+    for (ExcelExportJob job : mJobs.values()) {
+      if (job.evictIfExpired(expiredBefore)) {
+        mJobs.remove(job.getId());
+        evicted++;
+      }
+    }
+    File[] files = mStoreDirectory.listFiles();
+    if (null != files) {
+      for (File file : files) {
+        if (!JOB_FILE_PATTERN.matcher(file.getName()).matches()) {
+          continue;
+        }
+        String jobId = file.getName().split("\\.")[0];
+        if (!mJobs.containsKey(jobId) && file.lastModified() < expiredBefore) {
+          file.delete();
+        }
+      }
+    }
+    return evicted;
+  }
+
+  /**
+   * @return 正在执行的任务数
+   */
+  public int getRunningCount() {
+    return mExecutor.getActiveCount();
+  }
+
+  /**
+   * @return 排队中的任务数
+   */
+  public int getQueuedCount() {
+    return mExecutor.getQueue().size();
+  }
+
+  /**
+   * 停止接收新任务, 取消所有未结束的任务
+   */
+  public void shutdown() {
+    mEvictor.shutdownNow();
+    for (String jobId : mJobs.keySet()) {
+      cancel(jobId);
+    }
+    mExecutor.shutdown();
+  }
+
+  private class JobTask implements Runnable {
+
+    private final ExcelExportJob mJob;
+    private final ExcelDataSource mDataSource;
+    private volatile Future<?> mFuture;
+
+    JobTask(ExcelExportJob job, ExcelDataSource dataSource) {
+      mJob = job;
+      mDataSource = dataSource;
+    }
+
+    @Override
+    public void run() {
+      if (!mJob.start()) {
+        return;
+      }
+      File partFile = new File(mStoreDirectory, mJob.getId() + Const.XLSX_SUFFIX + PART_SUFFIX);
+      try {
+        ExcelMapping excelMapping = ExcelMappingFactory.get(mJob.getMappingClass());
+        ExcelKit.$Builder(mJob.getMappingClass(), new FileOutputStream(partFile))
+            .setWriterConfig(mConfig.getWriterConfig())
+            .setMaxSheetRecords(mConfig.getMaxSheetRecords())
+            .setMetricsListener(mConfig.getMetricsListener())
+            .writeXlsx(mDataSource, mJob.getProgress());
+        File file = new File(mStoreDirectory, mJob.getId() + Const.XLSX_SUFFIX);
+        if (!partFile.renameTo(file)) {
+          throw new IOException("Could not rename " + partFile + " to " + file);
+        }
+        mJob.complete(file, excelMapping.getName() + "-导出结果.xlsx");
+      } catch (ExcelKitCancelledException e) {
+        mJob.finish(ExcelExportJob.Status.CANCELLED, null);
+      } catch (Throwable e) {
+        mJob.finish(ExcelExportJob.Status.FAILED, e);
+      } finally {
+        partFile.delete();
+        finish(mJob.getStatus(), mJob.getError());
+      }
+    }
+
+    void finish(ExcelExportJob.Status status, Throwable error) {
+      mJob.finish(status, error);
+      mTasks.remove(mJob.getId());
+      mDataSource.close();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.metrics;
+
+import com.google.common.collect.Maps;
+import java.util.Map;
+
+/**
+ * 在内存中按实体累计导入/导出统计, 线程安全.
+ * <p>
+ * 以实体类名区分, 累计的统计不保存 type, 避免长期持有实体类 (及其类加载器).
+ *
+ * @author wuwenze
+ */
+public class ExcelMetricsAggregator implements ExcelMetricsListener {
+
+  private final Map<String, ExcelReadMetrics> mReadMetrics = Maps.newHashMap();
+  private final Map<String, ExcelWriteMetrics> mWriteMetrics = Maps.newHashMap();
+  private long mReads = 0;
+  private long mWrites = 0;
+
+  @Override
+  public synchronized void onRead(ExcelReadMetrics metrics) {
+    String typeName = ExcelMetricsAggregator.getTypeName(metrics.getType());
+    ExcelReadMetrics total = mReadMetrics.get(typeName);
+    if (null == total) {
+      total = new ExcelReadMetrics();
+      mReadMetrics.put(typeName, total);
+    }
+    total.add(metrics);
+    mReads++;
+  }
+
+  @Override
+  public synchronized void onWrite(ExcelWriteMetrics metrics) {
+    String typeName = ExcelMetricsAggregator.getTypeName(metrics.getType());
+    ExcelWriteMetrics total = mWriteMetrics.get(typeName);
+    if (null == total) {
+      total = new ExcelWriteMetrics();
+      mWriteMetrics.put(typeName, total);
+    }
+    total.add(metrics);
+    mWrites++;
+  }
+
+  /**
+   * @return 导入次数
+   */
+  public synchronized long getReads() {
+    return mReads;
+  }
+
+  /**
+   * @return 导出次数
+   */
+  public synchronized long getWrites() {
+    return mWrites;
+  }
+
+  /**
+   * @return 实体类名 =&gt; 累计的导入统计 (副本, type 为 null)
+   */
+  public synchronized Map<String, ExcelReadMetrics> getReadMetrics() {
+    Map<String, ExcelReadMetrics> snapshot = Maps.newHashMap();
+    for (Map.Entry<String, ExcelReadMetrics> entry : mReadMetrics.entrySet()) {
+      ExcelReadMetrics copy = new ExcelReadMetrics();
+      copy.add(entry.getValue());
+      snapshot.put(entry.getKey(), copy);
+    }
+    return snapshot;
+  }
+
+  /**
+   * @return 实体类名 =&gt; 累计的导出统计 (副本, type 为 null)
+   */
+  public synchronized Map<String, ExcelWriteMetrics> getWriteMetrics() {
+    Map<String, ExcelWriteMetrics> snapshot = Maps.newHashMap();
+    for (Map.Entry<String, ExcelWriteMetrics> entry : mWriteMetrics.entrySet()) {
+      ExcelWriteMetrics copy = new ExcelWriteMetrics();
+      copy.add(entry.getValue());
+      snapshot.put(entry.getKey(), copy);
+    }
+    return snapshot;
+  }
+
+  /**
+   * 清空统计
+   */
+  public synchronized void reset() {
+    mReadMetrics.clear();
+    mWriteMetrics.clear();
+    mReads = 0;
+    mWrites = 0;
+  }
+
+  private static String getTypeName(Class<?> type) {
+    return null != type ? type.getName() : null;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.metrics;
+
+/**
+ * 导入/导出统计回调, 每次导入或导出结束 (包括失败) 时调用一次, 在执行导入/导出的线程中执行.
+ * <p>
+ * 使用 {@link #NOOP} 时不做任何计时与计数.
+ *
+ * @author wuwenze
+ * @see ExcelMetricsAggregator
+ */
+public interface ExcelMetricsListener {
+
+  /**
+   * 不做任何统计 (默认)
+   */
+  ExcelMetricsListener NOOP = new ExcelMetricsListener() {
+    @Override
+    public void onRead(ExcelReadMetrics metrics) {
+    }
+
+    @Override
+    public void onWrite(ExcelWriteMetrics metrics) {
+    }
+  };
+
+  /**
+   * @param metrics 一次导入的统计
+   */
+  void onRead(ExcelReadMetrics metrics);
+
+  /**
+   * @param metrics 一次导出的统计
+   */
+  void onWrite(ExcelWriteMetrics metrics);
+}
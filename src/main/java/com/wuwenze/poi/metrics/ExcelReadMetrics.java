@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.metrics;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 一次导入的统计, 耗时单位为纳秒.
+ * <p>
+ * parseNanos 为解压及解析 XML、读取单元格的耗时 (总耗时减去校验、转换、赋值与回调);
+ * 校验耗时按规则分别统计, 其中 dateFormat 同时完成日期转换.
+ *
+ * @author wuwenze
+ */
+@Data
+@ToString
+@NoArgsConstructor
+public class ExcelReadMetrics {
+
+  /**
+   * 导入实体
+   */
+  private Class<?> type;
+
+  /**
+   * 读取的 sheet 解压后的字节数
+   */
+  private long bytesInflated;
+
+  /**
+   * 解析的数据行数 (不含表头及全空行)
+   */
+  private long rowsParsed;
+
+  /**
+   * 通过校验并完成赋值的行数
+   */
+  private long rowsBound;
+
+  /**
+   * ExcelReadHandler#onSuccess 调用次数
+   */
+  private long successes;
+
+  /**
+   * ExcelReadHandler#onError 调用次数
+   */
+  private long errors;
+
+  /**
+   * 处理行时抛出的异常数 (包括 ExcelReadHandler 抛出的异常)
+   */
+  private long exceptions;
+
+  private long parseNanos;
+  private long requiredNanos;
+  private long maxLengthNanos;
+  private long dateFormatNanos;
+  private long optionsNanos;
+  private long regularExpNanos;
+  private long validatorNanos;
+  private long conversionNanos;
+  private long populationNanos;
+  private long handlerNanos;
+  private long totalNanos;
+
+  /**
+   * @return 所有校验规则的耗时
+   */
+  public long getValidationNanos() {
+    return requiredNanos + maxLengthNanos + dateFormatNanos + optionsNanos + regularExpNanos
+        + validatorNanos;
+  }
+
+  /**
+   * @return 每秒解析的行数
+   */
+  public double getRowsPerSecond() {
+    return totalNanos > 0 ? rowsParsed * 1e9 / totalNanos : 0;
+  }
+
+  /**
+   * 累加另一次导入的统计 (type 不变)
+   *
+   * @param other 另一次导入的统计
+   */
+  public void add(ExcelReadMetrics other) {
+    bytesInflated += other.bytesInflated;
+    rowsParsed += other.rowsParsed;
+    rowsBound += other.rowsBound;
+    successes += other.successes;
+    errors += other.errors;
+    exceptions += other.exceptions;
+    parseNanos += other.parseNanos;
+    requiredNanos += other.requiredNanos;
+    maxLengthNanos += other.maxLengthNanos;
+    dateFormatNanos += other.dateFormatNanos;
+    optionsNanos += other.optionsNanos;
+    regularExpNanos += other.regularExpNanos;
+    validatorNanos += other.validatorNanos;
+    conversionNanos += other.conversionNanos;
+    populationNanos += other.populationNanos;
+    handlerNanos += other.handlerNanos;
+    totalNanos += other.totalNanos;
+  }
+}
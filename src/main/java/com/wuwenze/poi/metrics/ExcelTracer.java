@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.metrics;
+
+/**
+ * 导入/导出过程的追踪(如 JFR 事件), 在打开工作簿、读写 sheet、刷写批次、结束 zip 等阶段的开始时调用
+ * {@link #start}, 结束时调用 {@link Span#end}. 通过 {@link ExcelTracing} 全局设置或由 ServiceLoader 发现,
+ * 默认为 {@link #NOOP}.
+ * <p>
+ * 实现必须是线程安全的, 并且应尽量轻量: 大文件的每个 sheet、每批刷写都会调用一次.
+ *
+ * @author wuwenze
+ * @see ExcelTracing
+ */
+public interface ExcelTracer {
+
+  /**
+   * 不做任何追踪 (默认)
+   */
+  ExcelTracer NOOP = new ExcelTracer() {
+    @Override
+    public Span start(Kind kind, Class<?> type, String name) {
+      return Span.NOOP;
+    }
+  };
+
+  /**
+   * @param kind 阶段
+   * @param type 映射的实体类, 未知时为 null
+   * @param name sheet 名称等附加信息, 可为 null
+   * @return 阶段结束时调用 end 的 span, 不为 null
+   */
+  Span start(Kind kind, Class<?> type, String name);
+
+  enum Kind {
+    /**
+     * 导入时打开 xlsx 包并加载共享字符串表与样式, rows 与 bytes 为 0
+     */
+    WORKBOOK_OPEN,
+    /**
+     * 导入时解析一个 sheet, rows 为解析的行数, bytes 为解压后的 sheet 字节数
+     */
+    SHEET_READ,
+    /**
+     * 导出时写入一个 sheet, rows 为数据行数, bytes 为写入的临时文件字节数 (DIRECT 引擎为 0)
+     */
+    SHEET_WRITE,
+    /**
+     * SXSSF 导出时将内存中的一批行刷写到临时文件, bytes 为写入的临时文件字节数
+     */
+    BATCH_FLUSH,
+    /**
+     * 一次数据导出, rows 为数据行数, bytes 为写入输出流的字节数
+     */
+    EXPORT,
+    /**
+     * 导出时组装并结束 zip (SXSSF 为 workbook.write), bytes 为这一阶段写入输出流的字节数
+     */
+    ZIP_FINISH,
+    /**
+     * 一次导入模板导出 (命中模板缓存时不会生成), rows 与 bytes 同 EXPORT
+     */
+    TEMPLATE
+  }
+
+  interface Span {
+
+    /**
+     * 不做任何追踪
+     */
+    Span NOOP = new Span() {
+      @Override
+      public void end(long rows, long bytes) {
+      }
+    };
+
+    /**
+     * 阶段结束 (包括失败), 每个 span 只调用一次
+     *
+     * @param rows 行数
+     * @param bytes 字节数
+     */
+    void end(long rows, long bytes);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.metrics;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * 全局的 {@link ExcelTracer}. 首次使用时通过 ServiceLoader 查找实现
+ * (如 ExcelKit-jfr 模块提供的 JFR 事件), 实现在当前 JDK 上无法加载时(例如没有 jdk.jfr)回退为 NOOP,
+ * 因此可以无条件地加入依赖.
+ * <p>
+ * 设置 -Dexcelkit.tracer=none 可禁用自动发现.
+ *
+ * @author wuwenze
+ */
+public final class ExcelTracing {
+
+  private static volatile ExcelTracer mTracer = ExcelTracing.discover();
+
+  private ExcelTracing() {
+  }
+
+  /**
+   * @return 当前的追踪实现, 不为 null
+   */
+  public static ExcelTracer getTracer() {
+    return mTracer;
+  }
+
+  /**
+   * @param tracer 追踪实现, 为 null 时不追踪
+   */
+  public static void setTracer(ExcelTracer tracer) {
+    mTracer = null != tracer ? tracer : ExcelTracer.NOOP;
+  }
+
+  /**
+   * @return 是否设置了追踪实现, 未设置时调用方可以跳过只为追踪而做的计数
+   */
+  public static boolean isEnabled() {
+    return mTracer != ExcelTracer.NOOP;
+  }
+
+  /**
+   * 使用当前的追踪实现开始一个阶段
+   *
+   * @see ExcelTracer#start(ExcelTracer.Kind, Class, String)
+   */
+  public static ExcelTracer.Span start(ExcelTracer.Kind kind, Class<?> type, String name) {
+    return mTracer.start(kind, type, name);
+  }
+
+  private static ExcelTracer discover() {
+    if ("none".equals(System.getProperty("excelkit.tracer"))) {
+      return ExcelTracer.NOOP;
+    }
+    try {
+      Iterator<ExcelTracer> tracers = ServiceLoader.load(ExcelTracer.class,
+          ExcelTracer.class.getClassLoader()).iterator();
+      if (tracers.hasNext()) {
+        return tracers.next();
+      }
+    } catch (Throwable e) {
+      // 实现依赖的类不存在(ServiceConfigurationError / LinkageError), 不追踪
+    }
+    return ExcelTracer.NOOP;
+  }
+}
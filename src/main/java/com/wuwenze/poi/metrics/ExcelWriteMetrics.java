@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.metrics;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 一次导出的统计, 耗时单位为纳秒. 导出多个实体时 type 为第一个实体.
+ *
+ * @author wuwenze
+ */
+@Data
+@ToString
+@NoArgsConstructor
+public class ExcelWriteMetrics {
+
+  /**
+   * 导出实体
+   */
+  private Class<?> type;
+
+  /**
+   * 是否是导出模板
+   */
+  private boolean template;
+
+  /**
+   * 写入的数据行数
+   */
+  private long rows;
+
+  /**
+   * 生成的 sheet 数
+   */
+  private long sheets;
+
+  /**
+   * 因超过 maxSheetRecords 而新建的 sheet 数
+   */
+  private long sheetRollovers;
+
+  /**
+   * 写入输出流的字节数
+   */
+  private long bytesWritten;
+
+  private long totalNanos;
+
+  /**
+   * @return 每秒写入的行数
+   */
+  public double getRowsPerSecond() {
+    return totalNanos > 0 ? rows * 1e9 / totalNanos : 0;
+  }
+
+  /**
+   * 累加另一次导出的统计 (type, template 不变)
+   *
+   * @param other 另一次导出的统计
+   */
+  public void add(ExcelWriteMetrics other) {
+    rows += other.rows;
+    sheets += other.sheets;
+    sheetRollovers += other.sheetRollovers;
+    bytesWritten += other.bytesWritten;
+    totalNanos += other.totalNanos;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.pojo;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 一次导入的错误汇总: 按列与按错误信息计数, 并保存有限条数的错误明细.
+ *
+ * @author wuwenze
+ * @see com.wuwenze.poi.config.ExcelErrorPolicy
+ */
+@Getter
+@ToString
+public class ExcelErrorSummary {
+
+  /**
+   * 按错误信息计数的最大条目数 (错误信息中可能包含单元格的值), 超出的计入 otherMessageErrors
+   */
+  private static final int MAX_MESSAGES = 100;
+
+  private final int maxStoredErrors;
+  private long rows = 0;
+  private long successRows = 0;
+  private long errorRows = 0;
+  private long exceptionRows = 0;
+  private final Map<String, Long> errorsByColumn = Maps.newLinkedHashMap();
+  private final Map<String, Long> errorsByMessage = Maps.newLinkedHashMap();
+  private long otherMessageErrors = 0;
+  private final List<ExcelErrorRow> errors = Lists.newArrayList();
+  private int storedErrors = 0;
+  private boolean truncated = false;
+  private String validatedChecksum = null;
+
+  /**
+   * @param maxStoredErrors 最多保存的错误单元格数
+   */
+  public ExcelErrorSummary(int maxStoredErrors) {
+    this.maxStoredErrors = maxStoredErrors;
+  }
+
+  /**
+   * @return 失败行数 (校验错误 + 异常)
+   */
+  public long getFailedRows() {
+    return errorRows + exceptionRows;
+  }
+
+  public void onSuccess() {
+    rows++;
+    successRows++;
+  }
+
+  public void onError(int sheetIndex, int rowIndex, List<ExcelErrorField> errorFields) {
+    rows++;
+    errorRows++;
+    for (ExcelErrorField errorField : errorFields) {
+      ExcelErrorSummary.increment(errorsByColumn, errorField.getColumn());
+      if (errorsByMessage.size() < MAX_MESSAGES
+          || errorsByMessage.containsKey(errorField.getErrorMessage())) {
+        ExcelErrorSummary.increment(errorsByMessage, errorField.getErrorMessage());
+      } else {
+        otherMessageErrors++;
+      }
+    }
+    int stored = Math.min(errorFields.size(), maxStoredErrors - storedErrors);
+    if (stored < errorFields.size()) {
+      truncated = true;
+    }
+    if (stored > 0) {
+      errors.add(new ExcelErrorRow(sheetIndex, rowIndex,
+          Lists.newArrayList(errorFields.subList(0, stored))));
+      storedErrors += stored;
+    }
+  }
+
+  public void onException() {
+    rows++;
+    exceptionRows++;
+  }
+
+  /**
+   * @param validatedChecksum 仅校验且全部通过时的内容校验和, 见 ExcelKit#setValidatedChecksum(String)
+   */
+  public void setValidatedChecksum(String validatedChecksum) {
+    this.validatedChecksum = validatedChecksum;
+  }
+
+  private static void increment(Map<String, Long> counts, String key) {
+    Long count = counts.get(key);
+    counts.put(key, null != count ? count + 1 : 1L);
+  }
+}
@@ -16,6 +16,7 @@
 package com.wuwenze.poi.pojo;
 
 import com.wuwenze.poi.config.Options;
+import com.wuwenze.poi.convert.ConverterExp;
 import com.wuwenze.poi.convert.ReadConverter;
 import com.wuwenze.poi.convert.WriteConverter;
 import com.wuwenze.poi.validator.Validator;
@@ -44,8 +45,10 @@ public class ExcelProperty {
   private String dateFormat;
   private Options options;
   private String writeConverterExp;
+  private ConverterExp compiledWriteConverterExp;
   private WriteConverter writeConverter;
   private String readConverterExp;
+  private ConverterExp compiledReadConverterExp;
   private ReadConverter readConverter;
   private String regularExp;
   private String regularExpMessage;
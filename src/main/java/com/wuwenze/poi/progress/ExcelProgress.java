@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.progress;
+
+import com.wuwenze.poi.exception.ExcelKitCancelledException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 导入导出进度, 可跨线程读取, 并可通过 {@link #cancel()} 取消正在执行的任务.
+ * <p>
+ * 执行线程在处理每一行前检查是否已取消 (一次 volatile 读), 取消后抛出 ExcelKitCancelledException,
+ * 并释放 OPCPackage、SXSSF 临时文件及输出流.
+ *
+ * @author wuwenze
+ */
+public class ExcelProgress {
+
+  private final AtomicLong mRows = new AtomicLong();
+  private final AtomicInteger mSheets = new AtomicInteger();
+  private final AtomicLong mBytes = new AtomicLong();
+  private volatile long mTotalBytes = -1;
+  private volatile String mCurrentSheet = null;
+  private volatile boolean mCancelled = false;
+
+  /**
+   * @return 已处理的数据行数(不含表头)
+   */
+  public long getRows() {
+    return mRows.get();
+  }
+
+  /**
+   * @return 已开始处理的 sheet 数
+   */
+  public int getSheets() {
+    return mSheets.get();
+  }
+
+  /**
+   * @return 导入时为已解析的 sheet 部件字节数(解压后), 导出时为已写入输出流的字节数
+   */
+  public long getBytes() {
+    return mBytes.get();
+  }
+
+  /**
+   * @return 导入时为待解析的 sheet 部件的总字节数(解压后), 与 {@link #getBytes()} 比较即可估算进度;
+   * 未知(导出, 或 zip 中没有记录大小)时为 -1
+   */
+  public long getTotalBytes() {
+    return mTotalBytes;
+  }
+
+  /**
+   * @return 当前正在处理的 sheet 名称
+   */
+  public String getCurrentSheet() {
+    return mCurrentSheet;
+  }
+
+  public boolean isCancelled() {
+    return mCancelled;
+  }
+
+  /**
+   * 请求取消, 执行线程会在处理下一行前抛出 ExcelKitCancelledException
+   */
+  public void cancel() {
+    mCancelled = true;
+  }
+
+  public void onSheet(String sheetName) {
+    mCurrentSheet = sheetName;
+    mSheets.incrementAndGet();
+  }
+
+  public void onRow() {
+    mRows.incrementAndGet();
+  }
+
+  public void onBytes(long bytes) {
+    mBytes.addAndGet(bytes);
+  }
+
+  public void setTotalBytes(long totalBytes) {
+    mTotalBytes = totalBytes;
+  }
+
+  /**
+   * @throws ExcelKitCancelledException 已被取消
+   */
+  public void checkCancelled() {
+    if (mCancelled) {
+      throw new ExcelKitCancelledException(
+          "Cancelled at row " + mRows.get() + " of sheet [" + mCurrentSheet + "].");
+    }
+  }
+}
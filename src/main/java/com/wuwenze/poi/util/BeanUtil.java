@@ -32,11 +32,31 @@ import java.util.Date;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class BeanUtil extends org.apache.commons.beanutils.BeanUtils {
 
-  public static void setComplexProperty(Object bean, String name, Object value)
-      throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, InstantiationException {
+  static {
     //修复日期为空时bug
     ConvertUtils.register(new DateConverter(null), Date.class);
     ConvertUtils.register(new BigDecimalConverter(null), BigDecimal.class);
+  }
+
+  /**
+   * 按 BeanUtils#setProperty 的规则将值转换为属性类型, 供编译期生成的映射使用
+   *
+   * @param value 值
+   * @param type 属性类型
+   * @return 转换后的值
+   */
+  public static Object convert(Object value, Class<?> type) {
+    if (null != value && type.isInstance(value)) {
+      return value;
+    }
+    if (null == value || value instanceof String) {
+      return ConvertUtils.convert((String) value, type);
+    }
+    return ConvertUtils.convert(value, type);
+  }
+
+  public static void setComplexProperty(Object bean, String name, Object value)
+      throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, InstantiationException {
     if (!name.contains(".")) {
       BeanUtil.setProperty(bean, name, value);
       return;
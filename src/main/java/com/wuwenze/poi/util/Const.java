@@ -29,8 +29,19 @@ public final class Const {
   public static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
   public static final String XLSX_HEADER_KEY = "Content-disposition";
   public static final String XLSX_HEADER_VALUE_TEMPLATE = "attachment; filename=%s";
+  public static final String XLSX_TEMP_FILE_PREFIX = "excelkit-export-";
+  public static final String HTTP_RANGE_HEADER = "Range";
+  public static final String HTTP_RANGE_UNIT_PREFIX = "bytes=";
+  public static final String HTTP_ETAG_HEADER = "ETag";
+  public static final String HTTP_IF_NONE_MATCH_HEADER = "If-None-Match";
+  public static final String HTTP_IF_RANGE_HEADER = "If-Range";
+  public static final String HTTP_LAST_MODIFIED_HEADER = "Last-Modified";
+  public static final String XML_MAPPING_DIRECTORY = "excel-mapping/";
+  public static final String MAPPING_INDEX_LOCATION = "META-INF/excelkit/mappings.index";
+  public static final String XLSX_OPTIONS_NAME_PREFIX = "ExcelKitOptions_";
   public static final String XLSX_DEFAULT_EMPTY_CELL_VALUE = "$EMPTY_CELL$";
   public static final Integer XLSX_DEFAULT_BEGIN_READ_ROW_INDEX = 1;
+  public static final String XLSX_ERROR_COLUMN_NAME = "错误信息";
   public static final String SAX_PARSER_CLASS = "org.apache.xerces.parsers.SAXParser";
   public static final String SAX_C_ELEMENT = "c";
   public static final String SAX_R_ATTR = "r";
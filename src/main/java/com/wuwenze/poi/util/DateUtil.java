@@ -18,6 +18,7 @@ package com.wuwenze.poi.util;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
@@ -32,29 +33,56 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class DateUtil {
 
+  private final static String ENGLISH_LOCAL_PATTERN = "EEE MMM dd HH:mm:ss z yyyy";
+  /**
+   * @deprecated SimpleDateFormat 非线程安全, 请使用 {@link #parseEnglishLocal(String)}
+   */
+  @Deprecated
   public final static SimpleDateFormat ENGLISH_LOCAL_DF = new SimpleDateFormat(
-      "EEE MMM dd HH:mm:ss z yyyy", Locale.ENGLISH);
-  private final static LoadingCache<String, SimpleDateFormat> mDateFormatLoadingCache =
-      CacheBuilder.newBuilder()
-          .maximumSize(5)
-          .build(new CacheLoader<String, SimpleDateFormat>() {
-
-            @Override
-            public SimpleDateFormat load(String pattern) {
-              SimpleDateFormat simpleDateFormat = new SimpleDateFormat(pattern);
-              simpleDateFormat.setLenient(true);
-              return simpleDateFormat;
-            }
-          });
+      ENGLISH_LOCAL_PATTERN, Locale.ENGLISH);
+  /**
+   * SimpleDateFormat 非线程安全, 每个线程各自缓存
+   */
+  private final static ThreadLocal<LoadingCache<String, SimpleDateFormat>> mDateFormatLoadingCache =
+      new ThreadLocal<LoadingCache<String, SimpleDateFormat>>() {
+        @Override
+        protected LoadingCache<String, SimpleDateFormat> initialValue() {
+          return CacheBuilder.newBuilder()
+              .maximumSize(5)
+              .build(new CacheLoader<String, SimpleDateFormat>() {
+
+                @Override
+                public SimpleDateFormat load(String pattern) {
+                  SimpleDateFormat simpleDateFormat = new SimpleDateFormat(pattern);
+                  simpleDateFormat.setLenient(true);
+                  return simpleDateFormat;
+                }
+              });
+        }
+      };
+  private final static ThreadLocal<SimpleDateFormat> mEnglishLocalDateFormat =
+      new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+          return new SimpleDateFormat(ENGLISH_LOCAL_PATTERN, Locale.ENGLISH);
+        }
+      };
 
   public static Date parse(String pattern, Object value) throws Exception {
     String valueString = (String) value;
-    return DateUtil.mDateFormatLoadingCache.get(pattern).parse(valueString);
+    return DateUtil.mDateFormatLoadingCache.get().get(pattern).parse(valueString);
+  }
+
+  /**
+   * 解析 Date#toString() 格式的日期, 如: Fri Jul 14 02:40:00 UTC 2017
+   */
+  public static Date parseEnglishLocal(String value) throws ParseException {
+    return DateUtil.mEnglishLocalDateFormat.get().parse(value);
   }
 
   public static String format(String pattern, Date value) {
     try {
-      return DateUtil.mDateFormatLoadingCache.get(pattern).format(value);
+      return DateUtil.mDateFormatLoadingCache.get().get(pattern).format(value);
     } catch (ExecutionException e) {
       e.printStackTrace();
     }
@@ -15,17 +15,28 @@
 
 package com.wuwenze.poi.util;
 
+import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.wuwenze.poi.config.ExcelWriterConfig;
 import com.wuwenze.poi.config.Options;
 import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.xlsx.ExcelXlsxWorkbook;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.apache.poi.ss.usermodel.DataValidation;
 import org.apache.poi.ss.usermodel.DataValidationConstraint;
 import org.apache.poi.ss.usermodel.DataValidationHelper;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.SheetVisibility;
 import org.apache.poi.ss.util.CellRangeAddressList;
 import org.apache.poi.xssf.streaming.SXSSFCell;
 import org.apache.poi.xssf.streaming.SXSSFRow;
@@ -38,15 +49,18 @@ import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class POIUtil {
 
-  private static final int mDefaultRowAccessWindowSize = 100;
+  /**
+   * 数据有效性中直接写入的选项的上限, 超出时使用隐藏 sheet
+   */
+  private static final int MAX_INLINE_OPTIONS = 100;
+  private static final int MAX_INLINE_OPTIONS_LENGTH = 255;
 
-
-  private static SXSSFWorkbook newSXSSFWorkbook(int rowAccessWindowSize) {
-    return new SXSSFWorkbook(rowAccessWindowSize);
+  public static SXSSFWorkbook newSXSSFWorkbook(ExcelWriterConfig config) {
+    return new ExcelXlsxWorkbook(config);
   }
 
   public static SXSSFWorkbook newSXSSFWorkbook() {
-    return POIUtil.newSXSSFWorkbook(POIUtil.mDefaultRowAccessWindowSize);
+    return POIUtil.newSXSSFWorkbook(new ExcelWriterConfig());
   }
 
   public static SXSSFSheet newSXSSFSheet(SXSSFWorkbook wb, String sheetName) {
@@ -63,28 +77,47 @@ public class POIUtil {
 
   public static void setColumnWidth(
       SXSSFSheet sheet, int index, Short width, String value) {
+    sheet.setColumnWidth(index, POIUtil.getColumnWidth(width, value));
+  }
+
+  /**
+   * @param width 配置的列宽, 未配置时按表头长度计算
+   * @param value 表头
+   * @return 列宽, 单位为 1/256 个字符宽度
+   */
+  public static int getColumnWidth(Short width, String value) {
     boolean widthNotHaveConfig = (null == width || width == -1);
     if (widthNotHaveConfig && !ValidatorUtil.isEmpty(value)) {
-      sheet.setColumnWidth(index, (short) (value.length() * 2048));
-    } else {
-      width = widthNotHaveConfig ? 200 : width;
-      sheet.setColumnWidth(index, (short) (width * 35.7));
+      return (short) (value.length() * 2048);
     }
+    width = widthNotHaveConfig ? 200 : width;
+    return (short) (width * 35.7);
   }
 
   public static void setColumnCellRange(SXSSFSheet sheet, Options options,
       int firstRow, int endRow,
       int firstCell, int endCell) {
+    setColumnCellRange(sheet, options, firstRow, endRow, firstCell, endCell, false);
+  }
+
+  /**
+   * 设置下拉选项. 选项较多或 useLookupSheet 为 true 时, 将选项写入隐藏的 sheet 并定义名称,
+   * 数据有效性通过名称引用; 相同的选项数据在同一个工作簿中只写一次.
+   *
+   * @param useLookupSheet 是否总是使用隐藏 sheet
+   */
+  public static void setColumnCellRange(SXSSFSheet sheet, Options options,
+      int firstRow, int endRow,
+      int firstCell, int endCell, boolean useLookupSheet) {
     if (null != options) {
       String[] datasource = options.get();
       if (null != datasource && datasource.length > 0) {
-        if (datasource.length > 100) {
-          throw new ExcelKitRuntimeException("Options item too much.");
-        }
-
         DataValidationHelper validationHelper = sheet.getDataValidationHelper();
-        DataValidationConstraint explicitListConstraint = validationHelper
-            .createExplicitListConstraint(datasource);
+        DataValidationConstraint explicitListConstraint =
+            !useLookupSheet && POIUtil.isInlineOptions(datasource)
+                ? validationHelper.createExplicitListConstraint(datasource)
+                : validationHelper.createFormulaListConstraint(
+                    POIUtil.getOptionsName(sheet.getWorkbook(), datasource));
         CellRangeAddressList regions = new CellRangeAddressList(firstRow, endRow, firstCell,
             endCell);
         DataValidation validation = validationHelper
@@ -97,6 +130,44 @@ public class POIUtil {
     }
   }
 
+  private static boolean isInlineOptions(String[] datasource) {
+    if (datasource.length > MAX_INLINE_OPTIONS) {
+      return false;
+    }
+    int length = datasource.length - 1;
+    for (String item : datasource) {
+      length += null != item ? item.length() : 0;
+    }
+    return length <= MAX_INLINE_OPTIONS_LENGTH;
+  }
+
+  /**
+   * @return 指向选项所在区域的名称, 不存在时创建隐藏的 sheet 写入选项
+   */
+  private static String getOptionsName(SXSSFWorkbook workbook, String[] datasource) {
+    Hasher hasher = Hashing.sha1().newHasher();
+    for (String item : datasource) {
+      hasher.putInt(null != item ? item.length() : -1).putString(Strings.nullToEmpty(item),
+          Charset.forName(Const.ENCODING));
+    }
+    String name = Const.XLSX_OPTIONS_NAME_PREFIX + hasher.hash().toString().substring(0, 12);
+    if (null != workbook.getName(name)) {
+      return name;
+    }
+    SXSSFSheet optionsSheet = workbook.createSheet(name);
+    for (int i = 0; i < datasource.length; i++) {
+      SXSSFCell cell = POIUtil.newSXSSFCell(POIUtil.newSXSSFRow(optionsSheet, i), 0);
+      if (null != datasource[i]) {
+        cell.setCellValue(datasource[i]);
+      }
+    }
+    workbook.setSheetVisibility(workbook.getSheetIndex(optionsSheet), SheetVisibility.VERY_HIDDEN);
+    Name optionsName = workbook.createName();
+    optionsName.setNameName(name);
+    optionsName.setRefersToFormula("'" + name + "'!$A$1:$A$" + datasource.length);
+    return name;
+  }
+
   public static void write(SXSSFWorkbook wb, OutputStream out) {
     try {
       if (null != out) {
@@ -129,6 +200,193 @@ public class POIUtil {
     }
   }
 
+  /**
+   * 设置 ETag, 客户端的 If-None-Match 与之匹配时响应 304
+   *
+   * @param eTag 带引号的 ETag
+   * @param request 原生 request 对象, 为 null 时总是返回 false
+   * @param response 原生 response 对象
+   * @return 是否已响应 304
+   */
+  public static boolean notModified(String eTag, HttpServletRequest request,
+      HttpServletResponse response) {
+    response.setHeader(Const.HTTP_ETAG_HEADER, eTag);
+    response.setHeader("Cache-Control", "no-cache");
+    String ifNoneMatch =
+        null != request ? request.getHeader(Const.HTTP_IF_NONE_MATCH_HEADER) : null;
+    if (ValidatorUtil.isEmpty(ifNoneMatch)) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if ("*".equals(candidate) || eTag.equals(candidate)) {
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 将内存中的文件内容传输给浏览器并设置 Content-Length
+   *
+   * @param content 文件内容
+   * @param eTag 带引号的 ETag, 可为 null
+   * @param response 原生 response 对象
+   * @param filename 下载文件名(已编码)
+   * @throws IOException 传输失败
+   */
+  public static void download(byte[] content, String eTag, HttpServletResponse response,
+      String filename) throws IOException {
+    response.setContentType(Const.XLSX_CONTENT_TYPE);
+    response.setHeader(Const.XLSX_HEADER_KEY,
+        String.format(Const.XLSX_HEADER_VALUE_TEMPLATE, filename));
+    if (null != eTag) {
+      response.setHeader(Const.HTTP_ETAG_HEADER, eTag);
+    }
+    response.setHeader("Content-Length", String.valueOf(content.length));
+    OutputStream outputStream = response.getOutputStream();
+    try {
+      outputStream.write(content);
+      outputStream.flush();
+    } finally {
+      outputStream.close();
+    }
+  }
+
+  /**
+   * 将已生成的文件传输给浏览器, 设置 Content-Length; 传入 request 时支持单个区间的 Range 请求.
+   * <p>
+   * 只有内容稳定的已保存文件(如导出任务的下载句柄)才应传入 request: 响应带有由文件长度与修改时间生成的
+   * 强 ETag 及 Last-Modified; 请求带有 If-Range 且与之不一致时(文件已重新生成), 忽略 Range 并返回整个文件.
+   * 每次请求重新生成的文件传入 null, 不声明 Accept-Ranges, 总是返回整个文件.
+   * 文件内容经由 servlet 输出流缓冲复制 (servlet API 不提供零拷贝传输).
+   *
+   * @param file 已生成的文件
+   * @param request 原生 request 对象, 为 null 时不支持 Range
+   * @param response 原生 response 对象
+   * @param filename 下载文件名(已编码)
+   * @throws IOException 传输失败
+   */
+  public static void download(File file, HttpServletRequest request,
+      HttpServletResponse response, String filename) throws IOException {
+    long length = file.length();
+    long[] range = new long[]{0, length - 1};
+    response.setContentType(Const.XLSX_CONTENT_TYPE);
+    response.setHeader(Const.XLSX_HEADER_KEY,
+        String.format(Const.XLSX_HEADER_VALUE_TEMPLATE, filename));
+    if (null != request) {
+      long lastModified = file.lastModified();
+      String eTag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+      if (POIUtil.ifRangeMatches(request, eTag, lastModified)) {
+        range = POIUtil.parseRange(request.getHeader(Const.HTTP_RANGE_HEADER), length);
+      }
+      response.setHeader("Accept-Ranges", "bytes");
+      response.setHeader(Const.HTTP_ETAG_HEADER, eTag);
+      response.setDateHeader(Const.HTTP_LAST_MODIFIED_HEADER, lastModified);
+    }
+    if (null == range) {
+      response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+      response.setHeader("Content-Range", "bytes */" + length);
+      return;
+    }
+    long start = range[0], end = range[1];
+    if (start != 0 || end != length - 1) {
+      response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+      response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+    }
+    response.setHeader("Content-Length", String.valueOf(end - start + 1));
+    FileInputStream in = new FileInputStream(file);
+    try {
+      in.getChannel().position(start);
+      long copied = ByteStreams.copy(ByteStreams.limit(in, end - start + 1),
+          response.getOutputStream());
+      if (copied != end - start + 1) {
+        throw new IOException("Transfer of [" + file + "] stopped at " + (start + copied));
+      }
+      response.flushBuffer();
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * @return 请求没有 If-Range, 或 If-Range 与当前文件的 ETag(强比较)/Last-Modified 一致
+   */
+  private static boolean ifRangeMatches(HttpServletRequest request, String eTag,
+      long lastModified) {
+    String ifRange = request.getHeader(Const.HTTP_IF_RANGE_HEADER);
+    if (ValidatorUtil.isEmpty(ifRange)) {
+      return true;
+    }
+    ifRange = ifRange.trim();
+    if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+      return eTag.equals(ifRange);
+    }
+    try {
+      long date = request.getDateHeader(Const.HTTP_IF_RANGE_HEADER);
+      // HTTP 日期精确到秒
+      return date >= 0 && date / 1000 == lastModified / 1000;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  /**
+   * 解析 Range 请求头, 仅支持单个区间, 其余情况(包括语法无效的区间, 如 bytes=5-3)返回整个文件
+   *
+   * @return [start, end], 有效区间起始于文件末尾之后(无法满足)时返回 null
+   */
+  private static long[] parseRange(String rangeHeader, long length) {
+    long[] full = new long[]{0, length - 1};
+    if (null == rangeHeader || !rangeHeader.startsWith(Const.HTTP_RANGE_UNIT_PREFIX)
+        || rangeHeader.contains(",")) {
+      return full;
+    }
+    String spec = rangeHeader.substring(Const.HTTP_RANGE_UNIT_PREFIX.length()).trim();
+    int dash = spec.indexOf('-');
+    if (dash < 0) {
+      return full;
+    }
+    try {
+      String first = spec.substring(0, dash).trim(), last = spec.substring(dash + 1).trim();
+      long start, end;
+      if (first.isEmpty()) {
+        // bytes=-500 => 最后500个字节
+        long suffix = Long.parseLong(last);
+        if (suffix <= 0) {
+          return null;
+        }
+        start = Math.max(0, length - suffix);
+        end = length - 1;
+      } else {
+        start = Long.parseLong(first);
+        end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+        if (start < 0 || end < start) {
+          // RFC 7233: 语法无效的 Range 应忽略
+          return full;
+        }
+        end = Math.min(end, length - 1);
+      }
+      return start >= length ? null : new long[]{start, end};
+    } catch (NumberFormatException e) {
+      return full;
+    }
+  }
+
+  /**
+   * 在指定目录(为 null 时使用 java.io.tmpdir)中创建导出用的临时文件
+   */
+  public static File createTempFile(File directory) throws IOException {
+    if (null != directory && !directory.exists() && !directory.mkdirs() && !directory.exists()) {
+      throw new IOException("Could not create temp directory " + directory);
+    }
+    return File.createTempFile(Const.XLSX_TEMP_FILE_PREFIX, Const.XLSX_SUFFIX, directory);
+  }
+
   public static Object convertByExp(Object propertyValue, String converterExp)
       throws Exception {
     try {
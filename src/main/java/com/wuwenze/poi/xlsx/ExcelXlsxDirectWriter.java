@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.xlsx;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.pojo.ExcelProperty;
+import com.wuwenze.poi.util.Const;
+import com.wuwenze.poi.util.POIUtil;
+import com.wuwenze.poi.xlsx.ExcelXlsxStyleRegistry.CellStyleSpec;
+import com.wuwenze.poi.xlsx.ExcelXlsxZipWriter.CompressedPart;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.WorkbookUtil;
+
+/**
+ * 不经过 SXSSF 直接生成 xlsx: 行数据以内联字符串的形式直接写入 zip 中的 sheet 部件,
+ * 不创建行/单元格对象, 也不产生临时文件. sheet 写完后才写入 workbook.xml 等索引部件.
+ * <p>
+ * 用法: startSheet() =&gt; writeRow() ... =&gt; endSheet() ... =&gt; finish().
+ * 也可以在其他线程中通过 newSheetPart() 渲染 sheet, 再按顺序 addSheetPart(), 两种方式生成的文件相同.
+ * 非线程安全, 不支持批注与数据有效性(模板导出请使用 SXSSF).
+ *
+ * @author wuwenze
+ */
+public class ExcelXlsxDirectWriter {
+
+  private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+  private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+  private static final String NS_R =
+      "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+  private static final String NS_PACKAGE_R =
+      "http://schemas.openxmlformats.org/package/2006/relationships";
+  private static final Charset UTF_8 = Charset.forName(Const.ENCODING);
+  private static final int MAX_SHEET_NAME_LENGTH = 31;
+  private static final int MAX_COLUMN_WIDTH = 255 * 256;
+
+  private final ExcelXlsxZipWriter mZipWriter;
+  private final ExcelXlsxStylesPart mStylesPart = new ExcelXlsxStylesPart();
+  private final int mHeaderStyle;
+  private final int mDataStyle;
+  private final List<String> mSheetNames = Lists.newArrayList();
+  private final Set<String> mSheetNameKeys = Sets.newHashSet();
+  private SheetPart mCurrentSheet = null;
+
+  /**
+   * @param outputStream 输出流, finish() 后不会关闭
+   */
+  public ExcelXlsxDirectWriter(OutputStream outputStream) {
+    this(outputStream, Deflater.DEFAULT_COMPRESSION, null, 1);
+  }
+
+  /**
+   * @param outputStream 输出流, finish() 后不会关闭
+   * @param compressionLevel 压缩级别 (0-9, -1 为默认, 0 为仅存储)
+   * @param executor 不为 null 时, 通过 startSheet() 写入的 sheet 分块并行压缩
+   * @param parallelism 并行度
+   */
+  public ExcelXlsxDirectWriter(OutputStream outputStream, int compressionLevel,
+      ExecutorService executor, int parallelism) {
+    mZipWriter = new ExcelXlsxZipWriter(outputStream, compressionLevel, executor, parallelism);
+    mHeaderStyle = mStylesPart.getCellStyleIndex(ExcelXlsxStyleRegistry.HEADER_CELL_STYLE);
+    mDataStyle = mStylesPart.getCellStyleIndex(ExcelXlsxStyleRegistry.DATA_CELL_STYLE);
+  }
+
+  /**
+   * 开始一个新的 sheet 并写入列宽与表头
+   *
+   * @param sheetName sheet 名称
+   * @param propertyList 列配置
+   * @param headers 表头, 与 propertyList 一一对应
+   */
+  public void startSheet(String sheetName, List<ExcelProperty> propertyList, String[] headers)
+      throws IOException {
+    endSheet();
+    addSheetName(sheetName);
+    mCurrentSheet = new SheetPart(mZipWriter.putEntry(getSheetPartName(mSheetNames.size())),
+        propertyList, headers);
+  }
+
+  /**
+   * 写入一行数据, null 表示空单元格
+   *
+   * @param values 单元格的值
+   */
+  public void writeRow(String[] values) throws IOException {
+    mCurrentSheet.writeRow(values);
+  }
+
+  /**
+   * 写入一行数据并为每个单元格指定样式
+   *
+   * @param values 单元格的值
+   * @param styles 单元格的样式下标 (见 getCellStyleIndex), 与 values 一一对应
+   * @param numeric 为 true 的单元格按数值写入 (值须为数字), 与 values 一一对应
+   */
+  void writeRow(String[] values, int[] styles, boolean[] numeric) throws IOException {
+    mCurrentSheet.writeRow(values, mDataStyle, styles, numeric);
+  }
+
+  /**
+   * @param spec 样式描述
+   * @return 单元格使用的样式下标, 相同的样式只注册一次
+   */
+  int getCellStyleIndex(CellStyleSpec spec) {
+    return mStylesPart.getCellStyleIndex(spec);
+  }
+
+  /**
+   * 结束当前 sheet
+   */
+  public void endSheet() throws IOException {
+    if (null != mCurrentSheet) {
+      mCurrentSheet.close();
+      mCurrentSheet = null;
+    }
+  }
+
+  /**
+   * 创建一个写入内存缓冲区(边写边压缩)的 sheet, 可在其他线程中写入, 之后通过 addSheetPart 追加
+   *
+   * @param propertyList 列配置
+   * @param headers 表头
+   */
+  SheetPart newSheetPart(List<ExcelProperty> propertyList, String[] headers) throws IOException {
+    return new SheetPart(mZipWriter.newCompressedPart(), propertyList, headers);
+  }
+
+  /**
+   * 按顺序追加由 newSheetPart 渲染完成的 sheet
+   */
+  void addSheetPart(String sheetName, SheetPart sheetPart) throws IOException {
+    endSheet();
+    sheetPart.close();
+    addSheetName(sheetName);
+    mZipWriter.putCompressedEntry(getSheetPartName(mSheetNames.size()),
+        (CompressedPart) sheetPart.mOutputStream);
+  }
+
+  /**
+   * 写入 workbook、样式及关系部件并结束 zip, 不关闭底层输出流
+   */
+  public void finish() throws IOException {
+    endSheet();
+    int sheetCount = mSheetNames.size();
+
+    Writer writer = openPart("[Content_Types].xml");
+    writer.write(XML_HEADER);
+    writer.write("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+        + "<Default Extension=\"rels\" "
+        + "ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+        + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+        + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/"
+        + "vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+        + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/"
+        + "vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+    for (int i = 1; i <= sheetCount; i++) {
+      writer.write("<Override PartName=\"/" + getSheetPartName(i) + "\" ContentType="
+          + "\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+    }
+    writer.write("</Types>");
+    writer.close();
+
+    writer = openPart("_rels/.rels");
+    writer.write(XML_HEADER);
+    writer.write("<Relationships xmlns=\"" + NS_PACKAGE_R + "\">"
+        + "<Relationship Id=\"rId1\" Type=\"" + NS_R + "/officeDocument\" "
+        + "Target=\"xl/workbook.xml\"/></Relationships>");
+    writer.close();
+
+    // sheet 使用 rId1..n, 与 ExcelXlsxReader 按 rId 查找 sheet 的方式一致
+    writer = openPart("xl/_rels/workbook.xml.rels");
+    writer.write(XML_HEADER);
+    writer.write("<Relationships xmlns=\"" + NS_PACKAGE_R + "\">");
+    for (int i = 1; i <= sheetCount; i++) {
+      writer.write("<Relationship Id=\"rId" + i + "\" Type=\"" + NS_R + "/worksheet\" "
+          + "Target=\"worksheets/sheet" + i + ".xml\"/>");
+    }
+    writer.write("<Relationship Id=\"rId" + (sheetCount + 1) + "\" Type=\"" + NS_R
+        + "/styles\" Target=\"styles.xml\"/></Relationships>");
+    writer.close();
+
+    writer = openPart("xl/workbook.xml");
+    writer.write(XML_HEADER);
+    writer.write("<workbook xmlns=\"" + NS_MAIN + "\" xmlns:r=\"" + NS_R + "\">"
+        + "<workbookPr date1904=\"false\"/><bookViews><workbookView activeTab=\"0\"/>"
+        + "</bookViews><sheets>");
+    for (int i = 0; i < sheetCount; i++) {
+      writer.write("<sheet name=\"");
+      writeEscaped(writer, mSheetNames.get(i));
+      writer.write("\" sheetId=\"" + (i + 1) + "\" r:id=\"rId" + (i + 1) + "\"/>");
+    }
+    writer.write("</sheets></workbook>");
+    writer.close();
+
+    writer = openPart("xl/styles.xml");
+    mStylesPart.write(writer);
+    writer.close();
+
+    mZipWriter.finish();
+  }
+
+  private Writer openPart(String name) throws IOException {
+    return newWriter(mZipWriter.putEntry(name));
+  }
+
+  private static Writer newWriter(OutputStream outputStream) {
+    return new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8), 64 * 1024);
+  }
+
+  private static String getSheetPartName(int sheetNo) {
+    return "xl/worksheets/sheet" + sheetNo + ".xml";
+  }
+
+  private void addSheetName(String sheetName) {
+    WorkbookUtil.validateSheetName(sheetName);
+    if (sheetName.length() > MAX_SHEET_NAME_LENGTH) {
+      sheetName = sheetName.substring(0, MAX_SHEET_NAME_LENGTH);
+    }
+    if (!mSheetNameKeys.add(sheetName.toUpperCase(Locale.ROOT))) {
+      throw new ExcelKitRuntimeException(
+          "The workbook already contains a sheet named '" + sheetName + "'.");
+    }
+    mSheetNames.add(sheetName);
+  }
+
+  /**
+   * 单个 sheet 部件的 XML 写入
+   */
+  class SheetPart {
+
+    private final OutputStream mOutputStream;
+    private final Writer mWriter;
+    private final String[] mCellRefs;
+    private int mRowNo = 0;
+    private boolean mClosed = false;
+
+    private SheetPart(OutputStream outputStream, List<ExcelProperty> propertyList,
+        String[] headers) throws IOException {
+      mOutputStream = outputStream;
+      mWriter = newWriter(outputStream);
+      mCellRefs = new String[propertyList.size()];
+      for (int i = 0; i < mCellRefs.length; i++) {
+        mCellRefs[i] = CellReference.convertNumToColString(i);
+      }
+      mWriter.write(XML_HEADER);
+      mWriter.write("<worksheet xmlns=\"" + NS_MAIN + "\" xmlns:r=\"" + NS_R + "\">");
+      mWriter.write("<sheetFormatPr defaultRowHeight=\"15.0\"/>");
+      if (!propertyList.isEmpty()) {
+        mWriter.write("<cols>");
+        for (int i = 0; i < propertyList.size(); i++) {
+          ExcelProperty property = propertyList.get(i);
+          int width = POIUtil.getColumnWidth(property.getWidth(), property.getColumn());
+          if (width < 0) {
+            // 表头过长时 short 溢出, 使用最大列宽
+            width = MAX_COLUMN_WIDTH;
+          }
+          mWriter.write("<col min=\"" + (i + 1) + "\" max=\"" + (i + 1) + "\" width=\""
+              + (width / 256.0) + "\" customWidth=\"true\"/>");
+        }
+        mWriter.write("</cols>");
+      }
+      mWriter.write("<sheetData>");
+      writeRow(headers, mHeaderStyle, null, null);
+    }
+
+    void writeRow(String[] values) throws IOException {
+      writeRow(values, mDataStyle, null, null);
+    }
+
+    /**
+     * @param style 单元格样式下标
+     * @param styles 不为 null 时按列指定样式下标, 代替 style
+     * @param numeric 不为 null 时标记按数值写入的列, 其余列写入内联字符串
+     */
+    private void writeRow(String[] values, int style, int[] styles, boolean[] numeric)
+        throws IOException {
+      if (mRowNo >= SpreadsheetVersion.EXCEL2007.getMaxRows()) {
+        throw new ExcelKitRuntimeException("Invalid row number (" + mRowNo
+            + ") outside allowable range (0.." + SpreadsheetVersion.EXCEL2007.getLastRowIndex()
+            + ")");
+      }
+      String rowNo = String.valueOf(++mRowNo);
+      String styleIndex = Integer.toString(style);
+      Writer writer = mWriter;
+      writer.write("<row r=\"");
+      writer.write(rowNo);
+      writer.write("\">");
+      for (int i = 0; i < values.length; i++) {
+        writer.write("<c r=\"");
+        writer.write(mCellRefs[i]);
+        writer.write(rowNo);
+        writer.write("\" s=\"");
+        writer.write(null != styles ? Integer.toString(styles[i]) : styleIndex);
+        String value = values[i];
+        if (null == value) {
+          writer.write("\"/>");
+          continue;
+        }
+        if (null != numeric && numeric[i]) {
+          writer.write("\"><v>");
+          writer.write(value);
+          writer.write("</v></c>");
+          continue;
+        }
+        writer.write("\" t=\"inlineStr\"><is><t");
+        if (!value.isEmpty() && (Character.isWhitespace(value.charAt(0))
+            || Character.isWhitespace(value.charAt(value.length() - 1)))) {
+          writer.write(" xml:space=\"preserve\"");
+        }
+        writer.write('>');
+        writeEscaped(writer, value);
+        writer.write("</t></is></c>");
+      }
+      writer.write("</row>");
+    }
+
+    void close() throws IOException {
+      if (mClosed) {
+        return;
+      }
+      mClosed = true;
+      mWriter.write("</sheetData><pageMargins bottom=\"0.75\" footer=\"0.3\" header=\"0.3\""
+          + " left=\"0.7\" right=\"0.7\" top=\"0.75\"/></worksheet>");
+      mWriter.close();
+    }
+  }
+
+  /**
+   * XML 转义. 与 SXSSF 一致: 换行与制表符使用字符引用, 其余控制字符及非法字符替换为 '?',
+   * 非 ASCII 字符直接以 UTF-8 写出.
+   */
+  static void writeEscaped(Writer writer, String value) throws IOException {
+    int length = value.length();
+    int last = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      String replacement;
+      switch (c) {
+        case '<':
+          replacement = "&lt;";
+          break;
+        case '>':
+          replacement = "&gt;";
+          break;
+        case '&':
+          replacement = "&amp;";
+          break;
+        case '"':
+          replacement = "&quot;";
+          break;
+        case '\n':
+          replacement = "&#xa;";
+          break;
+        case '\r':
+          replacement = "&#xd;";
+          break;
+        case '\t':
+          replacement = "&#x9;";
+          break;
+        default:
+          if (c >= 0x20 && c < 0xFFFE) {
+            continue;
+          }
+          replacement = "?";
+      }
+      if (i > last) {
+        writer.write(value, last, i - last);
+      }
+      writer.write(replacement);
+      last = i + 1;
+    }
+    if (length > last) {
+      writer.write(value, last, length - last);
+    }
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.xlsx;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.wuwenze.poi.pojo.ExcelErrorField;
+import com.wuwenze.poi.pojo.ExcelProperty;
+import com.wuwenze.poi.util.Const;
+import com.wuwenze.poi.xlsx.ExcelXlsxStyleRegistry.CellStyleSpec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 导入时生成的错误工作簿: ExcelXlsxReader 在解析的同时将失败行(或所有行)的原始值写入,
+ * 校验失败的单元格标红, 错误信息写入最后一列 ({@link Const#XLSX_ERROR_COLUMN_NAME}).
+ * 数值及日期单元格保持数值类型并沿用原数字格式, 其余单元格写为文本.
+ * <p>
+ * 基于 ExcelXlsxDirectWriter 逐行写入输出流, 不保留行数据也不产生临时文件, 内存占用与错误行数无关.
+ * 修正后的错误工作簿可以直接重新导入, 导入时忽略错误信息列.
+ * 导入结束后需要调用 {@link #finish()} (ExcelKit 会自动调用).
+ *
+ * @author wuwenze
+ */
+public class ExcelXlsxErrorWorkbook {
+
+  private final ExcelXlsxDirectWriter mWriter;
+  private final boolean mAllRows;
+  private final int mDataStyle;
+  private final int mErrorStyle;
+  private final int mErrorMessageStyle;
+  /**
+   * 原数字格式 =&gt; 数值单元格的样式下标
+   */
+  private final Map<String, Integer> mNumericStyles = Maps.newHashMap();
+  private final Map<String, Integer> mNumericErrorStyles = Maps.newHashMap();
+  private int mColumnCount = -1;
+  private long mRows = 0;
+  private long mErrorRows = 0;
+
+  /**
+   * @param outputStream 输出流, finish() 后不会关闭
+   * @param allRows true: 写入所有行; false: 只写入失败的行
+   */
+  public ExcelXlsxErrorWorkbook(OutputStream outputStream, boolean allRows) {
+    mWriter = new ExcelXlsxDirectWriter(outputStream);
+    mAllRows = allRows;
+    mDataStyle = mWriter.getCellStyleIndex(ExcelXlsxStyleRegistry.DATA_CELL_STYLE);
+    mErrorStyle = mWriter.getCellStyleIndex(ExcelXlsxStyleRegistry.ERROR_CELL_STYLE);
+    mErrorMessageStyle = mWriter.getCellStyleIndex(
+        ExcelXlsxStyleRegistry.ERROR_MESSAGE_CELL_STYLE);
+  }
+
+  /**
+   * 开始一个新的 sheet, 写入原表头与错误信息列
+   *
+   * @param sheetName sheet 名称
+   * @param headers 原表头
+   * @param propertyMap 表头对应的列配置, 用于列宽
+   */
+  void startSheet(String sheetName, List<String> headers, Map<String, ExcelProperty> propertyMap)
+      throws IOException {
+    List<ExcelProperty> propertyList = Lists.newArrayList();
+    String[] headerValues = new String[headers.size() + 1];
+    for (int i = 0; i < headers.size(); i++) {
+      ExcelProperty property = propertyMap.get(headers.get(i));
+      propertyList.add(null != property ? property
+          : ExcelProperty.builder().column(headers.get(i)).build());
+      headerValues[i] = headers.get(i);
+    }
+    propertyList.add(ExcelProperty.builder().column(Const.XLSX_ERROR_COLUMN_NAME).build());
+    headerValues[headers.size()] = Const.XLSX_ERROR_COLUMN_NAME;
+    mWriter.startSheet(sheetName, propertyList, headerValues);
+    mColumnCount = headers.size();
+  }
+
+  /**
+   * 写入一行原始数据, 未开始 sheet 时忽略
+   *
+   * @param rowData 原始单元格的值, 与表头一一对应
+   * @param emptyCellValue 表示空单元格的值
+   * @param errorFields 校验失败的字段, 为空表示成功的行
+   * @param numericCells 数值单元格的下标 =&gt; 原始值及数字格式, 代替 rowData 中格式化后的值
+   */
+  void writeRow(List<Object> rowData, Object emptyCellValue, List<ExcelErrorField> errorFields,
+      Map<Integer, NumericCell> numericCells) throws IOException {
+    boolean failed = !errorFields.isEmpty();
+    if (mColumnCount < 0 || (!failed && !mAllRows)) {
+      return;
+    }
+    String[] values = new String[mColumnCount + 1];
+    for (int i = 0; i < mColumnCount && i < rowData.size(); i++) {
+      Object value = rowData.get(i);
+      values[i] = null == value || value.equals(emptyCellValue) ? null : String.valueOf(value);
+    }
+    int[] styles = new int[values.length];
+    Arrays.fill(styles, mDataStyle);
+    mRows++;
+    if (failed) {
+      mErrorRows++;
+      values[mColumnCount] = getErrorMessage(errorFields, styles);
+      styles[mColumnCount] = mErrorMessageStyle;
+    }
+    boolean[] numeric = new boolean[values.length];
+    for (Map.Entry<Integer, NumericCell> entry : numericCells.entrySet()) {
+      int i = entry.getKey();
+      if (i < mColumnCount) {
+        values[i] = entry.getValue().mValue;
+        numeric[i] = true;
+        styles[i] = getNumericStyle(entry.getValue().mFormat, styles[i] == mErrorStyle);
+      }
+    }
+    mWriter.writeRow(values, styles, numeric);
+  }
+
+  /**
+   * 合并错误信息, 并将校验失败的单元格标为错误样式
+   */
+  private String getErrorMessage(List<ExcelErrorField> errorFields, int[] styles) {
+    StringBuilder errorMessage = new StringBuilder();
+    for (ExcelErrorField errorField : errorFields) {
+      Integer cellIndex = errorField.getCellIndex();
+      if (null != cellIndex && cellIndex >= 0 && cellIndex < mColumnCount) {
+        styles[cellIndex] = mErrorStyle;
+      }
+      if (errorMessage.length() > 0) {
+        errorMessage.append("; ");
+      }
+      if (null != errorField.getColumn()) {
+        errorMessage.append(errorField.getColumn()).append(": ");
+      }
+      errorMessage.append(errorField.getErrorMessage());
+    }
+    return errorMessage.toString();
+  }
+
+  private int getNumericStyle(String format, boolean error) {
+    Map<String, Integer> numericStyles = error ? mNumericErrorStyles : mNumericStyles;
+    Integer style = numericStyles.get(format);
+    if (null == style) {
+      CellStyleSpec spec = error ? ExcelXlsxStyleRegistry.ERROR_CELL_STYLE
+          : ExcelXlsxStyleRegistry.DATA_CELL_STYLE;
+      style = mWriter.getCellStyleIndex(spec.toBuilder().dataFormat(format).build());
+      numericStyles.put(format, style);
+    }
+    return style;
+  }
+
+  /**
+   * 结束工作簿, 不关闭底层输出流. 没有可导入的 sheet 时生成只有错误信息列的空 sheet
+   */
+  public void finish() throws IOException {
+    if (mColumnCount < 0) {
+      startSheet("Sheet1", Lists.<String>newArrayList(), null);
+    }
+    mWriter.finish();
+  }
+
+  /**
+   * @return 已写入的数据行数
+   */
+  public long getRows() {
+    return mRows;
+  }
+
+  /**
+   * @return 已写入的失败行数
+   */
+  public long getErrorRows() {
+    return mErrorRows;
+  }
+
+  /**
+   * 源文件中的数值(含日期)单元格
+   */
+  static class NumericCell {
+
+    private final String mValue;
+    private final String mFormat;
+
+    /**
+     * @param value 单元格中保存的数值
+     * @param format 原数字格式, 如 General, 0.00, yyyy-mm-dd
+     */
+    NumericCell(String value, String format) {
+      mValue = value;
+      mFormat = format;
+    }
+  }
+}
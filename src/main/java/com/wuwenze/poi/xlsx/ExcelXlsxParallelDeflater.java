@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.xlsx;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+/**
+ * 分块并行压缩 (同 pigz): 输入按固定大小分块, 每块在线程池中独立压缩,
+ * 以前一块末尾 32KB 作为预置字典, 块尾 SYNC_FLUSH 对齐到字节, 最后一块 FINISH,
+ * 按顺序拼接后即为一个完整的 raw deflate 流.
+ * <p>
+ * 分块边界只取决于输入的字节偏移, 因此相同输入得到相同输出. 压缩率略低于单线程 (每块损失少量匹配).
+ * <p>
+ * SYNC_FLUSH 需要 Java 7 的 Deflater#deflate(byte[], int, int, int), 在 Java 6 上 {@link #SUPPORTED}
+ * 为 false, 由调用方改用单线程压缩.
+ *
+ * @author wuwenze
+ */
+class ExcelXlsxParallelDeflater extends OutputStream {
+
+  /**
+   * 当前运行时是否支持分块并行压缩 (Java 7+)
+   */
+  static final boolean SUPPORTED = isSyncFlushSupported();
+  static final int BLOCK_SIZE = 128 * 1024;
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+
+  private final OutputStream mTarget;
+  private final int mLevel;
+  private final ExecutorService mExecutor;
+  private final int mMaxInFlight;
+  private final Deque<Future<byte[]>> mPending = new ArrayDeque<Future<byte[]>>();
+  private byte[] mBlock = new byte[BLOCK_SIZE];
+  private int mBlockLength = 0;
+  private byte[] mPreviousBlock = null;
+  private boolean mClosed = false;
+
+  /**
+   * @param target 压缩结果的输出流
+   * @param level 压缩级别
+   * @param executor 线程池, 不能是正在等待本压缩器结果的线程池
+   * @param maxInFlight 同时压缩(及等待写出)的块数上限
+   */
+  ExcelXlsxParallelDeflater(OutputStream target, int level, ExecutorService executor,
+      int maxInFlight) {
+    mTarget = target;
+    mLevel = level;
+    mExecutor = executor;
+    mMaxInFlight = Math.max(1, maxInFlight);
+  }
+
+  private static boolean isSyncFlushSupported() {
+    try {
+      Deflater.class.getMethod("deflate", byte[].class, int.class, int.class, int.class);
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[]{(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (mBlockLength == BLOCK_SIZE) {
+        // 确认还有后续数据才提交, 保证 close() 时的当前块就是最后一块
+        submit(false);
+      }
+      int n = Math.min(len, BLOCK_SIZE - mBlockLength);
+      System.arraycopy(b, off, mBlock, mBlockLength, n);
+      mBlockLength += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  /**
+   * 压缩最后一块并写出所有结果, 不关闭目标输出流
+   */
+  @Override
+  public void close() throws IOException {
+    if (mClosed) {
+      return;
+    }
+    mClosed = true;
+    try {
+      submit(true);
+      while (!mPending.isEmpty()) {
+        writeCompleted();
+      }
+    } finally {
+      for (Future<byte[]> future : mPending) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private void submit(boolean last) throws IOException {
+    while (mPending.size() >= mMaxInFlight) {
+      writeCompleted();
+    }
+    final byte[] block = mBlock;
+    final int blockLength = mBlockLength;
+    final byte[] dictionary = mPreviousBlock;
+    final boolean finish = last;
+    final int level = mLevel;
+    mPending.add(mExecutor.submit(new Callable<byte[]>() {
+      @Override
+      public byte[] call() {
+        return deflate(level, dictionary, block, blockLength, finish);
+      }
+    }));
+    mPreviousBlock = block;
+    mBlock = new byte[BLOCK_SIZE];
+    mBlockLength = 0;
+  }
+
+  private void writeCompleted() throws IOException {
+    try {
+      mTarget.write(Futures.getUnchecked(mPending.poll()));
+    } catch (UncheckedExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), IOException.class);
+      throw new ExcelKitRuntimeException(e.getCause());
+    }
+  }
+
+  private static byte[] deflate(int level, byte[] dictionary, byte[] block, int blockLength,
+      boolean finish) {
+    Deflater deflater = new Deflater(level, true);
+    try {
+      if (null != dictionary) {
+        // 字典为前一块(满块)的最后 32KB
+        deflater.setDictionary(dictionary, BLOCK_SIZE - DICTIONARY_SIZE, DICTIONARY_SIZE);
+      }
+      deflater.setInput(block, 0, blockLength);
+      ByteArrayOutputStream output = new ByteArrayOutputStream(blockLength / 2 + 64);
+      byte[] buffer = new byte[16 * 1024];
+      if (finish) {
+        deflater.finish();
+        while (!deflater.finished()) {
+          output.write(buffer, 0, deflater.deflate(buffer));
+        }
+      } else {
+        int length;
+        do {
+          length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+          output.write(buffer, 0, length);
+        } while (length == buffer.length);
+      }
+      return output.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+}
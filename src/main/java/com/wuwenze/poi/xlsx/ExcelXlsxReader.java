@@ -15,27 +15,50 @@
 
 package com.wuwenze.poi.xlsx;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import com.wuwenze.poi.config.ExcelErrorPolicy;
 import com.wuwenze.poi.config.Options;
+import com.wuwenze.poi.convert.ConverterExp;
 import com.wuwenze.poi.convert.ReadConverter;
-import com.wuwenze.poi.exception.ExcelKitEncounterNoNeedXmlException;
+import com.wuwenze.poi.exception.ExcelKitCancelledException;
+import com.wuwenze.poi.exception.ExcelKitErrorThresholdException;
 import com.wuwenze.poi.exception.ExcelKitReadConverterException;
 import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.factory.ExcelMappingFactory;
+import com.wuwenze.poi.factory.ExcelMappingProvider;
+import com.wuwenze.poi.handler.ExcelReadExceptionHandler;
 import com.wuwenze.poi.handler.ExcelReadHandler;
+import com.wuwenze.poi.metrics.ExcelMetricsListener;
+import com.wuwenze.poi.metrics.ExcelReadMetrics;
+import com.wuwenze.poi.metrics.ExcelTracer;
+import com.wuwenze.poi.metrics.ExcelTracing;
 import com.wuwenze.poi.pojo.ExcelErrorField;
+import com.wuwenze.poi.pojo.ExcelErrorSummary;
 import com.wuwenze.poi.pojo.ExcelMapping;
 import com.wuwenze.poi.pojo.ExcelProperty;
+import com.wuwenze.poi.progress.ExcelProgress;
 import com.wuwenze.poi.util.*;
 import com.wuwenze.poi.validator.Validator;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.openxml4j.opc.ZipPackagePart;
 import org.apache.poi.ss.usermodel.BuiltinFormats;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.xssf.eventusermodel.XSSFReader;
 import org.apache.poi.xssf.model.SharedStringsTable;
 import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
 import org.apache.poi.xssf.usermodel.XSSFRichTextString;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
@@ -44,9 +67,20 @@ import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
 import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 
 /**
  * @author wuwenze
@@ -67,6 +101,7 @@ public class ExcelXlsxReader extends DefaultHandler {
   private final ExcelMapping mExcelMapping;
   private final ExcelReadHandler mExcelReadHandler;
   private final Class<? extends Object> mEntityClass;
+  private final ExcelMappingProvider mProvider;
   private final List<Object> mExcelRowObjectData = Lists.newArrayList();
   private final List<String> headTitleList = Lists.newArrayList();
   private final Map<String, ExcelProperty> excelPropertyMap = new HashMap<String, ExcelProperty>();
@@ -75,6 +110,61 @@ public class ExcelXlsxReader extends DefaultHandler {
 
   private final DataFormatter formatter = new DataFormatter();
 
+  /**
+   * 统计: 未设置监听器时 mTimed 为 false, 不调用 System.nanoTime()
+   */
+  private static final int STAGE_REQUIRED = 0, STAGE_MAX_LENGTH = 1, STAGE_DATE_FORMAT = 2,
+      STAGE_OPTIONS = 3, STAGE_REGULAR_EXP = 4, STAGE_VALIDATOR = 5, STAGE_CONVERSION = 6,
+      STAGE_POPULATION = 7, STAGE_HANDLER = 8, STAGE_COUNT = 9;
+  private ExcelMetricsListener mMetricsListener = ExcelMetricsListener.NOOP;
+  private boolean mTimed = false;
+  private final long[] mStageNanos = new long[STAGE_COUNT];
+  private long mBytesInflated, mRowsParsed, mRowsBound, mSuccesses, mErrors, mExceptions;
+  private final ExcelTracer mTracer = ExcelTracing.getTracer();
+  private ExcelTracer.Span mOpenSpan = null;
+  private ExcelProgress mProgress = null;
+  private CountingInputStream mSheetInputStream = null;
+  private long mReportedBytes = 0;
+
+  /**
+   * 错误策略: 未设置时不汇总错误, 行处理异常只打印堆栈
+   */
+  private ExcelErrorPolicy mErrorPolicy = null;
+  private ExcelErrorSummary mErrorSummary = null;
+  private boolean[] mErrorWindow = null;
+  private int mErrorWindowFailures = 0;
+
+  /**
+   * 错误工作簿: 当前行为数据行时 mRowErrorFields 为其校验失败的字段 (成功时为空), 否则为 null
+   */
+  private ExcelXlsxErrorWorkbook mErrorWorkbook = null;
+  private List<ExcelErrorField> mRowErrorFields = null;
+  private String mCurrentSheetName = null;
+  /**
+   * 错误工作簿: 当前行中数值(含日期)单元格的原始值及原数字格式, 按单元格下标保存
+   */
+  private final Map<Integer, ExcelXlsxErrorWorkbook.NumericCell> mRowNumericCells =
+      Maps.newHashMap();
+  private boolean mNextIsNumeric = false;
+  private String mSourceFormatString = null;
+
+  /**
+   * 仅校验(dry-run): 不创建实体也不回调 ExcelReadHandler. 校验全部通过时在错误汇总中给出内容校验和,
+   * 之后的导入传入相同的校验和(setValidatedChecksum)且内容未改变时跳过 必填/长度/下拉选项/正则 校验.
+   * 只有仅校验或传入了校验和时才计算校验和
+   */
+  private boolean mDryRun = false;
+  private String mValidatedChecksum = null;
+  private String mChecksum = null;
+  private boolean mSkipValidation = false;
+  /**
+   * 部件名 =&gt; zip 中央目录记录的 CRC-32, 跳过校验时用于在分发行之前核对部件内容
+   */
+  private final Map<String, Long> mPartCrcs = Maps.newHashMap();
+
+  private static final String CHECKSUM_ALGORITHM = "HmacSHA256";
+  private static volatile byte[] mChecksumKey = ExcelXlsxReader.newChecksumKey();
+
 
   public ExcelXlsxReader(Class<? extends Object> entityClass,//
                          ExcelMapping excelMapping, //
@@ -87,6 +177,7 @@ public class ExcelXlsxReader extends DefaultHandler {
                          Integer beginReadRowIndex,//
                          ExcelReadHandler excelReadHandler) {
     mEntityClass = entityClass;
+    mProvider = ExcelMappingFactory.getProvider(entityClass);
     mExcelMapping = excelMapping;
     if (null != beginReadRowIndex) {
       mBeginReadRowIndex = beginReadRowIndex;
@@ -94,84 +185,546 @@ public class ExcelXlsxReader extends DefaultHandler {
     mExcelReadHandler = excelReadHandler;
   }
 
+  /**
+   * @param metricsListener 导入统计, 为 null 或 NOOP 时不统计
+   * @return this
+   */
+  public ExcelXlsxReader setMetricsListener(ExcelMetricsListener metricsListener) {
+    mMetricsListener = null != metricsListener ? metricsListener : ExcelMetricsListener.NOOP;
+    mTimed = mMetricsListener != ExcelMetricsListener.NOOP;
+    return this;
+  }
+
+  /**
+   * @param progress 导入进度, 可为 null. 调用 ExcelProgress#cancel() 后在下一行停止解析并释放 OPCPackage,
+   * process 抛出 ExcelKitCancelledException
+   * @return this
+   */
+  public ExcelXlsxReader setProgress(ExcelProgress progress) {
+    mProgress = progress;
+    return this;
+  }
+
+  /**
+   * @param errorPolicy 错误策略, 可为 null. 失败行达到阈值时 process 抛出 ExcelKitErrorThresholdException
+   * @return this
+   */
+  public ExcelXlsxReader setErrorPolicy(ExcelErrorPolicy errorPolicy) {
+    mErrorPolicy = errorPolicy;
+    mErrorSummary = null != errorPolicy ? new ExcelErrorSummary(errorPolicy.getMaxStoredErrors())
+        : null;
+    mErrorWindow = null != errorPolicy && errorPolicy.getWindowSize() > 0
+        ? new boolean[errorPolicy.getWindowSize()] : null;
+    mErrorWindowFailures = 0;
+    return this;
+  }
+
+  /**
+   * @param errorWorkbook 错误工作簿, 可为 null. 解析的同时写入失败行(或所有行)及其错误信息,
+   * 导入结束后由调用方执行 ExcelXlsxErrorWorkbook#finish()
+   * @return this
+   */
+  public ExcelXlsxReader setErrorWorkbook(ExcelXlsxErrorWorkbook errorWorkbook) {
+    mErrorWorkbook = errorWorkbook;
+    return this;
+  }
+
+  /**
+   * @param dryRun 仅校验, 不创建实体也不回调 ExcelReadHandler; 需要同时设置错误策略以得到错误汇总
+   * @return this
+   */
+  public ExcelXlsxReader setDryRun(boolean dryRun) {
+    mDryRun = dryRun;
+    return this;
+  }
+
+  /**
+   * @param validatedChecksum 之前仅校验时得到的校验和 (ExcelErrorSummary#getValidatedChecksum()),
+   * 与当前内容及导入规则一致时跳过 必填/长度/下拉选项/正则 校验; 类型转换与自定义 Validator 仍然执行
+   * @return this
+   */
+  public ExcelXlsxReader setValidatedChecksum(String validatedChecksum) {
+    mValidatedChecksum = validatedChecksum;
+    return this;
+  }
+
+  /**
+   * 设置计算校验和 (ExcelErrorSummary#getValidatedChecksum()) 使用的 HMAC 密钥.
+   * 默认密钥在进程启动时随机生成, 校验和只在本进程内有效; 多个实例部署且仅校验与导入可能在不同实例上执行时,
+   * 应在启动时为所有实例设置相同的密钥. 更换密钥后之前的校验和全部失效.
+   *
+   * @param key 密钥, 建议不少于 32 字节
+   */
+  public static void setChecksumKey(byte[] key) {
+    if (null == key || key.length == 0) {
+      throw new ExcelKitRuntimeException("Checksum key must not be empty.");
+    }
+    mChecksumKey = key.clone();
+  }
+
+  /**
+   * @return 设置了错误策略时返回错误汇总, 否则返回 null
+   */
+  public ExcelErrorSummary getErrorSummary() {
+    return mErrorSummary;
+  }
+
   public void process(String fileName) throws ExcelKitRuntimeException {
+    long start = mTimed ? System.nanoTime() : 0;
+    mOpenSpan = mTracer.start(ExcelTracer.Kind.WORKBOOK_OPEN, mEntityClass, null);
     try {
       processAll(OPCPackage.open(fileName));
+    } catch (ExcelKitCancelledException e) {
+      throw e;
     } catch (Exception e) {
       throw new ExcelKitRuntimeException("Only .xlsx formatted files are supported.", e);
+    } finally {
+      onFinished(start);
+    }
+  }
+
+  /**
+   * 以只读方式直接打开文件: 不需要将整个 zip 读入内存, 并且可以从中央目录得到 sheet 部件的大小
+   * (见 ExcelProgress#getTotalBytes())
+   */
+  public void process(File file) throws ExcelKitRuntimeException {
+    long start = mTimed ? System.nanoTime() : 0;
+    mOpenSpan = mTracer.start(ExcelTracer.Kind.WORKBOOK_OPEN, mEntityClass, null);
+    try {
+      processAll(OPCPackage.open(file, PackageAccess.READ));
+    } catch (ExcelKitCancelledException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ExcelKitRuntimeException("Only .xlsx formatted files are supported.", e);
+    } finally {
+      onFinished(start);
     }
   }
 
   public void process(InputStream in) throws ExcelKitRuntimeException {
+    long start = mTimed ? System.nanoTime() : 0;
+    mOpenSpan = mTracer.start(ExcelTracer.Kind.WORKBOOK_OPEN, mEntityClass, null);
     try {
       processAll(OPCPackage.open(in));
+    } catch (ExcelKitCancelledException e) {
+      throw e;
     } catch (Exception e) {
       throw new ExcelKitRuntimeException("Only .xlsx formatted files are supported.", e);
+    } finally {
+      onFinished(start);
     }
   }
 
+  /**
+   * 解析所有 sheet, 结束或失败时释放 OPCPackage (revert, 不会写回文件)
+   */
   private void processAll(OPCPackage pkg)
       throws IOException, OpenXML4JException, SAXException {
+    try {
+      processSheets(pkg, -1);
+    } finally {
+      pkg.revert();
+    }
+  }
+
+  /**
+   * 按 workbook.xml 中的顺序解析 sheet, 跳过导入模板中存放下拉选项的隐藏 sheet
+   *
+   * @param sheetIndex 要解析的 sheet 下标 (不计下拉选项 sheet), 小于 0 时解析所有 sheet
+   */
+  private void processSheets(OPCPackage pkg, int sheetIndex)
+      throws IOException, OpenXML4JException, SAXException {
+    onChecksum(pkg, sheetIndex);
     XSSFReader xssfReader = new XSSFReader(pkg);
     mStylesTable = xssfReader.getStylesTable();
-    SharedStringsTable sst = xssfReader.getSharedStringsTable();
+    SharedStringsTable sst = mSkipValidation ? readSharedStrings(pkg)
+        : xssfReader.getSharedStringsTable();
     XMLReader parser = this.fetchSheetParser(sst);
-    Iterator<InputStream> sheets = xssfReader.getSheetsData();
+    XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+    endOpenSpan();
+    if (null != mProgress && sheetIndex < 0) {
+      mProgress.setTotalBytes(ExcelXlsxReader.getSheetPartsSize(pkg));
+    }
+    // 与 xerces 一起使用时 SheetIterator 会重复返回同一个 sheet, 按 sheet 部件去重
+    Set<PackagePart> sheetParts = Sets.newHashSet();
+    int index = -1;
     while (sheets.hasNext()) {
+      InputStream sheet = sheets.next();
+      if (!sheetParts.add(sheets.getSheetPart())) {
+        sheet.close();
+        continue;
+      }
+      if (sheets.getSheetName().startsWith(Const.XLSX_OPTIONS_NAME_PREFIX)) {
+        // 导入模板中存放下拉选项的隐藏 sheet
+        sheet.close();
+        if (null != mProgress && sheetIndex < 0) {
+          mProgress.onBytes(Math.max(0, sheets.getSheetPart().getSize()));
+        }
+        continue;
+      }
+      index++;
+      if (sheetIndex >= 0 && index != sheetIndex) {
+        sheet.close();
+        continue;
+      }
+      if (null != mProgress && sheetIndex >= 0) {
+        mProgress.setTotalBytes(sheets.getSheetPart().getSize());
+      }
+      verifySheet(sheets.getSheetPart());
       mCurrentRowIndex = 0;
       mCurrentSheetIndex++;
-      InputStream sheet = sheets.next();
-      InputSource sheetSource = new InputSource(sheet);
-      parser.parse(sheetSource);
-      sheet.close();
+      onSheet(sheets.getSheetName());
+      sheet = countInflatedBytes(sheet);
+      ExcelTracer.Span span = mTracer.start(ExcelTracer.Kind.SHEET_READ, mEntityClass,
+          sheets.getSheetName());
+      long rows = mRowsParsed;
+      try {
+        InputSource sheetSource = new InputSource(sheet);
+        parser.parse(sheetSource);
+        sheet.close();
+      } finally {
+        span.end(mRowsParsed - rows, addInflatedBytes(sheet));
+      }
+      if (sheetIndex >= 0) {
+        break;
+      }
+    }
+    if (sheetIndex > index) {
+      throw new ExcelKitRuntimeException("Sheet index " + sheetIndex
+          + " is out of range, the workbook has " + (index + 1) + " sheets.");
+    }
+    onValidated();
+  }
+
+  /**
+   * 仅校验或传入了校验和时, 计算当前内容与导入规则的校验和
+   */
+  private void onChecksum(OPCPackage pkg, int sheetIndex)
+      throws IOException, InvalidFormatException {
+    if (!mDryRun && null == mValidatedChecksum) {
+      return;
+    }
+    mChecksum = getChecksum(pkg, sheetIndex);
+    mSkipValidation = !mDryRun && mChecksum.equals(mValidatedChecksum);
+  }
+
+  /**
+   * 仅校验且没有失败的行时, 将校验和记入错误汇总
+   */
+  private void onValidated() {
+    if (mDryRun && null != mErrorSummary && mErrorSummary.getFailedRows() == 0) {
+      mErrorSummary.setValidatedChecksum(mChecksum);
+    }
+  }
+
+  /**
+   * 以服务端密钥计算 HMAC-SHA256: 可跳过的校验规则, 及工作簿各部件 (workbook、sheet、共享字符串及样式)
+   * 的 CRC-32 与大小. CRC-32 取自 zip 中央目录, 不解压部件; 从输入流打开时中央目录不可用,
+   * 部件已由 POI 解压到内存中, 直接计算
+   */
+  private String getChecksum(OPCPackage pkg, int sheetIndex)
+      throws IOException, InvalidFormatException {
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(content);
+    out.writeInt(sheetIndex);
+    out.writeInt(mBeginReadRowIndex);
+    for (ExcelProperty property : mExcelMapping.getPropertyList()) {
+      ExcelXlsxReader.putValue(out, property.getName());
+      ExcelXlsxReader.putValue(out, property.getColumn());
+      ExcelXlsxReader.putValue(out, property.getRequired());
+      ExcelXlsxReader.putValue(out, property.getMaxLength());
+      ExcelXlsxReader.putValue(out, property.getRegularExp());
+      Object[] options = null != property.getOptions() ? property.getOptions().get() : null;
+      out.writeInt(null != options ? options.length : -1);
+      if (null != options) {
+        for (Object option : options) {
+          ExcelXlsxReader.putValue(out, option);
+        }
+      }
+    }
+    List<PackagePart> parts = Lists.newArrayList(pkg.getPartsByRelationshipType(
+        PackageRelationshipTypes.CORE_DOCUMENT));
+    parts.addAll(pkg.getPartsByContentType(XSSFRelation.WORKSHEET.getContentType()));
+    parts.addAll(pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType()));
+    parts.addAll(pkg.getPartsByContentType(XSSFRelation.STYLES.getContentType()));
+    for (PackagePart part : parts) {
+      ExcelXlsxReader.putValue(out, part.getPartName().getName());
+      out.writeLong(getCrc(part));
+      out.writeLong(part.getSize());
+    }
+    out.flush();
+    try {
+      Mac mac = Mac.getInstance(CHECKSUM_ALGORITHM);
+      mac.init(new SecretKeySpec(mChecksumKey, CHECKSUM_ALGORITHM));
+      return BaseEncoding.base16().lowerCase().encode(mac.doFinal(content.toByteArray()));
+    } catch (GeneralSecurityException e) {
+      throw new ExcelKitRuntimeException("Compute checksum failed.", e);
+    }
+  }
+
+  private long getCrc(PackagePart part) throws IOException {
+    if (part instanceof ZipPackagePart) {
+      ZipEntry entry = ((ZipPackagePart) part).getZipArchive();
+      if (null != entry && entry.getCrc() >= 0) {
+        mPartCrcs.put(part.getPartName().getName(), entry.getCrc());
+        return entry.getCrc();
+      }
+    }
+    CheckedInputStream in = new CheckedInputStream(part.getInputStream(), new CRC32());
+    try {
+      ByteStreams.copy(in, ByteStreams.nullOutputStream());
+    } finally {
+      in.close();
     }
-    pkg.close();
+    return in.getChecksum().getValue();
+  }
+
+  /**
+   * 跳过校验时在读取的同时计算部件内容的 CRC-32. ZipFile 读取时不检查 CRC-32,
+   * 需要核对以防止替换内容但保留中央目录的文件沿用之前的校验和
+   */
+  private InputStream verifying(InputStream in) {
+    if (!mSkipValidation) {
+      return in;
+    }
+    // 解析器结束时会关闭输入流, 之后仍需读完剩余内容
+    return new CheckedInputStream(new FilterInputStream(in) {
+      @Override
+      public void close() {
+      }
+    }, new CRC32());
+  }
+
+  private void verify(PackagePart part, InputStream in) throws IOException {
+    Long expected = mPartCrcs.get(part.getPartName().getName());
+    if (!(in instanceof CheckedInputStream) || null == expected) {
+      return;
+    }
+    ByteStreams.copy(in, ByteStreams.nullOutputStream());
+    if (((CheckedInputStream) in).getChecksum().getValue() != expected) {
+      throw new ExcelKitRuntimeException("[" + part.getPartName().getName()
+          + "] does not match the CRC-32 recorded in the file, it may have been modified.");
+    }
+  }
+
+  /**
+   * 跳过校验时, 在分发该 sheet 的任何一行之前先读取一遍并核对 CRC-32, 未校验的行不会先交给 handler
+   */
+  private void verifySheet(PackagePart part) throws IOException {
+    if (!mSkipValidation) {
+      return;
+    }
+    InputStream in = part.getInputStream();
+    try {
+      verify(part, verifying(in));
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * 与 XSSFReader#getSharedStringsTable() 相同, 读取时核对 CRC-32 (在解析 sheet 之前完成)
+   */
+  private SharedStringsTable readSharedStrings(OPCPackage pkg)
+      throws IOException, InvalidFormatException {
+    List<PackagePart> parts = pkg.getPartsByContentType(
+        XSSFRelation.SHARED_STRINGS.getContentType());
+    if (parts.isEmpty()) {
+      return null;
+    }
+    SharedStringsTable sst = new SharedStringsTable();
+    InputStream in = parts.get(0).getInputStream();
+    try {
+      InputStream content = verifying(in);
+      sst.readFrom(content);
+      verify(parts.get(0), content);
+    } finally {
+      in.close();
+    }
+    return sst;
+  }
+
+  private static void putValue(DataOutputStream out, Object value) throws IOException {
+    byte[] bytes = String.valueOf(value).getBytes(Charsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] newChecksumKey() {
+    byte[] key = new byte[32];
+    new SecureRandom().nextBytes(key);
+    return key;
+  }
+
+  /**
+   * @return 所有 sheet 部件解压后的总字节数, zip 中没有记录大小时为 -1
+   */
+  private static long getSheetPartsSize(OPCPackage pkg) throws InvalidFormatException {
+    long size = 0;
+    for (PackagePart part : pkg.getPartsByContentType(XSSFRelation.WORKSHEET.getContentType())) {
+      if (part.getSize() < 0) {
+        return -1;
+      }
+      size += part.getSize();
+    }
+    return size;
+  }
+
+  private InputStream countInflatedBytes(InputStream sheet) {
+    if (mTimed || null != mProgress || mTracer != ExcelTracer.NOOP) {
+      mSheetInputStream = new CountingInputStream(sheet);
+      return mSheetInputStream;
+    }
+    return sheet;
+  }
+
+  /**
+   * @return sheet 解压后的字节数, 未计数时为 0
+   */
+  private long addInflatedBytes(InputStream sheet) {
+    if (sheet instanceof CountingInputStream) {
+      long count = ((CountingInputStream) sheet).getCount();
+      mBytesInflated += count;
+      if (sheet == mSheetInputStream) {
+        mSheetInputStream = null;
+      }
+      onBytes();
+      return count;
+    }
+    return 0;
+  }
+
+  private void onSheet(String sheetName) {
+    mCurrentSheetName = sheetName;
+    if (null != mProgress) {
+      mProgress.checkCancelled();
+      mProgress.onSheet(sheetName);
+    }
+  }
+
+  /**
+   * 将新解析的字节数计入进度
+   */
+  private void onBytes() {
+    if (null != mProgress) {
+      long bytes = mBytesInflated + (null != mSheetInputStream ? mSheetInputStream.getCount() : 0);
+      mProgress.onBytes(bytes - mReportedBytes);
+      mReportedBytes = bytes;
+    }
+  }
+
+  private void endOpenSpan() {
+    if (null != mOpenSpan) {
+      mOpenSpan.end(0, 0);
+      mOpenSpan = null;
+    }
+  }
+
+  private void onFinished(long start) {
+    endOpenSpan();
+    if (!mTimed) {
+      return;
+    }
+    ExcelReadMetrics metrics = new ExcelReadMetrics();
+    metrics.setType(mEntityClass);
+    metrics.setBytesInflated(mBytesInflated);
+    metrics.setRowsParsed(mRowsParsed);
+    metrics.setRowsBound(mRowsBound);
+    metrics.setSuccesses(mSuccesses);
+    metrics.setErrors(mErrors);
+    metrics.setExceptions(mExceptions);
+    metrics.setRequiredNanos(mStageNanos[STAGE_REQUIRED]);
+    metrics.setMaxLengthNanos(mStageNanos[STAGE_MAX_LENGTH]);
+    metrics.setDateFormatNanos(mStageNanos[STAGE_DATE_FORMAT]);
+    metrics.setOptionsNanos(mStageNanos[STAGE_OPTIONS]);
+    metrics.setRegularExpNanos(mStageNanos[STAGE_REGULAR_EXP]);
+    metrics.setValidatorNanos(mStageNanos[STAGE_VALIDATOR]);
+    metrics.setConversionNanos(mStageNanos[STAGE_CONVERSION]);
+    metrics.setPopulationNanos(mStageNanos[STAGE_POPULATION]);
+    metrics.setHandlerNanos(mStageNanos[STAGE_HANDLER]);
+    metrics.setTotalNanos(System.nanoTime() - start);
+    long processNanos = 0;
+    for (long stageNanos : mStageNanos) {
+      processNanos += stageNanos;
+    }
+    metrics.setParseNanos(Math.max(0, metrics.getTotalNanos() - processNanos));
+    mMetricsListener.onRead(metrics);
+  }
+
+  /**
+   * 将 start 至今的耗时计入 stage
+   *
+   * @return 当前时间, 作为下一阶段的开始
+   */
+  private long lap(long start, int stage) {
+    if (!mTimed) {
+      return 0;
+    }
+    long now = System.nanoTime();
+    mStageNanos[stage] += now - start;
+    return now;
   }
 
   public void process(String fileName, int sheetIndex) throws ExcelKitRuntimeException {
+    long start = mTimed ? System.nanoTime() : 0;
+    mOpenSpan = mTracer.start(ExcelTracer.Kind.WORKBOOK_OPEN, mEntityClass, null);
     try {
       this.processBySheet(sheetIndex, OPCPackage.open(fileName));
+    } catch (ExcelKitCancelledException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ExcelKitRuntimeException("Only .xlsx formatted files are supported.", e);
+    } finally {
+      onFinished(start);
+    }
+  }
+
+  /**
+   * @see #process(File)
+   */
+  public void process(File file, int sheetIndex) throws ExcelKitRuntimeException {
+    long start = mTimed ? System.nanoTime() : 0;
+    mOpenSpan = mTracer.start(ExcelTracer.Kind.WORKBOOK_OPEN, mEntityClass, null);
+    try {
+      this.processBySheet(sheetIndex, OPCPackage.open(file, PackageAccess.READ));
+    } catch (ExcelKitCancelledException e) {
+      throw e;
     } catch (Exception e) {
       throw new ExcelKitRuntimeException("Only .xlsx formatted files are supported.", e);
+    } finally {
+      onFinished(start);
     }
   }
 
   public void process(InputStream in, int sheetIndex) throws ExcelKitRuntimeException {
+    long start = mTimed ? System.nanoTime() : 0;
+    mOpenSpan = mTracer.start(ExcelTracer.Kind.WORKBOOK_OPEN, mEntityClass, null);
     try {
       this.processBySheet(sheetIndex, OPCPackage.open(in));
+    } catch (ExcelKitCancelledException e) {
+      throw e;
     } catch (Exception e) {
       throw new ExcelKitRuntimeException("Only .xlsx formatted files are supported.", e);
+    } finally {
+      onFinished(start);
     }
   }
 
+  /**
+   * 解析指定的 sheet, 结束或失败时释放 OPCPackage (revert, 不会写回文件)
+   */
   private void processBySheet(int sheetIndex, OPCPackage pkg)
       throws IOException, OpenXML4JException, SAXException {
-    XSSFReader r = new XSSFReader(pkg);
-    SharedStringsTable sst = r.getSharedStringsTable();
-
-    XMLReader parser = fetchSheetParser(sst);
-
-    // 根据 rId# 或 rSheet# 查找sheet
-    InputStream sheet = r.getSheet(Const.SAX_RID_PREFIX + (sheetIndex + 1));
-    mCurrentSheetIndex++;
-    InputSource sheetSource = new InputSource(sheet);
     try {
-      parser.parse(sheetSource);
-    } catch (ExcelKitEncounterNoNeedXmlException e) {
-      sheet = r.getSheet(Const.SAX_RID_PREFIX + (sheetIndex + 3));
-      sheetSource = new InputSource(sheet);
-      parser.parse(sheetSource);
+      processSheets(pkg, sheetIndex);
+    } finally {
+      pkg.revert();
     }
-    sheet.close();
-    pkg.close();
   }
 
   @Override
   public void startElement(
       String uri, String localName, String name, Attributes attributes) {
-    if ("sst".equals(name) || "styleSheet".equals(name)) {
-      throw new ExcelKitEncounterNoNeedXmlException();
-    }
     // c => 单元格
     if (Const.SAX_C_ELEMENT.equals(name)) {
       String ref = attributes.getValue(Const.SAX_R_ATTR);
@@ -183,6 +736,7 @@ public class ExcelXlsxReader extends DefaultHandler {
       String cellType = attributes.getValue(Const.SAX_T_ELEMENT);
       String cellStyleStr = attributes.getValue(Const.SAX_S_ATTR_VALUE);
       mNextIsString = (null != cellType && cellType.equals(Const.SAX_S_ATTR_VALUE));
+      mNextIsNumeric = null == cellType || "n".equals(cellType);
       // 设定单元格类型
       this.setNextCellType(cellType, cellStyleStr);
     }
@@ -215,6 +769,9 @@ public class ExcelXlsxReader extends DefaultHandler {
           mCurrentCellIndex++;
         }
       }
+      if (null != mErrorWorkbook && mNextIsNumeric && !value.isEmpty()) {
+        recordNumericCell(mPreviousCellValue.trim());
+      }
       mExcelRowObjectData.add(mCurrentCellIndex, value);
       mCurrentCellIndex++;
     }
@@ -230,17 +787,110 @@ public class ExcelXlsxReader extends DefaultHandler {
           mCurrentCellIndex++;
         }
       }
+      if (null != mProgress) {
+        mProgress.checkCancelled();
+        onBytes();
+      }
+      long rows = null != mErrorSummary ? mErrorSummary.getRows() : 0;
+      long failedRows = null != mErrorSummary ? mErrorSummary.getFailedRows() : 0;
+      int rowIndex = mCurrentRowIndex;
+      mRowErrorFields = null;
       try {
-        this.performVerificationAndProcessFlowRow();
-      } catch (Exception e) {
-        e.printStackTrace();
+        try {
+          this.performVerificationAndProcessFlowRow();
+        } catch (Exception e) {
+          mExceptions++;
+          onException(e);
+          if (null != mRowErrorFields) {
+            mRowErrorFields = Lists.newArrayList(ExcelErrorField.builder()
+                .errorMessage(e.toString()).build());
+          }
+        }
+        if (null != mErrorWorkbook) {
+          writeErrorWorkbook(rowIndex);
+        }
+      } catch (IOException e) {
+        throw new ExcelKitRuntimeException("Failed to write the error workbook.", e);
       } finally {
         mExcelRowObjectData.clear();
+        mRowNumericCells.clear();
         mCurrentRowIndex++;
         mCurrentCellIndex = 0;
         mPreviousCellRef = null;
         mCurrentCellRef = null;
       }
+      if (null != mErrorSummary && mErrorSummary.getRows() > rows) {
+        checkErrorPolicy(rowIndex, mErrorSummary.getFailedRows() > failedRows);
+      }
+    }
+  }
+
+  private void writeErrorWorkbook(int rowIndex) throws IOException {
+    if (rowIndex == 0) {
+      if (!errorSheet) {
+        mErrorWorkbook.startSheet(mCurrentSheetName, headTitleList, excelPropertyMap);
+      }
+    } else if (null != mRowErrorFields) {
+      mErrorWorkbook.writeRow(mExcelRowObjectData, mEmptyCellValue, mRowErrorFields,
+          mRowNumericCells);
+    }
+  }
+
+  /**
+   * 错误工作簿中数值单元格写入原始数值, 而不是按格式转换后的文本
+   */
+  private void recordNumericCell(String rawValue) {
+    try {
+      Double.parseDouble(rawValue);
+    } catch (NumberFormatException e) {
+      return;
+    }
+    mRowNumericCells.put(mCurrentCellIndex, new ExcelXlsxErrorWorkbook.NumericCell(rawValue,
+        null != mSourceFormatString ? mSourceFormatString : "General"));
+  }
+
+  private void onException(Exception e) {
+    if (null != mErrorSummary) {
+      mErrorSummary.onException();
+    }
+    ExcelReadExceptionHandler exceptionHandler =
+        null != mErrorPolicy ? mErrorPolicy.getExceptionHandler() : null;
+    if (null != exceptionHandler) {
+      exceptionHandler.onException(mCurrentSheetIndex, mCurrentRowIndex, e);
+    } else {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * 记录一行的结果, 失败行超过 maxErrors 或最近 windowSize 行的失败比例超过 maxErrorRate 时停止解析
+   */
+  private void checkErrorPolicy(int rowIndex, boolean failed) {
+    if (null != mErrorWindow) {
+      int index = (int) ((mErrorSummary.getRows() - 1) % mErrorWindow.length);
+      if (mErrorWindow[index]) {
+        mErrorWindowFailures--;
+      }
+      mErrorWindow[index] = failed;
+      if (failed) {
+        mErrorWindowFailures++;
+      }
+    }
+    if (!failed) {
+      return;
+    }
+    int maxErrors = mErrorPolicy.getMaxErrors();
+    if (maxErrors >= 0 && mErrorSummary.getFailedRows() > maxErrors) {
+      throw new ExcelKitErrorThresholdException("Stopped at row " + rowIndex + " of sheet "
+          + mCurrentSheetIndex + ": " + mErrorSummary.getFailedRows()
+          + " failed rows exceed maxErrors " + maxErrors + ".", mErrorSummary);
+    }
+    if (null != mErrorWindow && mErrorSummary.getRows() >= mErrorWindow.length
+        && mErrorWindowFailures > mErrorPolicy.getMaxErrorRate() * mErrorWindow.length) {
+      throw new ExcelKitErrorThresholdException("Stopped at row " + rowIndex + " of sheet "
+          + mCurrentSheetIndex + ": " + mErrorWindowFailures + " of the last "
+          + mErrorWindow.length + " rows failed, exceeding maxErrorRate "
+          + mErrorPolicy.getMaxErrorRate() + ".", mErrorSummary);
     }
   }
 
@@ -264,6 +914,7 @@ public class ExcelXlsxReader extends DefaultHandler {
     mNextCellType = ExcelCellType.STRING;
     mFormatIndex = -1;
     mFormatString = null;
+    mSourceFormatString = null;
 
     if ("b".equals(cellType)) {
       mNextCellType = ExcelCellType.BOOL;
@@ -281,6 +932,7 @@ public class ExcelXlsxReader extends DefaultHandler {
       XSSFCellStyle style = mStylesTable.getStyleAt(styleIndex);
       mFormatIndex = style.getDataFormat();
       mFormatString = style.getDataFormatString();
+      mSourceFormatString = mFormatString;
       if ("m/d/yy".equals(mFormatString)) {
         mNextCellType = mNextCellType.DATE;
         mFormatString = "yyyy-MM-dd hh:mm:ss.SSS";
@@ -349,7 +1001,7 @@ public class ExcelXlsxReader extends DefaultHandler {
       }
       for (int i = 0; i < headTitleList.size(); i++) { //匹配是否要导入的sheet
         ExcelProperty property = excelPropertyMap.get(headTitleList.get(i));
-        if (property == null) {
+        if (property == null && !Const.XLSX_ERROR_COLUMN_NAME.equals(headTitleList.get(i))) {
           errorSheet = true;
         }
       }
@@ -359,7 +1011,17 @@ public class ExcelXlsxReader extends DefaultHandler {
     }
     if (mCurrentRowIndex >= mBeginReadRowIndex) {
       if (!this.rowObjectDataIsAllEmptyCellValue()) {
-        Object entity = mEntityClass.newInstance();
+        mRowsParsed++;
+        mRowErrorFields = Collections.emptyList();
+        if (null != mProgress) {
+          mProgress.onRow();
+        }
+        long start = mTimed ? System.nanoTime() : 0;
+        Object entity = null;
+        if (!mDryRun) {
+          entity = null != mProvider ? mProvider.newInstance() : mEntityClass.newInstance();
+        }
+        lap(start, STAGE_POPULATION);
         List<ExcelErrorField> errorFields = Lists.newArrayList();
         for (int i = 0; i < headTitleList.size(); i++) {
           //跳过空数据
@@ -373,17 +1035,42 @@ public class ExcelXlsxReader extends DefaultHandler {
           if (null != errorFieldObject) {
             errorFields.add((ExcelErrorField) errorFieldObject);
           }
-          if (errorFields.isEmpty()) {
+          if (errorFields.isEmpty() && !mDryRun) {
             Object propertyValue = checkAndConvertPropertyRetMap.get(
                 ExcelXlsxReader.CHECK_MAP_KEY_OF_VALUE);
-            BeanUtil.setComplexProperty(entity, property.getName(), propertyValue);
+            start = mTimed ? System.nanoTime() : 0;
+            if (null != mProvider) {
+              mProvider.setValue(entity, property.getName(), propertyValue);
+            } else {
+              BeanUtil.setComplexProperty(entity, property.getName(), propertyValue);
+            }
+            lap(start, STAGE_POPULATION);
           }
         }
-        if (errorFields.isEmpty()) {
-          mExcelReadHandler.onSuccess(mCurrentSheetIndex, mCurrentRowIndex, entity);
-          return;
+        start = mTimed ? System.nanoTime() : 0;
+        try {
+          if (errorFields.isEmpty()) {
+            if (!mDryRun) {
+              mRowsBound++;
+              mExcelReadHandler.onSuccess(mCurrentSheetIndex, mCurrentRowIndex, entity);
+            }
+            mSuccesses++;
+            if (null != mErrorSummary) {
+              mErrorSummary.onSuccess();
+            }
+            return;
+          }
+          mRowErrorFields = errorFields;
+          if (!mDryRun) {
+            mExcelReadHandler.onError(mCurrentSheetIndex, mCurrentRowIndex, errorFields);
+          }
+          mErrors++;
+          if (null != mErrorSummary) {
+            mErrorSummary.onError(mCurrentSheetIndex, mCurrentRowIndex, errorFields);
+          }
+        } finally {
+          lap(start, STAGE_HANDLER);
         }
-        mExcelReadHandler.onError(mCurrentSheetIndex, mCurrentRowIndex, errorFields);
       }
     }
   }
@@ -404,10 +1091,12 @@ public class ExcelXlsxReader extends DefaultHandler {
       ExcelProperty property,
       Object propertyValue) {
 
+    long start = mTimed ? System.nanoTime() : 0;
      if(null == propertyValue || ValidatorUtil.isEmpty((String) propertyValue) || Const.XLSX_DEFAULT_EMPTY_CELL_VALUE.equals(propertyValue)) {
         // required
         Boolean required = property.getRequired();
-        if (null != required && required) {
+        lap(start, STAGE_REQUIRED);
+        if (null != required && required && !mSkipValidation) {
             return this.buildCheckAndConvertPropertyRetMap(cellIndex, property, propertyValue, "单元格的值必须填写");
         }
 
@@ -417,8 +1106,10 @@ public class ExcelXlsxReader extends DefaultHandler {
 
     // maxLength
     Integer maxLength = property.getMaxLength();
-    if (-1 != maxLength) {
-      if (String.valueOf(propertyValue).length() > maxLength) {
+    if (null != maxLength && -1 != maxLength && !mSkipValidation) {
+      boolean tooLong = String.valueOf(propertyValue).length() > maxLength;
+      start = lap(start, STAGE_MAX_LENGTH);
+      if (tooLong) {
         return this.buildCheckAndConvertPropertyRetMap(cellIndex, property, propertyValue, "超过最大长度: " + maxLength);
       }
     }
@@ -433,12 +1124,14 @@ public class ExcelXlsxReader extends DefaultHandler {
       } catch (Exception e) {
         return this.buildCheckAndConvertPropertyRetMap(//
             cellIndex, property, propertyValue, "时间格式解析失败 [" + dateFormat + "]");
+      } finally {
+        lap(start, STAGE_DATE_FORMAT);
       }
     }
 
     // options
     Options options = property.getOptions();
-    if (null != options) {
+    if (null != options && !mSkipValidation) {
       Object[] values = options.get();
       if (null != values && values.length > 0) {
         boolean containInOptions = false;
@@ -448,6 +1141,7 @@ public class ExcelXlsxReader extends DefaultHandler {
             break;
           }
         }
+        start = lap(start, STAGE_OPTIONS);
         if (!containInOptions) {
           return this.buildCheckAndConvertPropertyRetMap(//
               cellIndex, property, propertyValue, "[" + propertyValue + "]不是规定的下拉框的值");
@@ -457,8 +1151,10 @@ public class ExcelXlsxReader extends DefaultHandler {
 
     // regularExp
     String regularExp = property.getRegularExp();
-    if (!ValidatorUtil.isEmpty(regularExp)) {
-      if (!RegexUtil.isMatches(regularExp, propertyValue)) {
+    if (!ValidatorUtil.isEmpty(regularExp) && !mSkipValidation) {
+      boolean matches = RegexUtil.isMatches(regularExp, propertyValue);
+      start = lap(start, STAGE_REGULAR_EXP);
+      if (!matches) {
         String regularExpMessage = property.getRegularExpMessage();
         String validErrorMessage = !ValidatorUtil.isEmpty(regularExpMessage) ?
             regularExpMessage : "正则表达式校验失败 [" + regularExp + "]";
@@ -471,6 +1167,7 @@ public class ExcelXlsxReader extends DefaultHandler {
     Validator validator = property.getValidator();
     if (null != validator) {
       String validErrorMessage = validator.valid(propertyValue);
+      start = lap(start, STAGE_VALIDATOR);
       if (null != validErrorMessage) {
         return this.buildCheckAndConvertPropertyRetMap(//
             cellIndex, property, propertyValue, validErrorMessage);
@@ -478,16 +1175,20 @@ public class ExcelXlsxReader extends DefaultHandler {
     }
 
     // readConverterExp && readConverter (按照优先级处理)
-    String readConverterExp = property.getReadConverterExp();
+    ConverterExp readConverterExp = property.getCompiledReadConverterExp();
     ReadConverter readConverter = property.getReadConverter();
-    if (!ValidatorUtil.isEmpty(readConverterExp)) {
+    if (null != readConverterExp || !ValidatorUtil.isEmpty(property.getReadConverterExp())) {
       try {
-        Object convertPropertyValue = POIUtil.convertByExp(propertyValue, readConverterExp);
+        Object convertPropertyValue = null != readConverterExp ?
+            readConverterExp.convert(propertyValue) :
+            POIUtil.convertByExp(propertyValue, property.getReadConverterExp());
         return this.buildCheckAndConvertPropertyRetMap(//
             cellIndex, property, convertPropertyValue, null);
       } catch (Exception e) {
         return this.buildCheckAndConvertPropertyRetMap(//
             cellIndex, property, propertyValue, "由于readConverterExp表达式的值不规范导致转换失败");
+      } finally {
+        lap(start, STAGE_CONVERSION);
       }
     } else if (null != readConverter) {
       try {
@@ -496,6 +1197,8 @@ public class ExcelXlsxReader extends DefaultHandler {
       } catch (ExcelKitReadConverterException e) {
         return this.buildCheckAndConvertPropertyRetMap(//
             cellIndex, property, propertyValue, e.getMessage());
+      } finally {
+        lap(start, STAGE_CONVERSION);
       }
     }
     return this.buildCheckAndConvertPropertyRetMap(cellIndex, property, propertyValue, null);
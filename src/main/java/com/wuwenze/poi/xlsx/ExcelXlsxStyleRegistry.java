@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.xlsx;
+
+import com.google.common.collect.Maps;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.pojo.ExcelProperty;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * 工作簿级别的样式注册表, 按属性值复用 CellStyle 与 Font.
+ * <p>
+ * xlsx 单个工作簿的样式数量有上限(64000), 因此写入同一个工作簿的所有 ExcelXlsxWriter
+ * 应共享同一个注册表, 样式只在首次使用时创建一次, 不会按单元格或按 sheet 重复创建.
+ *
+ * @author wuwenze
+ */
+public class ExcelXlsxStyleRegistry {
+
+  private static final String DEFAULT_FONT_NAME = "宋体";
+  private static final short DEFAULT_FONT_HEIGHT = 10;
+
+  public static final FontSpec HEADER_FONT = FontSpec.builder()
+      .fontName(DEFAULT_FONT_NAME)
+      .fontHeightInPoints(DEFAULT_FONT_HEIGHT)
+      .boldweight(Font.BOLDWEIGHT_BOLD)
+      .color(IndexedColors.WHITE.getIndex())
+      .build();
+
+  public static final FontSpec DATA_FONT = FontSpec.builder()
+      .fontName(DEFAULT_FONT_NAME)
+      .fontHeightInPoints(DEFAULT_FONT_HEIGHT)
+      .build();
+
+  /**
+   * 批注使用工作簿默认字体
+   */
+  public static final FontSpec COMMENT_FONT = FontSpec.builder().build();
+
+  public static final CellStyleSpec HEADER_CELL_STYLE = CellStyleSpec.builder()
+      .alignment(CellStyle.ALIGN_CENTER)
+      .verticalAlignment(CellStyle.VERTICAL_CENTER)
+      .fillForegroundColor(IndexedColors.GREY_40_PERCENT.getIndex())
+      .fillPattern(CellStyle.SOLID_FOREGROUND)
+      .borderRight(CellStyle.BORDER_THIN)
+      .rightBorderColor(IndexedColors.BLACK.getIndex())
+      .font(HEADER_FONT)
+      //设置单元格文本形式
+      .dataFormat("@")
+      .build();
+
+  public static final CellStyleSpec DATA_CELL_STYLE = CellStyleSpec.builder()
+      .verticalAlignment(CellStyle.VERTICAL_CENTER)
+      .borderRight(CellStyle.BORDER_THIN)
+      .rightBorderColor(IndexedColors.BLACK.getIndex())
+      .borderLeft(CellStyle.BORDER_THIN)
+      .leftBorderColor(IndexedColors.BLACK.getIndex())
+      .borderTop(CellStyle.BORDER_THIN)
+      .topBorderColor(IndexedColors.BLACK.getIndex())
+      .borderBottom(CellStyle.BORDER_THIN)
+      .bottomBorderColor(IndexedColors.BLACK.getIndex())
+      .font(DATA_FONT)
+      .build();
+
+  public static final FontSpec ERROR_FONT = FontSpec.builder()
+      .fontName(DEFAULT_FONT_NAME)
+      .fontHeightInPoints(DEFAULT_FONT_HEIGHT)
+      .color(IndexedColors.RED.getIndex())
+      .build();
+
+  /**
+   * 错误工作簿中校验失败的单元格
+   */
+  public static final CellStyleSpec ERROR_CELL_STYLE = DATA_CELL_STYLE.toBuilder()
+      .fillForegroundColor(IndexedColors.ROSE.getIndex())
+      .fillPattern(CellStyle.SOLID_FOREGROUND)
+      .build();
+
+  /**
+   * 错误工作簿中的错误信息列
+   */
+  public static final CellStyleSpec ERROR_MESSAGE_CELL_STYLE = DATA_CELL_STYLE.toBuilder()
+      .font(ERROR_FONT)
+      .build();
+
+  private final Workbook mWorkbook;
+  private final int mMaxCellStyles;
+  private final Map<FontSpec, Font> mFontCache = Maps.newHashMap();
+  private final Map<CellStyleSpec, CellStyle> mCellStyleCache = Maps.newHashMap();
+  private DataFormat mDataFormat = null;
+
+  public ExcelXlsxStyleRegistry(Workbook workbook) {
+    mWorkbook = workbook;
+    mMaxCellStyles = workbook.getSpreadsheetVersion().getMaxCellStyles();
+  }
+
+  public Workbook getWorkbook() {
+    return mWorkbook;
+  }
+
+  public synchronized Font getFont(FontSpec spec) {
+    Font font = mFontCache.get(spec);
+    if (null == font) {
+      font = mWorkbook.createFont();
+      if (null != spec.getFontName()) {
+        font.setFontName(spec.getFontName());
+      }
+      if (null != spec.getFontHeightInPoints()) {
+        font.setFontHeightInPoints(spec.getFontHeightInPoints());
+      }
+      if (null != spec.getBoldweight()) {
+        font.setBoldweight(spec.getBoldweight());
+      }
+      if (null != spec.getColor()) {
+        font.setColor(spec.getColor());
+      }
+      mFontCache.put(spec, font);
+    }
+    return font;
+  }
+
+  public synchronized CellStyle getCellStyle(CellStyleSpec spec) {
+    CellStyle cellStyle = mCellStyleCache.get(spec);
+    if (null == cellStyle) {
+      if (mWorkbook.getNumCellStyles() >= mMaxCellStyles) {
+        throw new ExcelKitRuntimeException(
+            "Cell styles too much, the maximum is " + mMaxCellStyles + ".");
+      }
+      cellStyle = mWorkbook.createCellStyle();
+      if (null != spec.getAlignment()) {
+        cellStyle.setAlignment(spec.getAlignment());
+      }
+      if (null != spec.getVerticalAlignment()) {
+        cellStyle.setVerticalAlignment(spec.getVerticalAlignment());
+      }
+      if (null != spec.getFillForegroundColor()) {
+        cellStyle.setFillForegroundColor(spec.getFillForegroundColor());
+      }
+      if (null != spec.getFillPattern()) {
+        cellStyle.setFillPattern(spec.getFillPattern());
+      }
+      if (null != spec.getBorderTop()) {
+        cellStyle.setBorderTop(spec.getBorderTop());
+        cellStyle.setTopBorderColor(spec.getTopBorderColor());
+      }
+      if (null != spec.getBorderRight()) {
+        cellStyle.setBorderRight(spec.getBorderRight());
+        cellStyle.setRightBorderColor(spec.getRightBorderColor());
+      }
+      if (null != spec.getBorderBottom()) {
+        cellStyle.setBorderBottom(spec.getBorderBottom());
+        cellStyle.setBottomBorderColor(spec.getBottomBorderColor());
+      }
+      if (null != spec.getBorderLeft()) {
+        cellStyle.setBorderLeft(spec.getBorderLeft());
+        cellStyle.setLeftBorderColor(spec.getLeftBorderColor());
+      }
+      if (null != spec.getFont()) {
+        cellStyle.setFont(getFont(spec.getFont()));
+      }
+      if (null != spec.getDataFormat()) {
+        if (null == mDataFormat) {
+          mDataFormat = mWorkbook.createDataFormat();
+        }
+        cellStyle.setDataFormat(mDataFormat.getFormat(spec.getDataFormat()));
+      }
+      mCellStyleCache.put(spec, cellStyle);
+    }
+    return cellStyle;
+  }
+
+  public CellStyle getHeaderCellStyle() {
+    return getCellStyle(HEADER_CELL_STYLE);
+  }
+
+  public CellStyle getDataCellStyle() {
+    return getCellStyle(DATA_CELL_STYLE);
+  }
+
+  public Font getCommentFont() {
+    return getFont(COMMENT_FONT);
+  }
+
+  /**
+   * 预先计算每一列数据单元格使用的样式, 写入时按列下标直接取用.
+   * <p>
+   * 目前日期和转换后的值均以文本写入, 因此所有列都使用数据样式.
+   *
+   * @param propertyList 列配置
+   * @return 与 propertyList 一一对应的样式
+   */
+  public CellStyle[] getColumnCellStyles(List<ExcelProperty> propertyList) {
+    CellStyle[] columnCellStyles = new CellStyle[propertyList.size()];
+    for (int i = 0; i < columnCellStyles.length; i++) {
+      columnCellStyles[i] = getDataCellStyle();
+    }
+    return columnCellStyles;
+  }
+
+  /**
+   * 字体属性, 为 null 的属性保持工作簿默认值
+   */
+  @Data
+  @Builder(toBuilder = true)
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class FontSpec {
+
+    private String fontName;
+    private Short fontHeightInPoints;
+    private Short boldweight;
+    private Short color;
+  }
+
+  /**
+   * 单元格样式属性, 为 null 的属性保持工作簿默认值
+   */
+  @Data
+  @Builder(toBuilder = true)
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class CellStyleSpec {
+
+    private Short alignment;
+    private Short verticalAlignment;
+    private Short fillForegroundColor;
+    private Short fillPattern;
+    private Short borderTop;
+    private Short topBorderColor;
+    private Short borderRight;
+    private Short rightBorderColor;
+    private Short borderBottom;
+    private Short bottomBorderColor;
+    private Short borderLeft;
+    private Short leftBorderColor;
+    private FontSpec font;
+    private String dataFormat;
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.xlsx;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.wuwenze.poi.xlsx.ExcelXlsxStyleRegistry.CellStyleSpec;
+import com.wuwenze.poi.xlsx.ExcelXlsxStyleRegistry.FontSpec;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+
+/**
+ * 直接写入模式下的 xl/styles.xml, 与 ExcelXlsxStyleRegistry 使用同一套样式描述,
+ * 按属性值去重后生成 fonts/fills/borders/numFmts/cellXfs.
+ *
+ * @author wuwenze
+ */
+class ExcelXlsxStylesPart {
+
+  private static final String[] HORIZONTAL_ALIGNMENTS = {"general", "left", "center", "right",
+      "fill", "justify", "centerContinuous"};
+  private static final String[] VERTICAL_ALIGNMENTS = {"top", "center", "bottom", "justify"};
+  private static final String[] BORDER_STYLES = {"none", "thin", "medium", "dashed", "dotted",
+      "thick", "double", "hair", "mediumDashed", "dashDot", "mediumDashDot", "dashDotDot",
+      "mediumDashDotDot", "slantDashDot"};
+  private static final String[] FILL_PATTERNS = {"none", "solid", "mediumGray", "darkGray",
+      "lightGray", "darkHorizontal", "darkVertical", "darkDown", "darkUp", "darkGrid",
+      "darkTrellis", "lightHorizontal", "lightVertical", "lightDown", "lightUp", "lightGrid",
+      "lightTrellis", "gray125", "gray0625"};
+  private static final int FIRST_CUSTOM_NUM_FMT_ID = 164;
+
+  private final List<String> mFonts = Lists.newArrayList();
+  private final List<String> mFills = Lists.newArrayList();
+  private final List<String> mBorders = Lists.newArrayList();
+  private final Map<String, Integer> mNumFmts = Maps.newLinkedHashMap();
+  private final List<String> mCellXfs = Lists.newArrayList();
+  private final Map<CellStyleSpec, Integer> mCellStyleIndexes = Maps.newHashMap();
+
+  ExcelXlsxStylesPart() {
+    // 与 POI 新建工作簿的默认值一致, fills 的前两项为规范保留项
+    mFonts.add("<font><sz val=\"11\"/><color indexed=\"8\"/><name val=\"Calibri\"/>"
+        + "<family val=\"2\"/><scheme val=\"minor\"/></font>");
+    mFills.add("<fill><patternFill patternType=\"none\"/></fill>");
+    mFills.add("<fill><patternFill patternType=\"gray125\"/></fill>");
+    mBorders.add("<border><left/><right/><top/><bottom/><diagonal/></border>");
+    mCellXfs.add("<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>");
+  }
+
+  /**
+   * @param spec 样式描述
+   * @return 单元格 s 属性使用的样式下标
+   */
+  int getCellStyleIndex(CellStyleSpec spec) {
+    Integer index = mCellStyleIndexes.get(spec);
+    if (null == index) {
+      int fontId = null == spec.getFont() ? 0 : indexOf(mFonts, font(spec.getFont()));
+      int fillId = null == spec.getFillPattern() ? 0 : indexOf(mFills, fill(spec));
+      int borderId = indexOf(mBorders, border(spec));
+      int numFmtId = null == spec.getDataFormat() ? 0 : numFmtId(spec.getDataFormat());
+      StringBuilder xf = new StringBuilder("<xf numFmtId=\"").append(numFmtId)
+          .append("\" fontId=\"").append(fontId)
+          .append("\" fillId=\"").append(fillId)
+          .append("\" borderId=\"").append(borderId).append("\" xfId=\"0\"");
+      if (numFmtId != 0) {
+        xf.append(" applyNumberFormat=\"true\"");
+      }
+      if (fontId != 0) {
+        xf.append(" applyFont=\"true\"");
+      }
+      if (fillId != 0) {
+        xf.append(" applyFill=\"true\"");
+      }
+      if (borderId != 0) {
+        xf.append(" applyBorder=\"true\"");
+      }
+      if (null != spec.getAlignment() || null != spec.getVerticalAlignment()) {
+        xf.append(" applyAlignment=\"true\"><alignment");
+        if (null != spec.getAlignment()) {
+          xf.append(" horizontal=\"").append(HORIZONTAL_ALIGNMENTS[spec.getAlignment()])
+              .append('"');
+        }
+        if (null != spec.getVerticalAlignment()) {
+          xf.append(" vertical=\"").append(VERTICAL_ALIGNMENTS[spec.getVerticalAlignment()])
+              .append('"');
+        }
+        xf.append("/></xf>");
+      } else {
+        xf.append("/>");
+      }
+      index = mCellXfs.size();
+      mCellXfs.add(xf.toString());
+      mCellStyleIndexes.put(spec, index);
+    }
+    return index;
+  }
+
+  void write(Writer writer) throws IOException {
+    writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+    if (!mNumFmts.isEmpty()) {
+      writer.write("<numFmts count=\"" + mNumFmts.size() + "\">");
+      for (Map.Entry<String, Integer> numFmt : mNumFmts.entrySet()) {
+        writer.write("<numFmt numFmtId=\"" + numFmt.getValue() + "\" formatCode=\"");
+        ExcelXlsxDirectWriter.writeEscaped(writer, numFmt.getKey());
+        writer.write("\"/>");
+      }
+      writer.write("</numFmts>");
+    }
+    writeList(writer, "fonts", mFonts);
+    writeList(writer, "fills", mFills);
+    writeList(writer, "borders", mBorders);
+    writer.write("<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\""
+        + " borderId=\"0\"/></cellStyleXfs>");
+    writeList(writer, "cellXfs", mCellXfs);
+    writer.write("<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/>"
+        + "</cellStyles></styleSheet>");
+  }
+
+  private static void writeList(Writer writer, String name, List<String> items)
+      throws IOException {
+    writer.write("<" + name + " count=\"" + items.size() + "\">");
+    for (String item : items) {
+      writer.write(item);
+    }
+    writer.write("</" + name + ">");
+  }
+
+  private static int indexOf(List<String> items, String item) {
+    int index = items.indexOf(item);
+    if (index < 0) {
+      index = items.size();
+      items.add(item);
+    }
+    return index;
+  }
+
+  private int numFmtId(String format) {
+    int builtin = BuiltinFormats.getBuiltinFormat(format);
+    if (builtin >= 0) {
+      return builtin;
+    }
+    Integer id = mNumFmts.get(format);
+    if (null == id) {
+      id = FIRST_CUSTOM_NUM_FMT_ID + mNumFmts.size();
+      mNumFmts.put(format, id);
+    }
+    return id;
+  }
+
+  private static String font(FontSpec font) {
+    StringBuilder xml = new StringBuilder("<font>");
+    if (null != font.getBoldweight() && font.getBoldweight() >= 700) {
+      xml.append("<b val=\"true\"/>");
+    }
+    xml.append("<sz val=\"").append(null != font.getFontHeightInPoints()
+        ? font.getFontHeightInPoints() : 11).append("\"/>");
+    xml.append("<color indexed=\"").append(null != font.getColor() ? font.getColor() : 8)
+        .append("\"/>");
+    xml.append("<name val=\"").append(null != font.getFontName() ? font.getFontName()
+        : "Calibri").append("\"/>");
+    return xml.append("<family val=\"2\"/></font>").toString();
+  }
+
+  private static String fill(CellStyleSpec spec) {
+    StringBuilder xml = new StringBuilder("<fill><patternFill patternType=\"")
+        .append(FILL_PATTERNS[spec.getFillPattern()]).append("\">");
+    if (null != spec.getFillForegroundColor()) {
+      xml.append("<fgColor indexed=\"").append(spec.getFillForegroundColor()).append("\"/>");
+    }
+    return xml.append("</patternFill></fill>").toString();
+  }
+
+  private static String border(CellStyleSpec spec) {
+    return "<border>"
+        + borderSide("left", spec.getBorderLeft(), spec.getLeftBorderColor())
+        + borderSide("right", spec.getBorderRight(), spec.getRightBorderColor())
+        + borderSide("top", spec.getBorderTop(), spec.getTopBorderColor())
+        + borderSide("bottom", spec.getBorderBottom(), spec.getBottomBorderColor())
+        + "<diagonal/></border>";
+  }
+
+  private static String borderSide(String side, Short style, Short color) {
+    if (null == style || style == 0) {
+      return "<" + side + "/>";
+    }
+    return "<" + side + " style=\"" + BORDER_STYLES[style] + "\">"
+        + (null != color ? "<color indexed=\"" + color + "\"/>" : "") + "</" + side + ">";
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.xlsx;
+
+import com.google.common.collect.Lists;
+import com.wuwenze.poi.config.ExcelWriterConfig;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import org.apache.poi.xssf.streaming.GZIPSheetDataWriter;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+
+/**
+ * 按 ExcelWriterConfig 创建临时文件的 SXSSFWorkbook, 并统计当前存活的临时文件字节数.
+ * <p>
+ * 临时文件在 {@link #dispose()} 时删除, 调用方必须在 finally 中调用.
+ *
+ * @author wuwenze
+ */
+public class ExcelXlsxWorkbook extends SXSSFWorkbook {
+
+  private static final AtomicLong mLiveTempBytes = new AtomicLong();
+
+  private final File mTempDirectory;
+  private final List<TempBytesCountingOutputStream> mTempOutputStreams = Lists.newArrayList();
+  private boolean mDisposed = false;
+
+  public ExcelXlsxWorkbook(ExcelWriterConfig config) {
+    super(null, config.getRowAccessWindowSize(), config.isCompressTempFiles(),
+        config.isUseSharedStringsTable());
+    mTempDirectory = config.getTempDirectory();
+  }
+
+  /**
+   * @return 所有未释放的导出临时文件当前占用的字节数
+   */
+  public static long getLiveTempBytes() {
+    return mLiveTempBytes.get();
+  }
+
+  /**
+   * @return 本工作簿已写入临时文件的字节数 (gzip 压缩后), 不含尚在缓冲区中的数据
+   */
+  public synchronized long getTempBytes() {
+    long tempBytes = 0;
+    for (TempBytesCountingOutputStream outputStream : mTempOutputStreams) {
+      tempBytes += outputStream.mCount;
+    }
+    return tempBytes;
+  }
+
+  @Override
+  protected SheetDataWriter createSheetDataWriter() throws IOException {
+    if (isCompressTempFiles()) {
+      return new CompressedTempSheetDataWriter();
+    }
+    return new TempSheetDataWriter();
+  }
+
+  @Override
+  public synchronized boolean dispose() {
+    if (mDisposed) {
+      return true;
+    }
+    mDisposed = true;
+    try {
+      return super.dispose();
+    } finally {
+      for (TempBytesCountingOutputStream outputStream : mTempOutputStreams) {
+        mLiveTempBytes.addAndGet(-outputStream.mCount);
+      }
+      mTempOutputStreams.clear();
+    }
+  }
+
+  private File createTempFile(String suffix) throws IOException {
+    if (!mTempDirectory.exists() && !mTempDirectory.mkdirs() && !mTempDirectory.exists()) {
+      throw new IOException("Could not create temp directory " + mTempDirectory);
+    }
+    return File.createTempFile("poi-sxssf-sheet", suffix, mTempDirectory);
+  }
+
+  private synchronized OutputStream countTempBytes(OutputStream out) {
+    TempBytesCountingOutputStream countingOutputStream = new TempBytesCountingOutputStream(out);
+    mTempOutputStreams.add(countingOutputStream);
+    return countingOutputStream;
+  }
+
+  // 以下内部类的方法会在父类构造器中被调用, 因此只能访问外部类的状态.
+
+  private class TempSheetDataWriter extends SheetDataWriter {
+
+    TempSheetDataWriter() throws IOException {
+      super(ExcelXlsxWorkbook.this.getSharedStringSource());
+    }
+
+    @Override
+    public File createTempFile() throws IOException {
+      return null == mTempDirectory ? super.createTempFile()
+          : ExcelXlsxWorkbook.this.createTempFile(".xml");
+    }
+
+    @Override
+    protected OutputStream decorateOutputStream(FileOutputStream fos) throws IOException {
+      return countTempBytes(fos);
+    }
+  }
+
+  private class CompressedTempSheetDataWriter extends GZIPSheetDataWriter {
+
+    CompressedTempSheetDataWriter() throws IOException {
+      super(ExcelXlsxWorkbook.this.getSharedStringSource());
+    }
+
+    @Override
+    public File createTempFile() throws IOException {
+      return null == mTempDirectory ? super.createTempFile()
+          : ExcelXlsxWorkbook.this.createTempFile(".xml.gz");
+    }
+
+    @Override
+    protected OutputStream decorateOutputStream(FileOutputStream fos) throws IOException {
+      return new GZIPOutputStream(countTempBytes(fos));
+    }
+  }
+
+  private static class TempBytesCountingOutputStream extends FilterOutputStream {
+
+    private volatile long mCount = 0;
+
+    TempBytesCountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count(len);
+    }
+
+    private void count(long bytes) {
+      mCount += bytes;
+      mLiveTempBytes.addAndGet(bytes);
+    }
+  }
+}
@@ -15,23 +15,38 @@
 
 package com.wuwenze.poi.xlsx;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.wuwenze.poi.config.Options;
+import com.wuwenze.poi.convert.ConverterExp;
 import com.wuwenze.poi.convert.WriteConverter;
+import com.wuwenze.poi.datasource.ExcelDataSource;
+import com.wuwenze.poi.datasource.ListDataSource;
 import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.metrics.ExcelTracer;
+import com.wuwenze.poi.metrics.ExcelTracing;
 import com.wuwenze.poi.pojo.ExcelMapping;
 import com.wuwenze.poi.pojo.ExcelProperty;
+import com.wuwenze.poi.progress.ExcelProgress;
 import com.wuwenze.poi.util.DateUtil;
 import com.wuwenze.poi.util.POIUtil;
 import com.wuwenze.poi.util.ValidatorUtil;
-import org.apache.commons.beanutils.BeanUtils;
 import org.apache.poi.hssf.util.HSSFColor;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.streaming.*;
 import org.apache.poi.xssf.usermodel.XSSFClientAnchor;
 import org.apache.poi.xssf.usermodel.XSSFRichTextString;
 
+import java.io.IOException;
 import java.text.ParseException;
+import java.util.ArrayDeque;
 import java.util.Date;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * @author wuwenze
@@ -40,14 +55,51 @@ public class ExcelXlsxWriter {
 
   private final ExcelMapping mExcelMapping;
   private final Integer mMaxSheetRecords;
+  private ExcelXlsxStyleRegistry mStyleRegistry;
+  private final boolean mOptionsLookupSheet;
+  private Class<?> mType = null;
 
   public ExcelXlsxWriter(ExcelMapping excelMapping, Integer maxSheetRecords) {
+    this(excelMapping, maxSheetRecords, null);
+  }
+
+  /**
+   * @param excelMapping 映射配置
+   * @param maxSheetRecords 单个sheet最大记录数
+   * @param styleRegistry 样式注册表, 多个写入器写入同一个工作簿时应共享
+   */
+  public ExcelXlsxWriter(ExcelMapping excelMapping, Integer maxSheetRecords,
+      ExcelXlsxStyleRegistry styleRegistry) {
+    this(excelMapping, maxSheetRecords, styleRegistry, false);
+  }
+
+  /**
+   * @param excelMapping 映射配置
+   * @param maxSheetRecords 单个sheet最大记录数
+   * @param styleRegistry 样式注册表, 多个写入器写入同一个工作簿时应共享
+   * @param optionsLookupSheet 导出模板时是否将所有下拉选项写入隐藏 sheet 并通过名称引用
+   * @see POIUtil#setColumnCellRange(SXSSFSheet, Options, int, int, int, int, boolean)
+   */
+  public ExcelXlsxWriter(ExcelMapping excelMapping, Integer maxSheetRecords,
+      ExcelXlsxStyleRegistry styleRegistry, boolean optionsLookupSheet) {
     mExcelMapping = excelMapping;
     mMaxSheetRecords = maxSheetRecords;
+    mStyleRegistry = styleRegistry;
+    mOptionsLookupSheet = optionsLookupSheet;
+  }
+
+  /**
+   * @param type 映射的实体类, 仅用于追踪事件
+   * @return this
+   * @see ExcelTracing
+   */
+  public ExcelXlsxWriter setType(Class<?> type) {
+    mType = type;
+    return this;
   }
 
   /**
-   * 构建xlsxWorkbook对象
+   * 构建xlsxWorkbook对象, 使用完毕后调用方需执行 SXSSFWorkbook#dispose() 删除临时文件
    *
    * @param data 数据集
    * @param isTemplate 是否是导出模板
@@ -55,52 +107,263 @@ public class ExcelXlsxWriter {
    */
   public SXSSFWorkbook generateXlsxWorkbook(List<?> data, boolean isTemplate) {
     SXSSFWorkbook workbook = POIUtil.newSXSSFWorkbook();
+    try {
+      generateXlsxWorkbook(workbook, data, isTemplate);
+    } catch (RuntimeException e) {
+      workbook.dispose();
+      throw e;
+    }
+    return workbook;
+  }
+
+  public void generateXlsxWorkbook(SXSSFWorkbook workbook,List<?> data, boolean isTemplate) {
+    generateXlsxWorkbook(workbook, new ListDataSource(data), isTemplate, null);
+  }
+
+  /**
+   * 从数据源逐行写入, 每写满 maxSheetRecords 行自动切换到新的 sheet. 数据源由调用方关闭.
+   * 每写满 rowAccessWindowSize 行及每个 sheet 结束时将内存中的行整批刷写到临时文件.
+   *
+   * @param workbook 工作簿
+   * @param dataSource 数据源
+   * @param isTemplate 是否是导出模板
+   * @param progress 进度, 可为 null
+   * @throws com.wuwenze.poi.exception.ExcelKitCancelledException 导出被取消
+   */
+  public void generateXlsxWorkbook(SXSSFWorkbook workbook, ExcelDataSource dataSource,
+      boolean isTemplate, ExcelProgress progress) {
     List<ExcelProperty> propertyList = mExcelMapping.getPropertyList();
-    double sheetNo = Math.ceil(data.size() / (double) mMaxSheetRecords);
-    for (int index = 0; index <= (sheetNo == 0.0 ? sheetNo : sheetNo - 1); index++) {
-      String sheetName = mExcelMapping.getName() + (index == 0 ? "" : "_" + index);
-      SXSSFSheet sheet = generateXlsxHeader(workbook, propertyList, sheetName, isTemplate);
-      if (null != data && data.size() > 0) {
-        int startNo = index * mMaxSheetRecords;
-        int endNo = Math.min(startNo + mMaxSheetRecords, data.size());
-        for (int i = startNo; i < endNo; i++) {
-          SXSSFRow bodyRow = POIUtil.newSXSSFRow(sheet, i + 1 - startNo);
-          for (int j = 0; j < propertyList.size(); j++) {
-            SXSSFCell cell = POIUtil.newSXSSFCell(bodyRow, j);
-            cell.setCellStyle(mDataCellStyle);
-            ExcelXlsxWriter.buildCellValueByExcelProperty(cell, data.get(i), propertyList.get(j));
+    ExcelXlsxStyleRegistry styleRegistry = getStyleRegistry(workbook);
+    CellStyle[] columnCellStyles = styleRegistry.getColumnCellStyles(propertyList);
+    int windowSize = workbook.getRandomAccessWindowSize();
+    int sheetIndex = 0;
+    SXSSFSheet sheet = generateXlsxSheet(workbook, propertyList, sheetIndex, isTemplate, progress);
+    ExcelTracer.Span span = ExcelTracing.start(ExcelTracer.Kind.SHEET_WRITE, mType,
+        sheet.getSheetName());
+    long sheetTempBytes = ExcelXlsxWriter.getTempBytes(workbook);
+    int rowNo = 0, flushedRowNo = 0;
+    try {
+      while (ExcelXlsxWriter.checkCancelled(progress) && dataSource.next()) {
+        if (rowNo == mMaxSheetRecords) {
+          flushRows(workbook, sheet, rowNo - flushedRowNo);
+          span.end(rowNo, ExcelXlsxWriter.getTempBytes(workbook) - sheetTempBytes);
+          span = ExcelTracer.Span.NOOP;
+          sheet = generateXlsxSheet(workbook, propertyList, ++sheetIndex, isTemplate, progress);
+          span = ExcelTracing.start(ExcelTracer.Kind.SHEET_WRITE, mType, sheet.getSheetName());
+          sheetTempBytes = ExcelXlsxWriter.getTempBytes(workbook);
+          rowNo = 0;
+          flushedRowNo = 0;
+        }
+        SXSSFRow bodyRow = POIUtil.newSXSSFRow(sheet, ++rowNo);
+        for (int j = 0; j < propertyList.size(); j++) {
+          ExcelProperty property = propertyList.get(j);
+          SXSSFCell cell = POIUtil.newSXSSFCell(bodyRow, j);
+          cell.setCellStyle(columnCellStyles[j]);
+          String cellValue = ExcelXlsxWriter.buildCellValue(dataSource.getValue(property), property);
+          if (null != cellValue) {
+            cell.setCellValue(cellValue);
           }
         }
+        if (null != progress) {
+          progress.onRow();
+        }
+        if (windowSize > 0 && rowNo - flushedRowNo == windowSize) {
+          flushRows(workbook, sheet, windowSize);
+          flushedRowNo = rowNo;
+        }
       }
+      flushRows(workbook, sheet, rowNo - flushedRowNo);
+    } finally {
+      span.end(rowNo, ExcelXlsxWriter.getTempBytes(workbook) - sheetTempBytes);
     }
-    return workbook;
   }
 
-  public void generateXlsxWorkbook(SXSSFWorkbook workbook,List<?> data, boolean isTemplate) {
+  /**
+   * 将 sheet 中仍在内存中的行整批刷写到临时文件. 与 SXSSF 超出窗口后逐行刷写相比,
+   * 内存中的行数上限相同, 但每批只写一次.
+   *
+   * @param rows 本批的数据行数, 仅用于追踪事件
+   */
+  private void flushRows(SXSSFWorkbook workbook, SXSSFSheet sheet, int rows) {
+    ExcelTracer.Span span = ExcelTracing.start(ExcelTracer.Kind.BATCH_FLUSH, mType,
+        sheet.getSheetName());
+    long tempBytes = ExcelXlsxWriter.getTempBytes(workbook);
+    try {
+      sheet.flushRows();
+    } catch (IOException e) {
+      throw new ExcelKitRuntimeException(e);
+    } finally {
+      span.end(rows, ExcelXlsxWriter.getTempBytes(workbook) - tempBytes);
+    }
+  }
+
+  private static long getTempBytes(SXSSFWorkbook workbook) {
+    return workbook instanceof ExcelXlsxWorkbook ? ((ExcelXlsxWorkbook) workbook).getTempBytes()
+        : 0;
+  }
+
+  /**
+   * 使用 ExcelXlsxDirectWriter 直接写入, 不支持导出模板(批注与数据有效性).
+   *
+   * @param directWriter 直接写入器, 多个写入器写入同一个文件时共享
+   * @param dataSource 数据源, 由调用方关闭
+   * @param progress 进度, 可为 null
+   * @throws com.wuwenze.poi.exception.ExcelKitCancelledException 导出被取消
+   */
+  public void generateXlsx(ExcelXlsxDirectWriter directWriter, ExcelDataSource dataSource,
+      ExcelProgress progress) {
     List<ExcelProperty> propertyList = mExcelMapping.getPropertyList();
-    double sheetNo = Math.ceil(data.size() / (double) mMaxSheetRecords);
-    for (int index = 0; index <= (sheetNo == 0.0 ? sheetNo : sheetNo - 1); index++) {
-      String sheetName = mExcelMapping.getName() + (index == 0 ? "" : "_" + index);
-      SXSSFSheet sheet = generateXlsxHeader(workbook, propertyList, sheetName, isTemplate);
-      if (null != data && data.size() > 0) {
-        int startNo = index * mMaxSheetRecords;
-        int endNo = Math.min(startNo + mMaxSheetRecords, data.size());
-        for (int i = startNo; i < endNo; i++) {
-          SXSSFRow bodyRow = POIUtil.newSXSSFRow(sheet, i + 1 - startNo);
-          for (int j = 0; j < propertyList.size(); j++) {
-            SXSSFCell cell = POIUtil.newSXSSFCell(bodyRow, j);
-            cell.setCellStyle(mDataCellStyle);
-            ExcelXlsxWriter.buildCellValueByExcelProperty(cell, data.get(i), propertyList.get(j));
+    String[] headers = getHeaders(propertyList);
+    String[] rowValues = new String[propertyList.size()];
+    try {
+      int sheetIndex = 0;
+      String sheetName = getSheetName(sheetIndex, progress);
+      directWriter.startSheet(sheetName, propertyList, headers);
+      ExcelTracer.Span span = ExcelTracing.start(ExcelTracer.Kind.SHEET_WRITE, mType, sheetName);
+      int rowNo = 0;
+      try {
+        while (ExcelXlsxWriter.checkCancelled(progress) && dataSource.next()) {
+          if (rowNo == mMaxSheetRecords) {
+            directWriter.endSheet();
+            span.end(rowNo, 0);
+            span = ExcelTracer.Span.NOOP;
+            sheetName = getSheetName(++sheetIndex, progress);
+            directWriter.startSheet(sheetName, propertyList, headers);
+            span = ExcelTracing.start(ExcelTracer.Kind.SHEET_WRITE, mType, sheetName);
+            rowNo = 0;
+          }
+          ExcelXlsxWriter.buildRowValues(dataSource, propertyList, rowValues);
+          directWriter.writeRow(rowValues);
+          rowNo++;
+          if (null != progress) {
+            progress.onRow();
           }
         }
+        directWriter.endSheet();
+      } finally {
+        span.end(rowNo, 0);
       }
+    } catch (IOException e) {
+      throw new ExcelKitRuntimeException(e);
+    }
+  }
+
+  /**
+   * 并行生成: 每个 sheet 在 executor 中渲染并压缩到内存, 再按 sheet 顺序写入文件,
+   * 生成的文件与单线程相同. 同时驻留内存的 sheet 不超过 parallelism * 2 个.
+   *
+   * @param directWriter 直接写入器
+   * @param data 数据集
+   * @param executor 执行渲染的线程池
+   * @param parallelism 并行度
+   * @param progress 进度, 可为 null
+   * @throws com.wuwenze.poi.exception.ExcelKitCancelledException 导出被取消
+   */
+  public void generateXlsx(final ExcelXlsxDirectWriter directWriter, final List<?> data,
+      ExecutorService executor, int parallelism, final ExcelProgress progress) {
+    final List<ExcelProperty> propertyList = mExcelMapping.getPropertyList();
+    final String[] headers = getHeaders(propertyList);
+    final int size = null != data ? data.size() : 0;
+    int sheetCount = Math.max(1, (int) ((size + (long) mMaxSheetRecords - 1) / mMaxSheetRecords));
+    Deque<Future<ExcelXlsxDirectWriter.SheetPart>> pending =
+        new ArrayDeque<Future<ExcelXlsxDirectWriter.SheetPart>>();
+    int nextSheetIndex = 0;
+    try {
+      for (int sheetIndex = 0; sheetIndex < sheetCount; sheetIndex++) {
+        while (nextSheetIndex < sheetCount && pending.size() < parallelism * 2) {
+          final String sheetName = buildSheetName(nextSheetIndex);
+          final int startNo = nextSheetIndex++ * mMaxSheetRecords;
+          final int endNo = Math.min(startNo + mMaxSheetRecords, size);
+          pending.add(executor.submit(new Callable<ExcelXlsxDirectWriter.SheetPart>() {
+            @Override
+            public ExcelXlsxDirectWriter.SheetPart call() throws IOException {
+              ExcelTracer.Span span = ExcelTracing.start(ExcelTracer.Kind.SHEET_WRITE, mType,
+                  sheetName);
+              int rows = 0;
+              try {
+                ExcelXlsxDirectWriter.SheetPart sheetPart =
+                    directWriter.newSheetPart(propertyList, headers);
+                ExcelDataSource dataSource = new ListDataSource(
+                    startNo < endNo ? data.subList(startNo, endNo) : null);
+                String[] rowValues = new String[propertyList.size()];
+                while (ExcelXlsxWriter.checkCancelled(progress) && dataSource.next()) {
+                  ExcelXlsxWriter.buildRowValues(dataSource, propertyList, rowValues);
+                  sheetPart.writeRow(rowValues);
+                  rows++;
+                  if (null != progress) {
+                    progress.onRow();
+                  }
+                }
+                sheetPart.close();
+                return sheetPart;
+              } finally {
+                span.end(rows, 0);
+              }
+            }
+          }));
+        }
+        ExcelXlsxDirectWriter.SheetPart sheetPart = Futures.getUnchecked(pending.poll());
+        directWriter.addSheetPart(getSheetName(sheetIndex, progress), sheetPart);
+      }
+    } catch (UncheckedExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new ExcelKitRuntimeException(e.getCause());
+    } catch (IOException e) {
+      throw new ExcelKitRuntimeException(e);
+    } finally {
+      for (Future<ExcelXlsxDirectWriter.SheetPart> future : pending) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private static String[] getHeaders(List<ExcelProperty> propertyList) {
+    String[] headers = new String[propertyList.size()];
+    for (int i = 0; i < headers.length; i++) {
+      headers[i] = propertyList.get(i).getColumn();
+    }
+    return headers;
+  }
+
+  private static void buildRowValues(ExcelDataSource dataSource,
+      List<ExcelProperty> propertyList, String[] rowValues) {
+    for (int j = 0; j < rowValues.length; j++) {
+      ExcelProperty property = propertyList.get(j);
+      rowValues[j] = ExcelXlsxWriter.buildCellValue(dataSource.getValue(property), property);
     }
   }
 
+  private SXSSFSheet generateXlsxSheet(SXSSFWorkbook workbook, List<ExcelProperty> propertyList,
+      int sheetIndex, boolean isTemplate, ExcelProgress progress) {
+    return generateXlsxHeader(workbook, propertyList, getSheetName(sheetIndex, progress),
+        isTemplate);
+  }
+
+  private String getSheetName(int sheetIndex, ExcelProgress progress) {
+    String sheetName = buildSheetName(sheetIndex);
+    if (null != progress) {
+      progress.onSheet(sheetName);
+    }
+    return sheetName;
+  }
+
+  private String buildSheetName(int sheetIndex) {
+    return mExcelMapping.getName() + (sheetIndex == 0 ? "" : "_" + sheetIndex);
+  }
+
+  private static boolean checkCancelled(ExcelProgress progress) {
+    if (null != progress) {
+      progress.checkCancelled();
+    }
+    return true;
+  }
+
   private SXSSFSheet generateXlsxHeader(SXSSFWorkbook workbook,
       List<ExcelProperty> propertyList,
       String sheetName, boolean isTemplate) {
     SXSSFDrawing sxssfDrawing = null;
+    ExcelXlsxStyleRegistry styleRegistry = getStyleRegistry(workbook);
+    CellStyle headerCellStyle = styleRegistry.getHeaderCellStyle();
     SXSSFSheet sheet = POIUtil.newSXSSFSheet(workbook, sheetName);
     SXSSFRow headerRow = POIUtil.newSXSSFRow(sheet, 0);
     for (int i = 0; i < propertyList.size(); i++) {
@@ -109,7 +372,8 @@ public class ExcelXlsxWriter {
       POIUtil.setColumnWidth(sheet, i, property.getWidth(), property.getColumn());
       if (isTemplate) {
         // cell range
-        POIUtil.setColumnCellRange(sheet, property.getOptions(), 1, mMaxSheetRecords, i, i);
+        POIUtil.setColumnCellRange(sheet, property.getOptions(), 1, mMaxSheetRecords, i, i,
+            mOptionsLookupSheet);
         // cell comment.
         if (null == sxssfDrawing) {
           sxssfDrawing = sheet.createDrawingPatriarch();
@@ -120,14 +384,12 @@ public class ExcelXlsxWriter {
               new XSSFClientAnchor(0, 0, 0, 0, i, 0, i, 0));
           XSSFRichTextString xssfRichTextString = new XSSFRichTextString(
               property.getComment());
-          Font commentFormatter = workbook.createFont();
-          xssfRichTextString.applyFont(commentFormatter);
+          xssfRichTextString.applyFont(styleRegistry.getCommentFont());
           cellComment.setString(xssfRichTextString);
           cell.setCellComment(cellComment);
         }
       }
-      cell.setCellStyle(getHeaderCellStyle(workbook));
-      getDataCellStyle(workbook);
+      cell.setCellStyle(headerCellStyle);
       String headerColumnValue = property.getColumn();
       if (isTemplate && null != property.getRequired() && property.getRequired()) {
         headerColumnValue = (headerColumnValue + "[*]");
@@ -137,89 +399,58 @@ public class ExcelXlsxWriter {
     return sheet;
   }
 
-  private static void buildCellValueByExcelProperty(SXSSFCell cell, Object entity,
-      ExcelProperty property) {
-    Object cellValue;
-    try {
-      cellValue = BeanUtils.getProperty(entity, property.getName());
-    } catch (Throwable e) {
-      throw new ExcelKitRuntimeException(e);
-    }
+  /**
+   * 按属性配置(日期格式、转换表达式、转换器)将属性值转换为单元格文本
+   *
+   * @return 单元格文本, null 表示不写入值
+   */
+  private static String buildCellValue(Object cellValue, ExcelProperty property) {
     if (null != cellValue) {
       String dateFormat = property.getDateFormat();
       if (!ValidatorUtil.isEmpty(dateFormat)) {
         if (cellValue instanceof Date) {
-          cell.setCellValue(DateUtil.format(dateFormat, (Date) cellValue));
+          return DateUtil.format(dateFormat, (Date) cellValue);
         } else if (cellValue instanceof String) {
           try {
-            Date parse = DateUtil.ENGLISH_LOCAL_DF.parse((String) cellValue);
-            cell.setCellValue(DateUtil.format(dateFormat, parse));
+            Date parse = DateUtil.parseEnglishLocal((String) cellValue);
+            return DateUtil.format(dateFormat, parse);
           } catch (ParseException e) {
             e.printStackTrace();
           }
-          return;
+          return null;
         }
       }
       // writeConverterExp && writeConverter
-      String writeConverterExp = property.getWriteConverterExp();
+      ConverterExp writeConverterExp = property.getCompiledWriteConverterExp();
       WriteConverter writeConverter = property.getWriteConverter();
-      if (!ValidatorUtil.isEmpty(writeConverterExp)) {
+      if (null != writeConverterExp) {
+        cellValue = writeConverterExp.convert(cellValue);
+      } else if (!ValidatorUtil.isEmpty(property.getWriteConverterExp())) {
         try {
-          cellValue = POIUtil.convertByExp(cellValue, writeConverterExp);
+          cellValue = POIUtil.convertByExp(cellValue, property.getWriteConverterExp());
         } catch (Throwable e) {
           throw new ExcelKitRuntimeException(e);
         }
       } else if (null != writeConverter) {
-        cell.setCellValue(writeConverter.convert(cellValue));
-        return;
+        return writeConverter.convert(cellValue);
       }
-      cell.setCellValue(String.valueOf(cellValue));
+      return String.valueOf(cellValue);
     }
+    return null;
   }
 
-  private CellStyle mHeaderCellStyle = null;
-  private CellStyle mDataCellStyle = null;
-
+  private ExcelXlsxStyleRegistry getStyleRegistry(SXSSFWorkbook workbook) {
+    if (null == mStyleRegistry || mStyleRegistry.getWorkbook() != workbook) {
+      mStyleRegistry = new ExcelXlsxStyleRegistry(workbook);
+    }
+    return mStyleRegistry;
+  }
 
   public CellStyle getHeaderCellStyle(SXSSFWorkbook wb) {
-    if (null == mHeaderCellStyle) {
-      mHeaderCellStyle = wb.createCellStyle();
-      mHeaderCellStyle.setAlignment(CellStyle.ALIGN_CENTER);
-      mHeaderCellStyle.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
-      mHeaderCellStyle.setFillForegroundColor(IndexedColors.GREY_40_PERCENT.getIndex());
-      mHeaderCellStyle.setFillPattern(CellStyle.SOLID_FOREGROUND);
-      mHeaderCellStyle.setBorderRight(CellStyle.BORDER_THIN);
-      mHeaderCellStyle.setRightBorderColor(IndexedColors.BLACK.getIndex());
-      Font headerFont = wb.createFont();
-      headerFont.setFontName("宋体");
-      headerFont.setFontHeightInPoints((short) 10);
-      headerFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
-      headerFont.setColor(IndexedColors.WHITE.getIndex());
-      mHeaderCellStyle.setFont(headerFont);
-      //设置单元格文本形式
-      DataFormat dataFormat = wb.createDataFormat();
-      mHeaderCellStyle.setDataFormat(dataFormat.getFormat("@"));
-    }
-    return mHeaderCellStyle;
+    return getStyleRegistry(wb).getHeaderCellStyle();
   }
 
   public CellStyle getDataCellStyle(SXSSFWorkbook wb) {
-    if(mDataCellStyle == null) {
-      mDataCellStyle = wb.createCellStyle();
-      mDataCellStyle.setVerticalAlignment(CellStyle.VERTICAL_CENTER);
-      mDataCellStyle.setBorderRight(CellStyle.BORDER_THIN);
-      mDataCellStyle.setRightBorderColor(IndexedColors.BLACK.getIndex());
-      mDataCellStyle.setBorderLeft(CellStyle.BORDER_THIN);
-      mDataCellStyle.setLeftBorderColor(IndexedColors.BLACK.getIndex());
-      mDataCellStyle.setBorderTop(CellStyle.BORDER_THIN);
-      mDataCellStyle.setTopBorderColor(IndexedColors.BLACK.getIndex());
-      mDataCellStyle.setBorderBottom(CellStyle.BORDER_THIN);
-      mDataCellStyle.setBottomBorderColor(IndexedColors.BLACK.getIndex());
-      Font dataFont = wb.createFont();
-      dataFont.setFontName("宋体");
-      dataFont.setFontHeightInPoints((short) 10);
-      mDataCellStyle.setFont(dataFont);
-    }
-      return  mDataCellStyle;
+    return getStyleRegistry(wb).getDataCellStyle();
   }
 }
@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.xlsx;
+
+import com.google.common.collect.Lists;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.util.Const;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 直接写入模式使用的 zip 写入器.
+ * <p>
+ * 所有条目统一使用 deflate + data descriptor, 时间固定为 1980-01-01, 因此条目内容既可以边写边压缩,
+ * 也可以由其他线程预先压缩后按顺序追加, 两种方式得到的文件逐字节相同.
+ * 指定线程池时, 边写边压缩的条目使用 ExcelXlsxParallelDeflater 分块并行压缩 (Java 6 上退回单线程压缩).
+ * 条目大小、偏移量或条目数超出 zip 的限制时, 与 java.util.zip.ZipOutputStream 一样使用 zip64
+ * (data descriptor 中的 8 字节大小、中央目录的 zip64 扩展字段及 zip64 结束记录).
+ *
+ * @author wuwenze
+ */
+class ExcelXlsxZipWriter {
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  private static final int VERSION = 20;
+  private static final int VERSION_ZIP64 = 45;
+  /**
+   * bit 3: 使用 data descriptor, bit 11: 文件名为 UTF-8
+   */
+  private static final int FLAGS = 0x0808;
+  private static final int METHOD_DEFLATED = 8;
+  /**
+   * MS-DOS 时间 1980-01-01 00:00:00
+   */
+  private static final int DOS_TIME = 0;
+  private static final int DOS_DATE = (1 << 5) | 1;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+  private final CountingOutputStream mOutputStream;
+  private final int mLevel;
+  private final ExecutorService mExecutor;
+  private final int mParallelism;
+  private final List<Entry> mEntries = Lists.newArrayList();
+  private EntryOutputStream mCurrentEntry = null;
+
+  /**
+   * @param outputStream 输出流, finish() 后不会关闭
+   * @param level 压缩级别 (0-9, -1 为默认, 0 为仅存储)
+   */
+  ExcelXlsxZipWriter(OutputStream outputStream, int level) {
+    this(outputStream, level, null, 1);
+  }
+
+  /**
+   * @param outputStream 输出流, finish() 后不会关闭
+   * @param level 压缩级别 (0-9, -1 为默认, 0 为仅存储)
+   * @param executor 分块并行压缩使用的线程池, 为 null 时单线程压缩
+   * @param parallelism 并行度
+   */
+  ExcelXlsxZipWriter(OutputStream outputStream, int level, ExecutorService executor,
+      int parallelism) {
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new ExcelKitRuntimeException("Invalid compression level: " + level + ".");
+    }
+    mOutputStream = new CountingOutputStream(new BufferedOutputStream(outputStream));
+    mLevel = level;
+    mExecutor = executor;
+    mParallelism = parallelism;
+  }
+
+  /**
+   * 开始一个新条目, 关闭返回的输出流即结束该条目
+   */
+  OutputStream putEntry(String name) throws IOException {
+    if (null != mCurrentEntry) {
+      mCurrentEntry.close();
+    }
+    Entry entry = writeLocalHeader(name);
+    mCurrentEntry = new EntryOutputStream(entry, mOutputStream);
+    return mCurrentEntry;
+  }
+
+  /**
+   * 追加一个已压缩的条目
+   *
+   * @param name 条目名称
+   * @param part 由 {@link #newCompressedPart()} 生成且已 finish 的内容
+   */
+  void putCompressedEntry(String name, CompressedPart part) throws IOException {
+    if (null != mCurrentEntry) {
+      mCurrentEntry.close();
+    }
+    Entry entry = writeLocalHeader(name);
+    part.mBuffer.writeTo(mOutputStream);
+    entry.mCrc = part.mCrc;
+    entry.mCompressedSize = part.mCompressedSize;
+    entry.mSize = part.mSize;
+    writeDataDescriptor(entry);
+  }
+
+  /**
+   * 使用与本写入器相同的压缩级别(单线程压缩)的内存缓冲区, 可在其他线程中写入.
+   * 不使用分块并行压缩, 避免线程池中的任务互相等待.
+   */
+  CompressedPart newCompressedPart() {
+    return new CompressedPart(mLevel);
+  }
+
+  /**
+   * 写入中央目录并结束 zip, 不关闭底层输出流
+   */
+  void finish() throws IOException {
+    if (null != mCurrentEntry) {
+      mCurrentEntry.close();
+    }
+    long centralDirectoryOffset = mOutputStream.mCount;
+    for (Entry entry : mEntries) {
+      // 与 ZipOutputStream 相同: 任一大小溢出时两个大小都写入扩展字段
+      boolean zip64Size = entry.mSize >= ZIP64_MAGIC || entry.mCompressedSize >= ZIP64_MAGIC;
+      boolean zip64Offset = entry.mOffset >= ZIP64_MAGIC;
+      int extraLength = (zip64Size ? 16 : 0) + (zip64Offset ? 8 : 0);
+      int version = extraLength > 0 ? VERSION_ZIP64 : VERSION;
+      writeInt(CENTRAL_HEADER_SIGNATURE);
+      writeShort(version);
+      writeShort(version);
+      writeShort(FLAGS);
+      writeShort(METHOD_DEFLATED);
+      writeShort(DOS_TIME);
+      writeShort(DOS_DATE);
+      writeInt(entry.mCrc);
+      writeInt(zip64Size ? ZIP64_MAGIC : entry.mCompressedSize);
+      writeInt(zip64Size ? ZIP64_MAGIC : entry.mSize);
+      writeShort(entry.mName.length);
+      writeShort(extraLength > 0 ? extraLength + 4 : 0);
+      writeShort(0);
+      writeShort(0);
+      writeShort(0);
+      writeInt(0);
+      writeInt(zip64Offset ? ZIP64_MAGIC : entry.mOffset);
+      mOutputStream.write(entry.mName);
+      if (extraLength > 0) {
+        writeShort(ZIP64_EXTRA_ID);
+        writeShort(extraLength);
+        if (zip64Size) {
+          writeLong(entry.mSize);
+          writeLong(entry.mCompressedSize);
+        }
+        if (zip64Offset) {
+          writeLong(entry.mOffset);
+        }
+      }
+    }
+    long centralDirectorySize = mOutputStream.mCount - centralDirectoryOffset;
+    int count = mEntries.size();
+    if (count >= ZIP64_MAGIC_COUNT || centralDirectorySize >= ZIP64_MAGIC
+        || centralDirectoryOffset >= ZIP64_MAGIC) {
+      long zip64EndOffset = mOutputStream.mCount;
+      writeInt(ZIP64_END_SIGNATURE);
+      writeLong(44);
+      writeShort(VERSION_ZIP64);
+      writeShort(VERSION_ZIP64);
+      writeInt(0);
+      writeInt(0);
+      writeLong(count);
+      writeLong(count);
+      writeLong(centralDirectorySize);
+      writeLong(centralDirectoryOffset);
+      writeInt(ZIP64_LOCATOR_SIGNATURE);
+      writeInt(0);
+      writeLong(zip64EndOffset);
+      writeInt(1);
+    }
+    writeInt(END_SIGNATURE);
+    writeShort(0);
+    writeShort(0);
+    writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+    writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+    writeInt(Math.min(centralDirectorySize, ZIP64_MAGIC));
+    writeInt(Math.min(centralDirectoryOffset, ZIP64_MAGIC));
+    writeShort(0);
+    mOutputStream.flush();
+  }
+
+  private Entry writeLocalHeader(String name) throws IOException {
+    Entry entry = new Entry();
+    entry.mName = name.getBytes(Charset.forName(Const.ENCODING));
+    entry.mOffset = mOutputStream.mCount;
+    mEntries.add(entry);
+    writeInt(LOCAL_HEADER_SIGNATURE);
+    writeShort(VERSION);
+    writeShort(FLAGS);
+    writeShort(METHOD_DEFLATED);
+    writeShort(DOS_TIME);
+    writeShort(DOS_DATE);
+    writeInt(0);
+    writeInt(0);
+    writeInt(0);
+    writeShort(entry.mName.length);
+    writeShort(0);
+    mOutputStream.write(entry.mName);
+    return entry;
+  }
+
+  private void writeDataDescriptor(Entry entry) throws IOException {
+    writeInt(DATA_DESCRIPTOR_SIGNATURE);
+    writeInt(entry.mCrc);
+    if (entry.mCompressedSize >= ZIP64_MAGIC || entry.mSize >= ZIP64_MAGIC) {
+      writeLong(entry.mCompressedSize);
+      writeLong(entry.mSize);
+    } else {
+      writeInt(entry.mCompressedSize);
+      writeInt(entry.mSize);
+    }
+  }
+
+  private void writeShort(int value) throws IOException {
+    mOutputStream.write(value & 0xFF);
+    mOutputStream.write((value >>> 8) & 0xFF);
+  }
+
+  private void writeInt(long value) throws IOException {
+    writeShort((int) (value & 0xFFFF));
+    writeShort((int) ((value >>> 16) & 0xFFFF));
+  }
+
+  private void writeLong(long value) throws IOException {
+    writeInt(value & 0xFFFFFFFFL);
+    writeInt(value >>> 32);
+  }
+
+  private static class Entry {
+
+    private byte[] mName;
+    private long mOffset;
+    private long mCrc;
+    private long mCompressedSize;
+    private long mSize;
+  }
+
+  /**
+   * 边写边压缩, 统计 CRC 及压缩前后的大小
+   */
+  private static class DeflatingOutputStream extends OutputStream {
+
+    private final CountingOutputStream mCompressedOutputStream;
+    private final OutputStream mCompressor;
+    private final CRC32 mCrc32 = new CRC32();
+    private final byte[] mSingleByte = new byte[1];
+    long mSize = 0;
+    long mCompressedSize = 0;
+    private boolean mFinished = false;
+
+    DeflatingOutputStream(OutputStream target, int level, ExecutorService executor,
+        int parallelism) {
+      mCompressedOutputStream = new CountingOutputStream(target);
+      mCompressor = null != executor && ExcelXlsxParallelDeflater.SUPPORTED
+          ? new ExcelXlsxParallelDeflater(mCompressedOutputStream, level, executor,
+          parallelism * 2)
+          : new InlineDeflaterOutputStream(mCompressedOutputStream, level);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      mSingleByte[0] = (byte) b;
+      write(mSingleByte, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return;
+      }
+      mCrc32.update(b, off, len);
+      mSize += len;
+      mCompressor.write(b, off, len);
+    }
+
+    void finishDeflate() throws IOException {
+      if (mFinished) {
+        return;
+      }
+      mFinished = true;
+      mCompressor.close();
+      mCompressedSize = mCompressedOutputStream.mCount;
+    }
+
+    long getCrc() {
+      return mCrc32.getValue();
+    }
+  }
+
+  /**
+   * 单线程压缩, close() 只结束压缩, 不关闭目标输出流
+   */
+  private static class InlineDeflaterOutputStream extends DeflaterOutputStream {
+
+    InlineDeflaterOutputStream(OutputStream target, int level) {
+      super(target, new Deflater(level, true), 64 * 1024);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        finish();
+      } finally {
+        def.end();
+      }
+    }
+  }
+
+  private class EntryOutputStream extends DeflatingOutputStream {
+
+    private final Entry mEntry;
+
+    EntryOutputStream(Entry entry, OutputStream target) {
+      super(target, mLevel, mExecutor, mParallelism);
+      mEntry = entry;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (mCurrentEntry != this) {
+        return;
+      }
+      mCurrentEntry = null;
+      finishDeflate();
+      mEntry.mCrc = getCrc();
+      mEntry.mCompressedSize = mCompressedSize;
+      mEntry.mSize = mSize;
+      writeDataDescriptor(mEntry);
+    }
+  }
+
+  /**
+   * 预先压缩的条目内容, 关闭后可通过 putCompressedEntry 追加到 zip 中
+   */
+  static class CompressedPart extends DeflatingOutputStream {
+
+    private final ByteArrayOutputStream mBuffer;
+    private long mCrc;
+
+    private CompressedPart(int level) {
+      this(new ByteArrayOutputStream(64 * 1024), level);
+    }
+
+    private CompressedPart(ByteArrayOutputStream buffer, int level) {
+      super(buffer, level, null, 1);
+      mBuffer = buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+      finishDeflate();
+      mCrc = getCrc();
+    }
+  }
+
+  private static class CountingOutputStream extends OutputStream {
+
+    private final OutputStream mOut;
+    private long mCount = 0;
+
+    CountingOutputStream(OutputStream out) {
+      mOut = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      mOut.write(b);
+      mCount++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      mOut.write(b, off, len);
+      mCount += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      mOut.flush();
+    }
+  }
+}
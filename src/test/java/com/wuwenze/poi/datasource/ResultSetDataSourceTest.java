@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.pojo.ExcelProperty;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Date;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 基于 H2 内存数据库验证 ResultSetDataSource 的列匹配和类型转换
+ *
+ * @author wuwenze
+ */
+public class ResultSetDataSourceTest {
+
+  private static final String SQL =
+      "SELECT id, user_name, create_at, remark, avatar FROM user_info WHERE id > ? ORDER BY id";
+
+  private Connection mConnection;
+
+  @Before
+  public void setUp() throws Exception {
+    mConnection = DriverManager.getConnection("jdbc:h2:mem:ResultSetDataSourceTest");
+    Statement statement = mConnection.createStatement();
+    try {
+      statement.execute("CREATE TABLE user_info (id INT PRIMARY KEY, user_name VARCHAR(32), "
+          + "create_at TIMESTAMP, remark CLOB, avatar BLOB)");
+      statement.execute("INSERT INTO user_info VALUES "
+          + "(1, 'a', TIMESTAMP '2018-05-01 12:30:00', 'long text', NULL), "
+          + "(2, 'b', NULL, NULL, NULL), "
+          + "(3, 'c', NULL, NULL, NULL)");
+    } finally {
+      statement.close();
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    mConnection.close();
+  }
+
+  @Test
+  public void queryReadsRowsByColumnLabel() throws Exception {
+    ResultSetDataSource dataSource = ResultSetDataSource.query(mConnection, SQL, 0, 1);
+    try {
+      assertTrue(dataSource.next());
+      assertEquals("b", dataSource.getValue(ResultSetDataSourceTest.property("userName")));
+      assertNull(dataSource.getValue(ResultSetDataSourceTest.property("createAt")));
+      assertTrue(dataSource.next());
+      assertEquals(3, dataSource.getValue(ResultSetDataSourceTest.property("ID")));
+      assertFalse(dataSource.next());
+    } finally {
+      dataSource.close();
+    }
+  }
+
+  @Test
+  public void queryConvertsTimestampAndClob() throws Exception {
+    ResultSetDataSource dataSource = ResultSetDataSource.query(mConnection, SQL, 10, 0);
+    try {
+      assertTrue(dataSource.next());
+      Object createAt = dataSource.getValue(ResultSetDataSourceTest.property("createAt"));
+      assertEquals(Date.class, createAt.getClass());
+      assertEquals(java.sql.Timestamp.valueOf("2018-05-01 12:30:00").getTime(),
+          ((Date) createAt).getTime());
+      assertEquals("long text", dataSource.getValue(ResultSetDataSourceTest.property("remark")));
+    } finally {
+      dataSource.close();
+    }
+  }
+
+  @Test
+  public void queryIgnoresNonPositiveFetchSize() throws Exception {
+    ResultSetDataSource dataSource = ResultSetDataSource.query(mConnection, SQL, -1, 0);
+    try {
+      assertTrue(dataSource.next());
+    } finally {
+      dataSource.close();
+    }
+  }
+
+  @Test
+  public void closeIsIdempotentAndKeepsConnectionOpen() throws Exception {
+    ResultSetDataSource dataSource = ResultSetDataSource.query(mConnection, SQL, 0, 0);
+    dataSource.close();
+    dataSource.close();
+    assertFalse(mConnection.isClosed());
+  }
+
+  @Test
+  public void rejectsUnknownAndBinaryColumns() throws Exception {
+    ResultSetDataSource dataSource = ResultSetDataSource.query(mConnection, SQL, 0, 0);
+    try {
+      assertTrue(dataSource.next());
+      ResultSetDataSourceTest.assertRejected(dataSource, "nickName");
+      ResultSetDataSourceTest.assertRejected(dataSource, "avatar");
+    } finally {
+      dataSource.close();
+    }
+  }
+
+  @Test
+  public void queryFailureClosesStatement() throws Exception {
+    try {
+      ResultSetDataSource.query(mConnection, "SELECT * FROM missing_table", 0);
+      fail();
+    } catch (ExcelKitRuntimeException e) {
+      assertTrue(e.getMessage().contains("missing_table"));
+    }
+    assertFalse(mConnection.isClosed());
+  }
+
+  private static void assertRejected(ResultSetDataSource dataSource, String name) {
+    try {
+      dataSource.getValue(ResultSetDataSourceTest.property(name));
+      fail(name);
+    } catch (ExcelKitRuntimeException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(name));
+    }
+  }
+
+  private static ExcelProperty property(String name) {
+    return ExcelProperty.builder().name(name).build();
+  }
+}
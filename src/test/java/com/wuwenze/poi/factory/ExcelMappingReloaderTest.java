@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.wuwenze.poi.annotation.Excel;
+import com.wuwenze.poi.annotation.ExcelField;
+import java.io.File;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 热加载的映射被缓存淘汰后不应退回 classpath 中的旧版本
+ *
+ * @author wuwenze
+ */
+public class ExcelMappingReloaderTest {
+
+  @Rule
+  public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+  private ExcelMappingReloader mReloader;
+  private File mConfig;
+
+  @Before
+  public void setUp() throws Exception {
+    mConfig = new File(mTemporaryFolder.getRoot(), User.class.getName() + ".xml");
+    mReloader = new ExcelMappingReloader(mTemporaryFolder.getRoot(),
+        getClass().getClassLoader(), Long.MAX_VALUE);
+  }
+
+  @After
+  public void tearDown() {
+    mReloader.shutdown();
+    ExcelMappingFactory.removeReloadedConfig(User.class);
+  }
+
+  @Test
+  public void reloadedMappingSurvivesEviction() throws Exception {
+    assertEquals("User", ExcelMappingFactory.get(User.class).getName());
+
+    writeConfig("Reloaded");
+    mReloader.scan();
+    assertEquals(1, mReloader.getReloadCount());
+    assertEquals("Reloaded", ExcelMappingFactory.get(User.class).getName());
+
+    ExcelMappingFactory.getRegistry().invalidate(User.class);
+    assertEquals("Reloaded", ExcelMappingFactory.get(User.class).getName());
+  }
+
+  @Test
+  public void invalidFileKeepsLastReloadedMapping() throws Exception {
+    writeConfig("Reloaded");
+    mReloader.scan();
+    Files.write("<excel-mapping>", mConfig, Charsets.UTF_8);
+    mConfig.setLastModified(mConfig.lastModified() + 2000);
+    mReloader.scan();
+    assertTrue(mReloader.getFailures().containsKey(mConfig.getName()));
+
+    ExcelMappingFactory.getRegistry().invalidate(User.class);
+    assertEquals("Reloaded", ExcelMappingFactory.get(User.class).getName());
+  }
+
+  @Test
+  public void changeOfTimeAndLengthIsReloaded() throws Exception {
+    long lastModified = 1500000000000L;
+    writeConfig("Reloaded0123456789012345678901234567890");
+    mConfig.setLastModified(lastModified);
+    mReloader.scan();
+    long length = mConfig.length();
+
+    // 修改时间 +1 毫秒, 长度 -31
+    writeConfig("Reloaded");
+    mConfig.setLastModified(lastModified + 1);
+    assumeTrue(mConfig.lastModified() == lastModified + 1);
+    assertEquals(length - 31, mConfig.length());
+    mReloader.scan();
+    assertEquals(2, mReloader.getReloadCount());
+    assertEquals("Reloaded", ExcelMappingFactory.get(User.class).getName());
+  }
+
+  @Test
+  public void deletedFileFallsBackToClasspath() throws Exception {
+    writeConfig("Reloaded");
+    mReloader.scan();
+    assertTrue(mConfig.delete());
+    mReloader.scan();
+    assertEquals("User", ExcelMappingFactory.get(User.class).getName());
+  }
+
+  private void writeConfig(String name) throws Exception {
+    Files.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<excel-mapping name=\"" + name + "\">\n"
+        + "  <property name=\"name\" column=\"名称\"/>\n"
+        + "</excel-mapping>\n", mConfig, Charsets.UTF_8);
+  }
+
+  @Excel("User")
+  public static class User {
+
+    @ExcelField("名称")
+    private String name;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+}
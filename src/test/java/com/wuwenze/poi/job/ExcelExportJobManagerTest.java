@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import com.wuwenze.poi.annotation.Excel;
+import com.wuwenze.poi.annotation.ExcelField;
+import com.wuwenze.poi.config.ExcelExportJobConfig;
+import java.io.File;
+import java.util.UUID;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 共用存储目录时, 管理器只清理自己生成的文件
+ *
+ * @author wuwenze
+ */
+public class ExcelExportJobManagerTest {
+
+  @Rule
+  public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void evictExpiredKeepsForeignFiles() throws Exception {
+    ExcelExportJobConfig config = new ExcelExportJobConfig();
+    config.setStoreDirectory(mTemporaryFolder.getRoot());
+    config.setRetentionMillis(60000L);
+    ExcelExportJobManager first = new ExcelExportJobManager(config);
+    config.setRetentionMillis(0L);
+    ExcelExportJobManager second = new ExcelExportJobManager(config);
+    try {
+      String jobId = first.submit(Item.class, Lists.newArrayList(new Item("a")));
+      while (!first.getJob(jobId).getStatus().isFinished()) {
+        Thread.sleep(10L);
+      }
+      assertEquals(ExcelExportJob.Status.COMPLETED, first.getJob(jobId).getStatus());
+      File unrelated = mTemporaryFolder.newFile("report.xlsx");
+      File otherJob = mTemporaryFolder.newFile(UUID.randomUUID() + ".xlsx");
+      unrelated.setLastModified(0L);
+      otherJob.setLastModified(0L);
+      Thread.sleep(10L);
+
+      second.evictExpired();
+      assertTrue(unrelated.exists());
+      assertTrue(otherJob.exists());
+      ExcelExportDownload download = first.openDownload(jobId);
+      try {
+        assertTrue(download.getLength() > 0);
+      } finally {
+        download.close();
+      }
+    } finally {
+      first.shutdown();
+      second.shutdown();
+    }
+  }
+
+  @Excel("Item")
+  public static class Item {
+
+    @ExcelField("名称")
+    private String name;
+
+    public Item() {
+    }
+
+    public Item(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+}
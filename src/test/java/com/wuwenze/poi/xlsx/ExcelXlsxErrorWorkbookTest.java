@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.xlsx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.wuwenze.poi.ExcelKit;
+import com.wuwenze.poi.annotation.Excel;
+import com.wuwenze.poi.annotation.ExcelField;
+import com.wuwenze.poi.handler.ExcelReadHandler;
+import com.wuwenze.poi.pojo.ExcelErrorField;
+import com.wuwenze.poi.util.Const;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 错误工作簿中的数值及日期单元格应保持数值类型和原数字格式
+ *
+ * @author wuwenze
+ */
+public class ExcelXlsxErrorWorkbookTest {
+
+  @Rule
+  public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void keepsNumericAndDateCells() throws Exception {
+    File file = writeSource();
+    ByteArrayOutputStream errorWorkbook = new ByteArrayOutputStream();
+    ExcelKit.$Import(Item.class)
+        .setErrorWorkbook(errorWorkbook, true)
+        .readXlsx(file, new ExcelReadHandler<Item>() {
+          @Override
+          public void onSuccess(int sheetIndex, int rowIndex, Item entity) {
+          }
+
+          @Override
+          public void onError(int sheetIndex, int rowIndex, List<ExcelErrorField> errorFields) {
+          }
+        });
+
+    XSSFWorkbook workbook = new XSSFWorkbook(
+        new ByteArrayInputStream(errorWorkbook.toByteArray()));
+    Sheet sheet = workbook.getSheetAt(0);
+    assertEquals(Const.XLSX_ERROR_COLUMN_NAME, sheet.getRow(0).getCell(3).getStringCellValue());
+
+    Row passed = sheet.getRow(1);
+    assertEquals(Cell.CELL_TYPE_STRING, passed.getCell(0).getCellType());
+    assertEquals("a", passed.getCell(0).getStringCellValue());
+    assertNumeric(passed.getCell(1), 12.5, "0.00");
+    assertEquals(Cell.CELL_TYPE_NUMERIC, passed.getCell(2).getCellType());
+    assertTrue(DateUtil.isCellDateFormatted(passed.getCell(2)));
+    assertEquals(DateUtil.getExcelDate(new java.util.Date(118, 4, 1)),
+        passed.getCell(2).getNumericCellValue(), 0);
+
+    Row failed = sheet.getRow(2);
+    assertNumeric(failed.getCell(1), 3, "0.00");
+    // 校验失败的单元格使用错误样式, 数值单元格同样保留数字格式
+    assertEquals(CellStyle.SOLID_FOREGROUND, failed.getCell(0).getCellStyle().getFillPattern());
+    assertEquals(CellStyle.NO_FILL, failed.getCell(1).getCellStyle().getFillPattern());
+    assertTrue(failed.getCell(3).getStringCellValue().contains("名称"));
+    workbook.close();
+  }
+
+  private static void assertNumeric(Cell cell, double value, String format) {
+    assertEquals(Cell.CELL_TYPE_NUMERIC, cell.getCellType());
+    assertEquals(value, cell.getNumericCellValue(), 0);
+    assertEquals(format, cell.getCellStyle().getDataFormatString());
+  }
+
+  private File writeSource() throws Exception {
+    XSSFWorkbook workbook = new XSSFWorkbook();
+    CellStyle amountStyle = workbook.createCellStyle();
+    amountStyle.setDataFormat(workbook.createDataFormat().getFormat("0.00"));
+    CellStyle dateStyle = workbook.createCellStyle();
+    dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd"));
+    Sheet sheet = workbook.createSheet("Item");
+    Row header = sheet.createRow(0);
+    header.createCell(0).setCellValue("名称");
+    header.createCell(1).setCellValue("数量");
+    header.createCell(2).setCellValue("日期");
+    String[] names = {"a", null};
+    double[] amounts = {12.5, 3};
+    for (int r = 0; r < names.length; r++) {
+      Row row = sheet.createRow(r + 1);
+      if (null != names[r]) {
+        row.createCell(0).setCellValue(names[r]);
+      }
+      Cell amount = row.createCell(1);
+      amount.setCellValue(amounts[r]);
+      amount.setCellStyle(amountStyle);
+      Cell date = row.createCell(2);
+      date.setCellValue(new java.util.Date(118, 4, 1));
+      date.setCellStyle(dateStyle);
+    }
+    File file = mTemporaryFolder.newFile("source.xlsx");
+    FileOutputStream outputStream = new FileOutputStream(file);
+    try {
+      workbook.write(outputStream);
+    } finally {
+      outputStream.close();
+    }
+    return file;
+  }
+
+  @Excel("Item")
+  public static class Item {
+
+    @ExcelField(value = "名称", required = true)
+    private String name;
+    @ExcelField("数量")
+    private String amount;
+    @ExcelField("日期")
+    private String date;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public String getAmount() {
+      return amount;
+    }
+
+    public void setAmount(String amount) {
+      this.amount = amount;
+    }
+
+    public String getDate() {
+      return date;
+    }
+
+    public void setDate(String date) {
+      this.date = date;
+    }
+  }
+}
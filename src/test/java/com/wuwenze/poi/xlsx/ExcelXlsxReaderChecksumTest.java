@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.xlsx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.wuwenze.poi.ExcelKit;
+import com.wuwenze.poi.annotation.Excel;
+import com.wuwenze.poi.annotation.ExcelField;
+import com.wuwenze.poi.handler.ExcelReadHandler;
+import com.wuwenze.poi.pojo.ExcelErrorField;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 仅校验得到的校验和: 以服务端密钥计算, 内容被替换(即使保留了 zip 中的 CRC-32)时不能跳过校验
+ *
+ * @author wuwenze
+ */
+public class ExcelXlsxReaderChecksumTest {
+
+  @Rule
+  public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void checksumSkipsValidationOfUnchangedFile() throws Exception {
+    File file = writeSource(true);
+    String checksum = ExcelKit.$Import(Item.class).validateXlsx(file).getValidatedChecksum();
+    assertNotNull(checksum);
+    assertEquals(checksum, ExcelKit.$Import(Item.class).validateXlsx(file).getValidatedChecksum());
+    List<String> names = Lists.newArrayList();
+    read(file, checksum, names);
+    assertEquals(Lists.newArrayList("abc", "xyz"), names);
+
+    ExcelXlsxReader.setChecksumKey("another key".getBytes(Charsets.UTF_8));
+    try {
+      assertFalse(checksum.equals(
+          ExcelKit.$Import(Item.class).validateXlsx(file).getValidatedChecksum()));
+    } finally {
+      ExcelXlsxReader.setChecksumKey("excelkit test key".getBytes(Charsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void modifiedSharedStringsAreValidated() throws Exception {
+    assertModifiedFileIsValidated(writeSource(true));
+  }
+
+  @Test
+  public void modifiedSheetIsValidated() throws Exception {
+    assertModifiedFileIsValidated(writeSource(false));
+  }
+
+  private void assertModifiedFileIsValidated(File file) throws Exception {
+    String checksum = ExcelKit.$Import(Item.class).validateXlsx(file).getValidatedChecksum();
+    assertNotNull(checksum);
+
+    // 大小不变, 内容改变后 CRC-32 不同, 校验和不再匹配
+    File modified = modify(file, false);
+    try {
+      read(modified, checksum, Lists.<String>newArrayList());
+      fail();
+    } catch (RuntimeException e) {
+      // 校验照常执行, "123" 不符合规则进入 onError
+      assertTrue(String.valueOf(e), Throwables.getRootCause(e) instanceof AssertionError);
+    }
+
+    // 保留原 CRC-32 的文件在分发任何一行之前被发现
+    File forged = modify(file, true);
+    List<String> names = Lists.newArrayList();
+    try {
+      read(forged, checksum, names);
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(String.valueOf(Throwables.getRootCause(e)),
+          Throwables.getRootCause(e).getMessage().contains("CRC-32"));
+    }
+    assertTrue(String.valueOf(names), names.isEmpty());
+  }
+
+  private static void read(File file, String checksum, final List<String> names) {
+    ExcelKit.$Import(Item.class)
+        .setValidatedChecksum(checksum)
+        .readXlsx(file, new ExcelReadHandler<Item>() {
+          @Override
+          public void onSuccess(int sheetIndex, int rowIndex, Item entity) {
+            names.add(entity.getName());
+          }
+
+          @Override
+          public void onError(int sheetIndex, int rowIndex, List<ExcelErrorField> errorFields) {
+            throw new AssertionError(String.valueOf(errorFields));
+          }
+        });
+  }
+
+  /**
+   * 将 "abc" 替换为同样长度的 "123"
+   *
+   * @param keepCrc 是否在中央目录中保留原内容的 CRC-32
+   */
+  private File modify(File file, boolean keepCrc) throws Exception {
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    ZipOutputStream out = new ZipOutputStream(zip);
+    String modifiedName = null;
+    long originalCrc = 0;
+    ZipFile zipFile = new ZipFile(file);
+    try {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        InputStream in = zipFile.getInputStream(entry);
+        String content;
+        try {
+          content = new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+        } finally {
+          in.close();
+        }
+        if (content.contains(">abc<")) {
+          content = content.replace(">abc<", ">123<");
+          modifiedName = entry.getName();
+          originalCrc = entry.getCrc();
+        }
+        out.putNextEntry(new ZipEntry(entry.getName()));
+        out.write(content.getBytes(Charsets.UTF_8));
+        out.closeEntry();
+      }
+    } finally {
+      zipFile.close();
+    }
+    out.close();
+    assertNotNull(modifiedName);
+    byte[] bytes = zip.toByteArray();
+    if (keepCrc) {
+      ExcelXlsxReaderChecksumTest.patchCentralDirectoryCrc(bytes, modifiedName, originalCrc);
+    }
+    File modified = mTemporaryFolder.newFile();
+    Files.write(bytes, modified);
+    return modified;
+  }
+
+  private static void patchCentralDirectoryCrc(byte[] zip, String name, long crc) {
+    byte[] nameBytes = name.getBytes(Charsets.UTF_8);
+    for (int i = 0; i + 46 < zip.length; i++) {
+      if (zip[i] != 0x50 || zip[i + 1] != 0x4b || zip[i + 2] != 0x01 || zip[i + 3] != 0x02) {
+        continue;
+      }
+      int nameLength = (zip[i + 28] & 0xff) | (zip[i + 29] & 0xff) << 8;
+      if (nameLength == nameBytes.length && new String(zip, i + 46, nameLength, Charsets.UTF_8)
+          .equals(name)) {
+        for (int b = 0; b < 4; b++) {
+          zip[i + 16 + b] = (byte) (crc >>> (8 * b));
+        }
+        return;
+      }
+    }
+    fail(name + " not found in the central directory.");
+  }
+
+  private File writeSource(boolean sharedStrings) throws Exception {
+    ExcelXlsxReader.setChecksumKey("excelkit test key".getBytes(Charsets.UTF_8));
+    Workbook workbook = sharedStrings ? new XSSFWorkbook()
+        : new SXSSFWorkbook(null, 100, false, false);
+    Sheet sheet = workbook.createSheet("Item");
+    sheet.createRow(0).createCell(0).setCellValue("名称");
+    String[] names = {"abc", "xyz"};
+    for (int r = 0; r < names.length; r++) {
+      Row row = sheet.createRow(r + 1);
+      row.createCell(0).setCellValue(names[r]);
+    }
+    File file = mTemporaryFolder.newFile();
+    OutputStream outputStream = new FileOutputStream(file);
+    try {
+      workbook.write(outputStream);
+    } finally {
+      outputStream.close();
+    }
+    if (workbook instanceof SXSSFWorkbook) {
+      ((SXSSFWorkbook) workbook).dispose();
+    }
+    return file;
+  }
+
+  @Excel("Item")
+  public static class Item {
+
+    @ExcelField(value = "名称", regularExp = "[a-z]+", regularExpMessage = "只能是小写字母")
+    private String name;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2018, 吴汶泽 (wenzewoo@gmail.com).
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wuwenze.poi.xlsx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.wuwenze.poi.ExcelKit;
+import com.wuwenze.poi.annotation.Excel;
+import com.wuwenze.poi.annotation.ExcelField;
+import com.wuwenze.poi.config.ExcelWriterConfig;
+import com.wuwenze.poi.config.Options;
+import com.wuwenze.poi.exception.ExcelKitRuntimeException;
+import com.wuwenze.poi.handler.ExcelReadHandler;
+import com.wuwenze.poi.pojo.ExcelErrorField;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 导入模板中存放下拉选项的隐藏 sheet 不应影响按下标读取 sheet
+ *
+ * @author wuwenze
+ */
+public class ExcelXlsxReaderSheetIndexTest {
+
+  @Rule
+  public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void readBySheetIndexSkipsOptionsSheets() throws Exception {
+    File file = writeTemplate();
+    assertEquals(Lists.newArrayList("a0", "a1"), readNames(file, 0));
+    assertEquals(Lists.newArrayList("b0", "b1", "b2"), readNames(file, 1));
+    assertEquals(Lists.newArrayList("a0", "a1", "b0", "b1", "b2"), readNames(file, -1));
+  }
+
+  @Test
+  public void readBySheetIndexOutOfRange() throws Exception {
+    File file = writeTemplate();
+    try {
+      readNames(file, 2);
+      fail();
+    } catch (ExcelKitRuntimeException e) {
+      Throwable rootCause = Throwables.getRootCause(e);
+      assertTrue(rootCause.toString(), rootCause.getMessage().contains("out of range"));
+    }
+  }
+
+  private File writeTemplate() throws Exception {
+    Map<Class<?>, List<?>> dataList = Maps.newLinkedHashMap();
+    dataList.put(First.class, Lists.newArrayList(new First("a0", "x"), new First("a1", "y")));
+    dataList.put(Second.class, Lists.newArrayList(new Second("b0"), new Second("b1"),
+        new Second("b2")));
+    ExcelWriterConfig writerConfig = new ExcelWriterConfig();
+    writerConfig.setOptionsLookupSheet(true);
+    byte[] content = ExcelKit.$Export().setWriterConfig(writerConfig).setTemplateCache(null)
+        .downXlsxTemplate(dataList, true).toByteArray();
+    File file = mTemporaryFolder.newFile("template.xlsx");
+    FileOutputStream outputStream = new FileOutputStream(file);
+    try {
+      outputStream.write(content);
+    } finally {
+      outputStream.close();
+    }
+    return file;
+  }
+
+  /**
+   * Second 的列是 First 的子集, 两个 sheet 都可以用 First 读取
+   */
+  private static List<String> readNames(File file, int sheetIndex) {
+    final List<String> names = Lists.newArrayList();
+    ExcelKit.$Import(First.class).readXlsx(file, sheetIndex, new ExcelReadHandler<First>() {
+      @Override
+      public void onSuccess(int sheetIndex, int rowIndex, First entity) {
+        names.add(entity.getName());
+      }
+
+      @Override
+      public void onError(int sheetIndex, int rowIndex, List<ExcelErrorField> errorFields) {
+        fail(errorFields.toString());
+      }
+    });
+    return names;
+  }
+
+  public static class LevelOptions implements Options {
+
+    @Override
+    public String[] get() {
+      return new String[]{"x", "y", "z"};
+    }
+  }
+
+  @Excel("First")
+  public static class First {
+
+    @ExcelField("名称")
+    private String name;
+    @ExcelField(value = "等级", options = LevelOptions.class)
+    private String level;
+
+    public First() {
+    }
+
+    First(String name, String level) {
+      this.name = name;
+      this.level = level;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public String getLevel() {
+      return level;
+    }
+
+    public void setLevel(String level) {
+      this.level = level;
+    }
+  }
+
+  @Excel("Second")
+  public static class Second {
+
+    @ExcelField("名称")
+    private String name;
+
+    public Second() {
+    }
+
+    Second(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+}